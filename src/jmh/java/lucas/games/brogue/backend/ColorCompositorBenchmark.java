@@ -0,0 +1,94 @@
+package lucas.games.brogue.backend;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the scalar and Vector API compositors on one frame's worth of work:
+ * lay a light layer over the terrain colours, dim the remembered part and pack every row.
+ * <p>
+ *     Run with {@code ./gradlew jmh}. The default size is a 4K window of 16 pixel tiles.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorCompositorBenchmark {
+
+    @Param({"scalar", "vector"})
+    public String implementation;
+
+    @Param({"240"})
+    public int width;
+
+    @Param({"135"})
+    public int height;
+
+    private ColorCompositor compositor;
+    private ColorBuffer terrain;
+    private ColorBuffer light;
+    private ColorBuffer frame;
+    private int[] packed;
+
+    @Setup
+    public void setUp() {
+        compositor = implementation.equals("vector") ? ColorCompositor.create() : new ScalarColorCompositor();
+        if (implementation.equals("vector") && compositor instanceof ScalarColorCompositor) {
+            throw new IllegalStateException("The Vector API compositor is not available");
+        }
+        terrain = randomBuffer(1);
+        light = randomBuffer(2);
+        frame = new ColorBuffer(width, height);
+        packed = new int[width * height];
+    }
+
+    @Benchmark
+    public int[] compositeFrame() {
+        for (int y = 0; y < height; y++) {
+            // Start the row from the terrain colours, then light and dim it
+            System.arraycopy(terrain.reds(), y * width, frame.reds(), y * width, width);
+            System.arraycopy(terrain.greens(), y * width, frame.greens(), y * width, width);
+            System.arraycopy(terrain.blues(), y * width, frame.blues(), y * width, width);
+
+            compositor.multiplyRow(frame, light, y, 0, width);
+            compositor.scaleRow(frame, y, 0, width / 2, (float) RememberedMap.TERRAIN_DIM);
+            compositor.packRow(frame, y, 0, width, packed, y * width);
+        }
+        return packed;
+    }
+
+    @Benchmark
+    public ColorBuffer blendLayers() {
+        for (int y = 0; y < height; y++) {
+            compositor.addRow(frame, light, y, 0, width, 0.5f);
+            compositor.blendRow(frame, terrain, y, 0, width, 0.25f);
+        }
+        return frame;
+    }
+
+    private ColorBuffer randomBuffer(long seed) {
+        Random random = new Random(seed);
+        ColorBuffer buffer = new ColorBuffer(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                buffer.set(x, y, random.nextFloat() * 1.5f, random.nextFloat() * 1.5f, random.nextFloat() * 1.5f);
+            }
+        }
+        return buffer;
+    }
+}
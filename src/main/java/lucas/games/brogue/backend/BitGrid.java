@@ -0,0 +1,142 @@
+package lucas.games.brogue.backend;
+
+import java.util.Arrays;
+
+/**
+ * A packed 2D grid of bits backed by a {@code long[]}.
+ * <p>
+ *     Each row starts on a fresh word, so a row of the map can be tested or scanned
+ *     64 cells at a time. Bits past the row width are always kept clear.
+ * </p>
+ */
+public final class BitGrid {
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    public BitGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.words = new long[wordsPerRow * height];
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getWordsPerRow() { return wordsPerRow; }
+
+    public boolean get(int x, int y) {
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void set(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+    }
+
+    public void clear(int x, int y) {
+        words[y * wordsPerRow + (x >>> 6)] &= ~(1L << x);
+    }
+
+    public void set(int x, int y, boolean value) {
+        if (value) set(x, y);
+        else clear(x, y);
+    }
+
+    /**
+     * Sets or clears the bits of row y in the range [x0, x1).
+     */
+    public void setRange(int y, int x0, int x1, boolean value) {
+        if (x0 >= x1) return;
+        int row = y * wordsPerRow;
+        int firstWord = x0 >>> 6;
+        int lastWord = (x1 - 1) >>> 6;
+        long firstMask = -1L << x0;
+        long lastMask = -1L >>> (63 - ((x1 - 1) & 63));
+
+        for (int w = firstWord; w <= lastWord; w++) {
+            long mask = -1L;
+            if (w == firstWord) mask &= firstMask;
+            if (w == lastWord) mask &= lastMask;
+            if (value) words[row + w] |= mask;
+            else words[row + w] &= ~mask;
+        }
+    }
+
+    /**
+     * Sets or clears every cell in the grid.
+     */
+    public void fill(boolean value) {
+        if (!value) {
+            Arrays.fill(words, 0L);
+            return;
+        }
+        for (int y = 0; y < height; y++) {
+            setRange(y, 0, width, true);
+        }
+    }
+
+    /**
+     * Returns one raw word of a row. Bit i of word w is cell x = w * 64 + i.
+     */
+    public long word(int y, int wordIndex) {
+        return words[y * wordsPerRow + wordIndex];
+    }
+
+    /**
+     * Returns the 64 bits of row y starting at column x (bit 0 is cell x).
+     * Cells past the end of the row read as clear.
+     */
+    public long bits(int x, int y) {
+        int row = y * wordsPerRow;
+        int w = x >>> 6;
+        int shift = x & 63;
+        long lo = words[row + w] >>> shift;
+        if (shift == 0 || w + 1 >= wordsPerRow) return lo;
+        return lo | (words[row + w + 1] << (64 - shift));
+    }
+
+    /**
+     * Returns true if any bit of row y in the range [x0, x1) is set.
+     */
+    public boolean anyInRange(int y, int x0, int x1) {
+        if (x0 >= x1) return false;
+        int row = y * wordsPerRow;
+        int firstWord = x0 >>> 6;
+        int lastWord = (x1 - 1) >>> 6;
+        for (int w = firstWord; w <= lastWord; w++) {
+            long mask = -1L;
+            if (w == firstWord) mask &= -1L << x0;
+            if (w == lastWord) mask &= -1L >>> (63 - ((x1 - 1) & 63));
+            if ((words[row + w] & mask) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the column of the first set bit in row y at or after fromX, or -1 if there is none.
+     */
+    public int nextSetBit(int y, int fromX) {
+        if (fromX >= width) return -1;
+        int row = y * wordsPerRow;
+        int w = fromX >>> 6;
+        long word = words[row + w] & (-1L << fromX);
+        while (true) {
+            if (word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if (++w >= wordsPerRow) return -1;
+            word = words[row + w];
+        }
+    }
+
+    /**
+     * Copies the contents of another grid of the same dimensions into this one.
+     */
+    public void copyFrom(BitGrid other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Cannot copy a " + other.width + "x" + other.height +
+                    " grid into a " + width + "x" + height + " grid");
+        }
+        System.arraycopy(other.words, 0, words, 0, words.length);
+    }
+}
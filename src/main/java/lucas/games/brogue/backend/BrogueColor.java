@@ -85,14 +85,17 @@ public final class BrogueColor {
 
     /**
      * Helper to convert to a packed integer for rendering libraries.
-     * Format: 0xRRGGBB
+     * Format: 0xRRGGBB (see {@link PackedColor}). Clamps without creating a copy.
      */
     public int toRgbInt() {
-        BrogueColor clamped = this.clamp();
-        int rInt = (int) (clamped.r * 255.0);
-        int gInt = (int) (clamped.g * 255.0);
-        int bInt = (int) (clamped.b * 255.0);
-        return (rInt << 16) | (gInt << 8) | bInt;
+        return PackedColor.pack(r, g, b);
+    }
+
+    /**
+     * Same as {@code scale(factor).toRgbInt()}, without creating the scaled copy.
+     */
+    public int toRgbInt(double factor) {
+        return PackedColor.pack(r * factor, g * factor, b * factor);
     }
 
     @Override
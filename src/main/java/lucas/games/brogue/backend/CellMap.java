@@ -0,0 +1,113 @@
+package lucas.games.brogue.backend;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from packed cells (see {@link PackedPosition}) to values, without boxing the keys.
+ * <p>
+ *     Keys and values live in two parallel arrays probed linearly; a null value marks a free
+ *     slot, so null cannot be stored. Removal shifts the following entries back instead of
+ *     leaving tombstones, so lookups never slow down as entries come and go. The table doubles
+ *     when it is half full.
+ * </p>
+ */
+final class CellMap<V> {
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    CellMap() {
+        keys = new int[16];
+        values = new Object[16];
+        mask = 15;
+    }
+
+    private int slot(int key) {
+        int mixed = key * 0x9E3779B1;
+        return (mixed ^ (mixed >>> 16)) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) return (V) values[i];
+        }
+        return null;
+    }
+
+    /**
+     * Maps a key to a non-null value.
+     * @return the previous value, or null.
+     */
+    @SuppressWarnings("unchecked")
+    V put(int key, V value) {
+        int i = slot(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) grow();
+        return null;
+    }
+
+    /**
+     * @return the value that was mapped to the key, or null.
+     */
+    @SuppressWarnings("unchecked")
+    V remove(int key) {
+        int i = slot(key);
+        while (values[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (values[i] == null) return null;
+
+        V removed = (V) values[i];
+        size--;
+        // Pull back later entries of the run that would no longer be found past the gap
+        int gap = i;
+        for (int j = (gap + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        values[gap] = null;
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        if (size == 0) return;
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null) continue;
+            int j = slot(oldKeys[i]);
+            while (values[j] != null) {
+                j = (j + 1) & mask;
+            }
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+}
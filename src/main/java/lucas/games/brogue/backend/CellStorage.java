@@ -0,0 +1,83 @@
+package lucas.games.brogue.backend;
+
+import lucas.games.brogue.backend.entities.Entity;
+
+/**
+ * Backing store for the per-cell state of a {@link DungeonLevel}.
+ * <p>
+ *     Cells that were never written read as the defaults: solid wall on the dungeon layer,
+ *     empty upper layers, no flags, no occupant and no light. Implementations decide how
+ *     (and whether) to allocate memory for the rest.
+ * </p>
+ * <p>
+ *     Terrain is kept as one byte plane per {@link TerrainLayer}, holding TerrainType ordinals
+ *     or {@link #EMPTY}. The combined {@link TerrainFlags} word of each cell is stored alongside
+ *     and is maintained by the level whenever a layer changes.
+ * </p>
+ */
+abstract class CellStorage {
+
+    /** Marks an empty (non-dungeon) layer. */
+    static final byte EMPTY = -1;
+
+    protected final int width;
+    protected final int height;
+    protected final byte defaultTerrain;
+    protected final short defaultTerrainFlags;
+
+    protected CellStorage(int width, int height, TerrainType defaultTerrain) {
+        this.width = width;
+        this.height = height;
+        this.defaultTerrain = (byte) defaultTerrain.ordinal();
+        this.defaultTerrainFlags = (short) defaultTerrain.getFlags();
+    }
+
+    protected byte defaultLayerValue(int layer) {
+        return layer == 0 ? defaultTerrain : EMPTY;
+    }
+
+    abstract byte layer(int layer, int x, int y);
+
+    abstract void setLayer(int layer, int x, int y, byte value);
+
+    /**
+     * Sets one layer of row y in the range [x0, x1).
+     */
+    abstract void fillLayer(int layer, int y, int x0, int x1, byte value);
+
+    /**
+     * Returns false if no cell has ever held anything on the given layer since the last reset.
+     */
+    abstract boolean hasLayer(int layer);
+
+    abstract short terrainFlags(int x, int y);
+
+    abstract void setTerrainFlags(int x, int y, short value);
+
+    abstract void fillTerrainFlags(int y, int x0, int x1, short value);
+
+    abstract byte flags(int x, int y);
+
+    abstract void setFlags(int x, int y, byte value);
+
+    abstract Entity occupant(int x, int y);
+
+    abstract void setOccupant(int x, int y, Entity occupant);
+
+    /**
+     * Returns one channel (0 = red, 1 = green, 2 = blue) of the light stored on a cell.
+     */
+    abstract float light(int x, int y, int channel);
+
+    abstract void setLight(int x, int y, float r, float g, float b);
+
+    /**
+     * Returns every cell to its default state, reusing memory where possible.
+     */
+    abstract void reset();
+
+    /**
+     * Clears the given flag bits and all light, leaving everything else untouched.
+     */
+    abstract void clearFlagsAndLight(byte mask);
+}
@@ -0,0 +1,266 @@
+package lucas.games.brogue.backend;
+
+import lucas.games.brogue.backend.entities.Entity;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Cell storage split into fixed-size square chunks that are allocated on first write.
+ * <p>
+ *     A chunk that was never written to is implicitly all wall, so a huge mostly-solid
+ *     map only pays for the chunks that were actually carved or seen. Chunks released
+ *     by {@link #reset()} are pooled and reused by the next level.
+ * </p>
+ */
+final class ChunkedCellStorage extends CellStorage {
+
+    static final int CHUNK_SHIFT = 5;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_AREA = CHUNK_SIZE * CHUNK_SIZE;
+
+    private static final class Chunk {
+        final byte[][] layers = new byte[TerrainLayer.COUNT][]; // upper layers allocated on first use
+        final short[] terrainFlags = new short[CHUNK_AREA];
+        final byte[] flags = new byte[CHUNK_AREA];
+        final Entity[] occupants = new Entity[CHUNK_AREA];
+        float[] light; // r,g,b triples, allocated when light first lands in the chunk
+    }
+
+    private final int chunksX;
+    private final int chunksY;
+    private final Chunk[] chunks;
+
+    // Ids (cy * chunksX + cx) of the allocated chunks, in allocation order
+    private final int[] allocated;
+    private int allocatedCount;
+
+    private final ArrayDeque<Chunk> pool = new ArrayDeque<>();
+    private final boolean[] layerUsed = new boolean[TerrainLayer.COUNT];
+
+    ChunkedCellStorage(int width, int height, TerrainType defaultTerrain) {
+        super(width, height, defaultTerrain);
+        this.chunksX = (width + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.chunksY = (height + CHUNK_MASK) >> CHUNK_SHIFT;
+        this.chunks = new Chunk[chunksX * chunksY];
+        this.allocated = new int[chunks.length];
+        this.layerUsed[0] = true;
+    }
+
+    int getChunksX() { return chunksX; }
+    int getChunksY() { return chunksY; }
+    int getAllocatedCount() { return allocatedCount; }
+
+    /**
+     * Returns the id (cy * chunksX + cx) of the i-th allocated chunk.
+     */
+    int getAllocatedId(int i) { return allocated[i]; }
+
+    boolean isAllocated(int chunkX, int chunkY) {
+        return chunks[chunkY * chunksX + chunkX] != null;
+    }
+
+    private static int local(int x, int y) {
+        return ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+    }
+
+    private Chunk chunkAt(int x, int y) {
+        return chunks[(y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT)];
+    }
+
+    private Chunk allocate(int x, int y) {
+        int id = (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+        Chunk chunk = pool.poll();
+        if (chunk == null) {
+            chunk = new Chunk();
+            chunk.layers[0] = new byte[CHUNK_AREA];
+            Arrays.fill(chunk.layers[0], defaultTerrain);
+            Arrays.fill(chunk.terrainFlags, defaultTerrainFlags);
+        }
+        chunks[id] = chunk;
+        allocated[allocatedCount++] = id;
+        return chunk;
+    }
+
+    private byte[] plane(Chunk c, int layer) {
+        byte[] plane = c.layers[layer];
+        if (plane == null) {
+            plane = new byte[CHUNK_AREA];
+            Arrays.fill(plane, EMPTY);
+            c.layers[layer] = plane;
+        }
+        layerUsed[layer] = true;
+        return plane;
+    }
+
+    @Override
+    byte layer(int layer, int x, int y) {
+        Chunk c = chunkAt(x, y);
+        if (c == null || c.layers[layer] == null) return defaultLayerValue(layer);
+        return c.layers[layer][local(x, y)];
+    }
+
+    @Override
+    void setLayer(int layer, int x, int y, byte value) {
+        Chunk c = chunkAt(x, y);
+        boolean isDefault = value == defaultLayerValue(layer);
+        if (c == null) {
+            if (isDefault) return;
+            c = allocate(x, y);
+        }
+        if (c.layers[layer] == null && isDefault) return;
+        plane(c, layer)[local(x, y)] = value;
+    }
+
+    @Override
+    void fillLayer(int layer, int y, int x0, int x1, byte value) {
+        boolean isDefault = value == defaultLayerValue(layer);
+        int x = x0;
+        while (x < x1) {
+            int spanEnd = Math.min(x1, (x | CHUNK_MASK) + 1);
+            Chunk c = chunkAt(x, y);
+            if (c == null && !isDefault) {
+                c = allocate(x, y);
+            }
+            if (c != null && (c.layers[layer] != null || !isDefault)) {
+                int start = local(x, y);
+                Arrays.fill(plane(c, layer), start, start + (spanEnd - x), value);
+            }
+            x = spanEnd;
+        }
+    }
+
+    @Override
+    boolean hasLayer(int layer) {
+        return layerUsed[layer];
+    }
+
+    @Override
+    short terrainFlags(int x, int y) {
+        Chunk c = chunkAt(x, y);
+        return c == null ? defaultTerrainFlags : c.terrainFlags[local(x, y)];
+    }
+
+    @Override
+    void setTerrainFlags(int x, int y, short value) {
+        Chunk c = chunkAt(x, y);
+        if (c == null) {
+            if (value == defaultTerrainFlags) return;
+            c = allocate(x, y);
+        }
+        c.terrainFlags[local(x, y)] = value;
+    }
+
+    @Override
+    void fillTerrainFlags(int y, int x0, int x1, short value) {
+        int x = x0;
+        while (x < x1) {
+            int spanEnd = Math.min(x1, (x | CHUNK_MASK) + 1);
+            Chunk c = chunkAt(x, y);
+            if (c == null && value != defaultTerrainFlags) {
+                c = allocate(x, y);
+            }
+            if (c != null) {
+                int start = local(x, y);
+                Arrays.fill(c.terrainFlags, start, start + (spanEnd - x), value);
+            }
+            x = spanEnd;
+        }
+    }
+
+    @Override
+    byte flags(int x, int y) {
+        Chunk c = chunkAt(x, y);
+        return c == null ? 0 : c.flags[local(x, y)];
+    }
+
+    @Override
+    void setFlags(int x, int y, byte value) {
+        Chunk c = chunkAt(x, y);
+        if (c == null) {
+            if (value == 0) return;
+            c = allocate(x, y);
+        }
+        c.flags[local(x, y)] = value;
+    }
+
+    @Override
+    Entity occupant(int x, int y) {
+        Chunk c = chunkAt(x, y);
+        return c == null ? null : c.occupants[local(x, y)];
+    }
+
+    @Override
+    void setOccupant(int x, int y, Entity occupant) {
+        Chunk c = chunkAt(x, y);
+        if (c == null) {
+            if (occupant == null) return;
+            c = allocate(x, y);
+        }
+        c.occupants[local(x, y)] = occupant;
+    }
+
+    @Override
+    float light(int x, int y, int channel) {
+        Chunk c = chunkAt(x, y);
+        if (c == null || c.light == null) return 0.0f;
+        return c.light[local(x, y) * 3 + channel];
+    }
+
+    @Override
+    void setLight(int x, int y, float r, float g, float b) {
+        boolean black = r == 0.0f && g == 0.0f && b == 0.0f;
+        Chunk c = chunkAt(x, y);
+        if (c == null) {
+            if (black) return;
+            c = allocate(x, y);
+        }
+        if (c.light == null) {
+            if (black) return;
+            c.light = new float[CHUNK_AREA * 3];
+        }
+        int i = local(x, y) * 3;
+        c.light[i]     = r;
+        c.light[i + 1] = g;
+        c.light[i + 2] = b;
+    }
+
+    @Override
+    void reset() {
+        for (int i = 0; i < allocatedCount; i++) {
+            int id = allocated[i];
+            Chunk c = chunks[id];
+            Arrays.fill(c.layers[0], defaultTerrain);
+            for (int layer = 1; layer < c.layers.length; layer++) {
+                if (c.layers[layer] != null) {
+                    Arrays.fill(c.layers[layer], EMPTY);
+                }
+            }
+            Arrays.fill(c.terrainFlags, defaultTerrainFlags);
+            Arrays.fill(c.flags, (byte) 0);
+            Arrays.fill(c.occupants, null);
+            if (c.light != null) {
+                Arrays.fill(c.light, 0.0f);
+            }
+            chunks[id] = null;
+            pool.push(c);
+        }
+        allocatedCount = 0;
+        Arrays.fill(layerUsed, 1, layerUsed.length, false);
+    }
+
+    @Override
+    void clearFlagsAndLight(byte mask) {
+        for (int i = 0; i < allocatedCount; i++) {
+            Chunk c = chunks[allocated[i]];
+            byte[] f = c.flags;
+            for (int j = 0; j < f.length; j++) {
+                f[j] &= (byte) ~mask;
+            }
+            if (c.light != null) {
+                Arrays.fill(c.light, 0.0f);
+            }
+        }
+    }
+}
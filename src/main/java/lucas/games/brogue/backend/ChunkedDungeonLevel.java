@@ -0,0 +1,59 @@
+package lucas.games.brogue.backend;
+
+/**
+ * A dungeon level for very large maps whose cells are stored in lazily allocated chunks.
+ * <p>
+ *     The map is split into {@value #CHUNK_SIZE}x{@value #CHUNK_SIZE} chunks. A chunk only gets
+ *     memory once something is carved, seen, lit or occupied inside it; every other chunk is
+ *     implicitly solid wall. It exposes the same surface as {@link DungeonLevel}, so generators
+ *     and systems work with it unchanged.
+ * </p>
+ */
+public class ChunkedDungeonLevel extends DungeonLevel {
+
+    public static final int CHUNK_SIZE = ChunkedCellStorage.CHUNK_SIZE;
+
+    /**
+     * Visitor for allocated chunks, given in chunk coordinates (cell x = chunkX * CHUNK_SIZE).
+     */
+    @FunctionalInterface
+    public interface ChunkVisitor {
+        void visit(int chunkX, int chunkY);
+    }
+
+    private final ChunkedCellStorage chunks;
+
+    public ChunkedDungeonLevel(int width, int height) {
+        this(width, height, new ChunkedCellStorage(checkSize(width, height), height, TerrainType.WALL));
+    }
+
+    private ChunkedDungeonLevel(int width, int height, ChunkedCellStorage chunks) {
+        super(width, height, chunks);
+        this.chunks = chunks;
+    }
+
+    public int getChunkCountX() { return chunks.getChunksX(); }
+    public int getChunkCountY() { return chunks.getChunksY(); }
+
+    /**
+     * Number of chunks that currently have memory behind them.
+     */
+    public int getAllocatedChunkCount() {
+        return chunks.getAllocatedCount();
+    }
+
+    public boolean isChunkAllocated(int chunkX, int chunkY) {
+        return chunks.isAllocated(chunkX, chunkY);
+    }
+
+    /**
+     * Visits every allocated chunk. Chunks that are implicitly solid wall are skipped.
+     */
+    public void forEachChunk(ChunkVisitor visitor) {
+        int chunksX = chunks.getChunksX();
+        for (int i = 0; i < chunks.getAllocatedCount(); i++) {
+            int id = chunks.getAllocatedId(i);
+            visitor.visit(id % chunksX, id / chunksX);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package lucas.games.brogue.backend;
+
+import java.util.Arrays;
+
+/**
+ * A rectangle of floating point colours with bulk operations over rows and regions.
+ * <p>
+ *     Channels are stored in three planar {@code float[]} arrays in row-major order, so a
+ *     row of any channel is one contiguous run. Blending a light layer, dimming memory or
+ *     packing a row for display touches only primitive arrays and allocates nothing.
+ *     Row operations take a half-open column range {@code [x0, x1)}; the arithmetic ones run
+ *     through the shared {@link ColorCompositor#create()} compositor, so they use the Vector
+ *     API when it is available.
+ * </p>
+ */
+public class ColorBuffer {
+
+    private static final ColorCompositor COMPOSITOR = ColorCompositor.create();
+
+    private final int width;
+    private final int height;
+    private final float[] red;
+    private final float[] green;
+    private final float[] blue;
+
+    public ColorBuffer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.red = new float[width * height];
+        this.green = new float[width * height];
+        this.blue = new float[width * height];
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    /**
+     * Direct access to a channel plane, for compositing code that works on whole rows.
+     * Cell (x, y) is at index {@code y * width + x}.
+     */
+    public float[] reds() { return red; }
+    public float[] greens() { return green; }
+    public float[] blues() { return blue; }
+
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    public void set(int x, int y, float r, float g, float b) {
+        int i = index(x, y);
+        red[i] = r;
+        green[i] = g;
+        blue[i] = b;
+    }
+
+    public void set(int x, int y, BrogueColor color) {
+        set(x, y, (float) color.red(), (float) color.green(), (float) color.blue());
+    }
+
+    public void set(int x, int y, MutableColor color) {
+        set(x, y, color.red(), color.green(), color.blue());
+    }
+
+    public void add(int x, int y, float r, float g, float b) {
+        int i = index(x, y);
+        red[i] += r;
+        green[i] += g;
+        blue[i] += b;
+    }
+
+    /**
+     * Copies a cell into a mutable colour.
+     */
+    public MutableColor get(int x, int y, MutableColor out) {
+        int i = index(x, y);
+        return out.set(red[i], green[i], blue[i]);
+    }
+
+    public float get(int x, int y, int channel) {
+        int i = index(x, y);
+        return switch (channel) {
+            case 0 -> red[i];
+            case 1 -> green[i];
+            default -> blue[i];
+        };
+    }
+
+    public void fill(float r, float g, float b) {
+        Arrays.fill(red, r);
+        Arrays.fill(green, g);
+        Arrays.fill(blue, b);
+    }
+
+    /**
+     * Fills part of a row with one colour.
+     */
+    public void fillRow(int y, int x0, int x1, float r, float g, float b) {
+        int from = index(x0, y);
+        int to = index(x1, y);
+        Arrays.fill(red, from, to, r);
+        Arrays.fill(green, from, to, g);
+        Arrays.fill(blue, from, to, b);
+    }
+
+    /**
+     * Moves part of a row towards a colour.
+     * @param percent The share of the colour (0.0 = unchanged, 1.0 = the colour).
+     */
+    public void blendRow(int y, int x0, int x1, float r, float g, float b, float percent) {
+        int from = index(x0, y);
+        int to = index(x1, y);
+        for (int i = from; i < to; i++) {
+            red[i] += (r - red[i]) * percent;
+            green[i] += (g - green[i]) * percent;
+            blue[i] += (b - blue[i]) * percent;
+        }
+    }
+
+    /**
+     * Adds the same part of a row of another buffer of the same width, scaled by a factor.
+     * Used to lay one light layer over another.
+     */
+    public void addRow(int y, int x0, int x1, ColorBuffer source, float factor) {
+        COMPOSITOR.addRow(this, source, y, x0, x1, factor);
+    }
+
+    /**
+     * Multiplies part of a row, channel by channel, by the same part of another buffer
+     * of the same width (e.g. terrain colours by the light falling on them).
+     */
+    public void multiplyRow(int y, int x0, int x1, ColorBuffer source) {
+        COMPOSITOR.multiplyRow(this, source, y, x0, x1);
+    }
+
+    public void scaleRow(int y, int x0, int x1, float factor) {
+        COMPOSITOR.scaleRow(this, y, x0, x1, factor);
+    }
+
+    /**
+     * Scales the brightness of a rectangle, clipped to the buffer.
+     */
+    public void scaleRegion(Rect region, float factor) {
+        int x0 = Math.max(0, region.x());
+        int x1 = Math.min(width, region.x() + region.width());
+        int y0 = Math.max(0, region.y());
+        int y1 = Math.min(height, region.y() + region.height());
+        if (x0 >= x1) return;
+
+        for (int y = y0; y < y1; y++) {
+            scaleRow(y, x0, x1, factor);
+        }
+    }
+
+    public void clampRow(int y, int x0, int x1) {
+        int from = index(x0, y);
+        int to = index(x1, y);
+        for (int i = from; i < to; i++) {
+            red[i] = Math.min(1.0f, Math.max(0.0f, red[i]));
+            green[i] = Math.min(1.0f, Math.max(0.0f, green[i]));
+            blue[i] = Math.min(1.0f, Math.max(0.0f, blue[i]));
+        }
+    }
+
+    /**
+     * Clamps and packs part of a row as {@code 0xRRGGBB} values into {@code out}, starting at {@code offset}.
+     */
+    public void packRow(int y, int x0, int x1, int[] out, int offset) {
+        COMPOSITOR.packRow(this, y, x0, x1, out, offset);
+    }
+}
@@ -0,0 +1,97 @@
+package lucas.games.brogue.backend;
+
+/**
+ * Bulk colour arithmetic over runs of floating point channel arrays, such as the planes
+ * of a {@link ColorBuffer}.
+ * <p>
+ *     Implementations only differ in speed: {@link ScalarColorCompositor} is a plain loop and
+ *     {@code VectorColorCompositor} uses the incubating Vector API to process several cells per
+ *     instruction. Both give bit-identical results. Use {@link #create()} to get the fastest one
+ *     the running JVM supports. The vector version is built from its own source set, the only
+ *     code compiled against {@code jdk.incubator.vector}, so it is looked up by name here.
+ * </p>
+ * <p>
+ *     Every channel operation works on {@code length} elements starting at {@code offset},
+ *     using the same offset in every array it is given.
+ * </p>
+ */
+public interface ColorCompositor {
+
+    String VECTOR_IMPLEMENTATION = "lucas.games.brogue.backend.VectorColorCompositor";
+
+    /**
+     * {@code dst[i] += (src[i] - dst[i]) * percent}
+     */
+    void blend(float[] dst, float[] src, int offset, int length, float percent);
+
+    /**
+     * {@code dst[i] += src[i] * factor}
+     */
+    void addScaled(float[] dst, float[] src, int offset, int length, float factor);
+
+    /**
+     * {@code dst[i] *= src[i]}
+     */
+    void multiply(float[] dst, float[] src, int offset, int length);
+
+    /**
+     * {@code dst[i] *= factor}
+     */
+    void scale(float[] dst, int offset, int length, float factor);
+
+    /**
+     * Clamps each channel to 0.0-1.0 and packs the colours as {@code 0xRRGGBB} into {@code out},
+     * starting at {@code outOffset}. A channel becomes {@code (int) (clamped * 255.0f)}.
+     */
+    void pack(float[] red, float[] green, float[] blue, int offset, int length, int[] out, int outOffset);
+
+    // --- ColorBuffer rows ---
+
+    default void blendRow(ColorBuffer dst, ColorBuffer src, int y, int x0, int x1, float percent) {
+        int from = dst.index(x0, y);
+        blend(dst.reds(), src.reds(), from, x1 - x0, percent);
+        blend(dst.greens(), src.greens(), from, x1 - x0, percent);
+        blend(dst.blues(), src.blues(), from, x1 - x0, percent);
+    }
+
+    default void addRow(ColorBuffer dst, ColorBuffer src, int y, int x0, int x1, float factor) {
+        int from = dst.index(x0, y);
+        addScaled(dst.reds(), src.reds(), from, x1 - x0, factor);
+        addScaled(dst.greens(), src.greens(), from, x1 - x0, factor);
+        addScaled(dst.blues(), src.blues(), from, x1 - x0, factor);
+    }
+
+    default void multiplyRow(ColorBuffer dst, ColorBuffer src, int y, int x0, int x1) {
+        int from = dst.index(x0, y);
+        multiply(dst.reds(), src.reds(), from, x1 - x0);
+        multiply(dst.greens(), src.greens(), from, x1 - x0);
+        multiply(dst.blues(), src.blues(), from, x1 - x0);
+    }
+
+    default void scaleRow(ColorBuffer dst, int y, int x0, int x1, float factor) {
+        int from = dst.index(x0, y);
+        scale(dst.reds(), from, x1 - x0, factor);
+        scale(dst.greens(), from, x1 - x0, factor);
+        scale(dst.blues(), from, x1 - x0, factor);
+    }
+
+    default void packRow(ColorBuffer src, int y, int x0, int x1, int[] out, int outOffset) {
+        pack(src.reds(), src.greens(), src.blues(), src.index(x0, y), x1 - x0, out, outOffset);
+    }
+
+    /**
+     * Returns the Vector API compositor when the {@code jdk.incubator.vector} module is
+     * available (the JVM was started with {@code --add-modules jdk.incubator.vector}) and
+     * the vector classes are on the class path, otherwise the scalar one.
+     */
+    static ColorCompositor create() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (ColorCompositor) Class.forName(VECTOR_IMPLEMENTATION).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Fall through to the scalar loop
+            }
+        }
+        return new ScalarColorCompositor();
+    }
+}
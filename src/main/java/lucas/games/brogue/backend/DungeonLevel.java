@@ -1,39 +1,140 @@
 package lucas.games.brogue.backend;
 
+import lucas.games.brogue.backend.entities.Entity;
+import lucas.games.brogue.backend.entities.items.Item;
+import lucas.games.brogue.backend.systems.ShadowCaster;
+
 /**
  * Represents a single depth of the dungeon.
  * Contains the grid of tiles nad manages spatial lookups.
+ * <p>
+ *     Cell state is stored as a struct-of-arrays: one flat array per property, indexed by
+ *     {@code y * width + x} (see {@link ChunkedDungeonLevel} for the lazily allocated variant).
+ *     {@link Tile} objects are lightweight views onto a single cell, so whole-grid passes walk
+ *     contiguous primitive arrays instead of chasing pointers.
+ * </p>
+ * <p>
+ *     Terrain is layered (see {@link TerrainLayer}). Whenever a layer of a cell changes, the
+ *     cell's combined {@link TerrainFlags} word is recomputed, along with packed {@link BitGrid}
+ *     layers for opacity and passability (plus occupancy, kept in sync with occupants).
+ *     Hot paths (FOV, line of sight, movement) can then test cells with a single bit lookup.
+ * </p>
  */
 public class DungeonLevel {
 
+    // Cell flag bits
+    static final byte FLAG_VISIBLE  = 1;
+    static final byte FLAG_EXPLORED = 1 << 1;
+
+    // Levels with more cells than this are created with chunked storage
+    private static final int CHUNKED_THRESHOLD = 1 << 20;
+
+    private static final TerrainType[] TERRAIN_TYPES = TerrainType.values();
+
+    // Packed, pre-dimmed colour of each terrain type as shown from memory
+    private static final int[] TERRAIN_MEMORY_RGB = new int[TERRAIN_TYPES.length];
+
+    static {
+        for (TerrainType type : TERRAIN_TYPES) {
+            TERRAIN_MEMORY_RGB[type.ordinal()] = type.getColor().toRgbInt(RememberedMap.TERRAIN_DIM);
+        }
+    }
+
     private final int width;
     private final int height;
-    private final Tile[][] grid;
+
+    private final CellStorage cells;
+    private final FloorItemIndex floorItems;
+    private final OccupantIndex occupants;
+    private final RememberedMap memory;
+    private final StaticLightmap staticLight;
+    private RoomGraph roomGraph;
+
+    // Derived bit layers, kept in sync with the combined terrain flags and occupants
+    private final BitGrid opaque;
+    private final BitGrid passable;
+    private final BitGrid occupied;
+
+    // Bumped whenever cached vision may be stale: opacity changes and resets
+    private int opacityVersion;
+    // Bumped whenever the visible flag of every cell is wiped, by prepareTurn() or a reset
+    private int visibilityEpoch;
+    // Bumped whenever the passability of any cell may have changed, and on resets
+    private int passabilityVersion;
+    // Bumped on every reset, when the whole level is thrown away
+    private int resetCount;
+    // Bumped whenever all light is wiped, so lighting knows its contributions are gone
+    private int lightEpoch;
 
     /**
      * Creates a new empty dungeon level filled with Walls by default.
      * Standard Brogue size is typically 100x40.
      */
     public DungeonLevel(int width, int height) {
+        this(width, height, new FlatCellStorage(checkSize(width, height), height, TerrainType.WALL));
+    }
+
+    /**
+     * Rejects sizes whose coordinates would not fit {@link PackedPosition}, which the spatial
+     * indexes, path finding and ray tables all rely on. Called before any storage is allocated.
+     * @return the width, for use inside constructor calls.
+     */
+    static int checkSize(int width, int height) {
+        if (width > PackedPosition.MAX_EXTENT || height > PackedPosition.MAX_EXTENT) {
+            throw new IllegalArgumentException("A level of " + width + "x" + height
+                    + " is too large to pack its coordinates (at most " + PackedPosition.MAX_EXTENT + " per side)");
+        }
+        return width;
+    }
+
+    DungeonLevel(int width, int height, CellStorage cells) {
         this.width = width;
         this.height = height;
-        this.grid = new Tile[width][height];
+        this.cells = cells;
+        this.floorItems = new FloorItemIndex(width, height);
+        this.occupants = new OccupantIndex(width, height);
+        this.memory = new RememberedMap(width, height);
+        this.staticLight = new StaticLightmap(width, height);
+        this.opaque = new BitGrid(width, height);
+        this.passable = new BitGrid(width, height);
+        this.occupied = new BitGrid(width, height);
 
         initializeGrid();
     }
 
-    private void initializeGrid() {
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                // default to solid wall
-                grid[x][y] = new Tile(TerrainType.WALL);
-            }
+    /**
+     * Creates a level of the given size, switching to chunked storage for maps too big
+     * to allocate up front (see {@link ChunkedDungeonLevel}).
+     */
+    public static DungeonLevel create(int width, int height) {
+        if ((long) width * height > CHUNKED_THRESHOLD) {
+            return new ChunkedDungeonLevel(width, height);
         }
+        return new DungeonLevel(width, height);
+    }
+
+    private void initializeGrid() {
+        // default to solid wall
+        cells.reset();
+        floorItems.clear();
+        occupants.clear();
+        memory.clear();
+        staticLight.clear();
+        roomGraph = null;
+        opaque.fill(TerrainType.WALL.blocksLight());
+        passable.fill(TerrainType.WALL.isPassable());
+        occupied.fill(false);
+        opacityVersion++;
+        visibilityEpoch++;
+        passabilityVersion++;
+        lightEpoch++;
+        resetCount++;
     }
 
     /**
      * Wipes the level clean
-     * Replaces every tile with a fresh wall tile, removing all items, occupants, etc.
+     * Turns every cell back into a wall, removing all items, occupants, etc.
+     * The existing storage is reused, so no per-cell allocation takes place.
      */
     public void reset() {
         initializeGrid();
@@ -47,30 +148,232 @@ public class DungeonLevel {
         return height;
     }
 
+    /**
+     * Returns the sparse index of items lying on the floor of this level.
+     */
+    public FloorItemIndex getFloorItems() {
+        return floorItems;
+    }
+
+    /**
+     * Returns the spatial index of the creatures occupying cells of this level.
+     */
+    public OccupantIndex getOccupants() {
+        return occupants;
+    }
+
+    /**
+     * Returns the player's memory of this level, filled in as cells become visible.
+     */
+    public RememberedMap getRememberedMap() {
+        return memory;
+    }
+
+    /**
+     * Returns the light baked from this level's glowing terrain when it was generated.
+     * Lighting adds it to the light plane underneath the dynamic sources.
+     */
+    public StaticLightmap getStaticLightmap() {
+        return staticLight;
+    }
+
+    /**
+     * Returns the graph of rooms the generator left behind, or null if the level was not
+     * generated from rooms (or has been reset since).
+     */
+    public RoomGraph getRoomGraph() {
+        return roomGraph;
+    }
+
+    public void setRoomGraph(RoomGraph roomGraph) {
+        this.roomGraph = roomGraph;
+    }
+
     /**
      * Safely retrieves a tile at the given coordinates.
      * Returns null (or potentially a "Void" tile object future imp) if out of bounds.
+     * The returned tile is a view: changes made through it are written straight to the level.
      */
     public Tile getTile(int x, int y) {
         if (!isValidCoordinate(x, y)) {
             return null;
         }
-        return grid[x][y];
+        return new Tile(this, x, y);
     }
 
     public Tile getTile(Position pos) {
         return getTile(pos.x(), pos.y());
     }
 
+    /**
+     * Retrieves a tile by packed coordinate (see {@link PackedPosition}).
+     */
+    public Tile getTile(int packed) {
+        return getTile(PackedPosition.x(packed), PackedPosition.y(packed));
+    }
+
     /**
      * Sets a tile at a specific location.
+     * The state of the given tile (terrain, occupant, items, visibility) is copied into the cell.
      */
     public void setTile(int x, int y, Tile tile) {
         if (isValidCoordinate(x, y)) {
-            grid[x][y] = tile;
+            tile.copyTo(this, x, y);
         }
     }
 
+    /**
+     * Changes the terrain of a single cell in place, leaving occupants and items untouched.
+     * This writes the {@link TerrainLayer#DUNGEON} layer. Out of bounds coordinates are ignored.
+     */
+    public void setTerrain(int x, int y, TerrainType type) {
+        setLayer(x, y, TerrainLayer.DUNGEON, type);
+    }
+
+    /**
+     * Sets the terrain of one layer of a cell and recomputes the cell's combined flags.
+     * Passing null clears an upper layer; the dungeon layer cannot be cleared.
+     * Out of bounds coordinates are ignored.
+     */
+    public void setLayer(int x, int y, TerrainLayer layer, TerrainType type) {
+        if (!isValidCoordinate(x, y)) return;
+        if (type == null && layer == TerrainLayer.DUNGEON) {
+            throw new IllegalArgumentException("The dungeon layer cannot be empty");
+        }
+        cells.setLayer(layer.ordinal(), x, y, type == null ? CellStorage.EMPTY : (byte) type.ordinal());
+        refreshTerrainFlags(x, y);
+    }
+
+    /**
+     * Returns the terrain on one layer of a cell, or null if that layer is empty or out of bounds.
+     */
+    public TerrainType getLayer(int x, int y, TerrainLayer layer) {
+        if (!isValidCoordinate(x, y)) return null;
+        byte value = cells.layer(layer.ordinal(), x, y);
+        return value == CellStorage.EMPTY ? null : TERRAIN_TYPES[value];
+    }
+
+    /**
+     * Returns the terrain that should be drawn for a cell: the highest non-empty layer
+     * below gas (gas tints a cell rather than replacing its glyph).
+     */
+    public TerrainType getDisplayTerrain(int x, int y) {
+        if (!isValidCoordinate(x, y)) return null;
+        for (int layer = TerrainLayer.SURFACE.ordinal(); layer > 0; layer--) {
+            if (cells.hasLayer(layer)) {
+                byte value = cells.layer(layer, x, y);
+                if (value != CellStorage.EMPTY) return TERRAIN_TYPES[value];
+            }
+        }
+        return TERRAIN_TYPES[cells.layer(0, x, y)];
+    }
+
+    /**
+     * Returns the combined {@link TerrainFlags} of every layer of a cell.
+     * Cells outside the level obstruct both movement and vision.
+     */
+    public int getTerrainFlags(int x, int y) {
+        if (!isValidCoordinate(x, y)) {
+            return TerrainFlags.OBSTRUCTS_PASSABILITY | TerrainFlags.OBSTRUCTS_VISION;
+        }
+        return cells.terrainFlags(x, y);
+    }
+
+    public boolean hasTerrainFlag(int x, int y, int flag) {
+        return (getTerrainFlags(x, y) & flag) != 0;
+    }
+
+    /**
+     * Fills a rectangle of the dungeon layer with the given terrain. The rectangle is clipped to the level bounds.
+     */
+    public void fillRect(Rect rect, TerrainType type) {
+        int x0 = Math.max(0, rect.x());
+        int y0 = Math.max(0, rect.y());
+        int x1 = Math.min(width, rect.x2());
+        int y1 = Math.min(height, rect.y2());
+        if (x0 >= x1) return;
+
+        byte value = (byte) type.ordinal();
+        boolean upperLayers = hasUpperLayers();
+        for (int y = y0; y < y1; y++) {
+            cells.fillLayer(0, y, x0, x1, value);
+            if (upperLayers) {
+                for (int x = x0; x < x1; x++) {
+                    refreshTerrainFlags(x, y);
+                }
+            } else {
+                // Only the dungeon layer exists, so the whole span shares the terrain's flags
+                cells.fillTerrainFlags(y, x0, x1, (short) type.getFlags());
+                opaque.setRange(y, x0, x1, type.blocksLight());
+                opacityVersion++;
+                passable.setRange(y, x0, x1, type.isPassable());
+                passabilityVersion++;
+            }
+        }
+    }
+
+    private boolean hasUpperLayers() {
+        for (int layer = 1; layer < TerrainLayer.COUNT; layer++) {
+            if (cells.hasLayer(layer)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Recomputes the combined flag word of a cell from its layers, and the bit layers derived from it.
+     */
+    private void refreshTerrainFlags(int x, int y) {
+        int combined = TERRAIN_TYPES[cells.layer(0, x, y)].getFlags();
+        for (int layer = 1; layer < TerrainLayer.COUNT; layer++) {
+            if (cells.hasLayer(layer)) {
+                byte value = cells.layer(layer, x, y);
+                if (value != CellStorage.EMPTY) combined |= TERRAIN_TYPES[value].getFlags();
+            }
+        }
+        cells.setTerrainFlags(x, y, (short) combined);
+        boolean blocksVision = (combined & TerrainFlags.OBSTRUCTS_VISION) != 0;
+        if (opaque.get(x, y) != blocksVision) {
+            opaque.set(x, y, blocksVision);
+            opacityVersion++;
+        }
+        boolean canPass = (combined & TerrainFlags.OBSTRUCTS_PASSABILITY) == 0;
+        if (passable.get(x, y) != canPass) {
+            passable.set(x, y, canPass);
+            passabilityVersion++;
+        }
+    }
+
+    /**
+     * Carves a straight line of terrain between two points (both inclusive) using Bresenham's algorithm.
+     * Cells outside the level are skipped.
+     */
+    public void carveLine(int x0, int y0, int x1, int y1, TerrainType type) {
+        int dx = Math.abs(x1 - x0);
+        int dy = Math.abs(y1 - y0);
+        int sx = x0 < x1 ? 1 : -1;
+        int sy = y0 < y1 ? 1 : -1;
+        int err = dx - dy;
+
+        while (true) {
+            setTerrain(x0, y0, type);
+            if (x0 == x1 && y0 == y1) return;
+
+            int e2 = 2 * err;
+            if (e2 > -dy) {
+                err -= dy;
+                x0 += sx;
+            }
+            if (e2 < dx) {
+                err += dx;
+                y0 += sy;
+            }
+        }
+    }
+
+    public void carveLine(Position from, Position to, TerrainType type) {
+        carveLine(from.x(), from.y(), to.x(), to.y(), type);
+    }
+
     public boolean isValidCoordinate(int x, int y) {
         return x >= 0 && x < width && y >= 0 && y < height;
     }
@@ -79,14 +382,278 @@ public class DungeonLevel {
         return isValidCoordinate(pos.x(), pos.y());
     }
 
+    /**
+     * Bounds check for a packed coordinate (see {@link PackedPosition}).
+     */
+    public boolean isValidCoordinate(int packed) {
+        return isValidCoordinate(PackedPosition.x(packed), PackedPosition.y(packed));
+    }
+
+    // --- Area queries ---
+
+    /**
+     * Calls the visitor for every cell of a stencil centred on (x, y) that lies inside the level,
+     * row by row. Each row is clipped to the level once, so there is no per-cell bounds or distance test.
+     */
+    public void forEachInStencil(int x, int y, Stencil stencil, ShadowCaster.CellVisitor visitor) {
+        int radius = stencil.getRadius();
+        int y0 = Math.max(y - radius, 0);
+        int y1 = Math.min(y + radius, height - 1);
+        for (int cy = y0; cy <= y1; cy++) {
+            int halfWidth = stencil.halfWidth(cy - y);
+            int x0 = Math.max(x - halfWidth, 0);
+            int x1 = Math.min(x + halfWidth, width - 1);
+            for (int cx = x0; cx <= x1; cx++) {
+                visitor.visit(cx, cy);
+            }
+        }
+    }
+
+    /**
+     * Writes the packed position of every cell of a stencil centred on (x, y) that lies inside
+     * the level into {@code out}, in row-major order. {@code out} must hold {@link Stencil#size()} values.
+     * @return the number of cells written.
+     */
+    public int collectStencil(int x, int y, Stencil stencil, int[] out) {
+        int count = 0;
+        int radius = stencil.getRadius();
+        int y0 = Math.max(y - radius, 0);
+        int y1 = Math.min(y + radius, height - 1);
+        for (int cy = y0; cy <= y1; cy++) {
+            int halfWidth = stencil.halfWidth(cy - y);
+            int x0 = Math.max(x - halfWidth, 0);
+            int x1 = Math.min(x + halfWidth, width - 1);
+            for (int cx = x0; cx <= x1; cx++) {
+                out[count++] = PackedPosition.pack(cx, cy);
+            }
+        }
+        return count;
+    }
+
+    // --- Bit layer queries ---
+
+    /**
+     * Returns true if the cell blocks light. Cells outside the level are treated as opaque.
+     */
+    public boolean isOpaque(int x, int y) {
+        return !isValidCoordinate(x, y) || opaque.get(x, y);
+    }
+
+    /**
+     * Returns true if the terrain of the cell can be walked on. Cells outside the level are not passable.
+     */
+    public boolean isPassable(int x, int y) {
+        return isValidCoordinate(x, y) && passable.get(x, y);
+    }
+
+    /**
+     * Returns true if an entity is blocking the cell. Cells outside the level are never occupied.
+     */
+    public boolean isOccupied(int x, int y) {
+        return isValidCoordinate(x, y) && occupied.get(x, y);
+    }
+
+    /**
+     * Returns the entity standing on a cell, or null if there is none or the cell is out of bounds.
+     */
+    public Entity getOccupant(int x, int y) {
+        return isValidCoordinate(x, y) ? occupantAt(x, y) : null;
+    }
+
+    public boolean isOpaque(int packed) {
+        return isOpaque(PackedPosition.x(packed), PackedPosition.y(packed));
+    }
+
+    public boolean isPassable(int packed) {
+        return isPassable(PackedPosition.x(packed), PackedPosition.y(packed));
+    }
+
+    public boolean isOccupied(int packed) {
+        return isOccupied(PackedPosition.x(packed), PackedPosition.y(packed));
+    }
+
+    /**
+     * Returns the live opacity layer. Callers must treat it as read-only.
+     */
+    public BitGrid getOpacityGrid() { return opaque; }
+
+    /**
+     * Returns the live terrain passability layer. Callers must treat it as read-only.
+     */
+    public BitGrid getPassabilityGrid() { return passable; }
+
+    /**
+     * Returns the live occupancy layer. Callers must treat it as read-only.
+     */
+    public BitGrid getOccupancyGrid() { return occupied; }
+
     /**
      * Prepares the level for a new turn (clears temp lighting, effects, etc).
      */
     public void prepareTurn() {
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                grid[x][y].resetForTurn();
-            }
+        cells.clearFlagsAndLight(FLAG_VISIBLE);
+        visibilityEpoch++;
+        lightEpoch++;
+    }
+
+    // --- Light ---
+
+    /**
+     * Returns one channel (0 = red, 1 = green, 2 = blue) of the light on a cell.
+     */
+    public float getLight(int x, int y, int channel) {
+        return cells.light(x, y, channel);
+    }
+
+    /**
+     * Copies the light on a cell into a mutable colour, without creating a {@link BrogueColor}.
+     */
+    public MutableColor getLight(int x, int y, MutableColor out) {
+        return out.set(cells.light(x, y, 0), cells.light(x, y, 1), cells.light(x, y, 2));
+    }
+
+    /**
+     * Adds (or, with negative values, removes) light on a cell. Channels never drop below zero.
+     */
+    public void addLight(int x, int y, float r, float g, float b) {
+        cells.setLight(x, y,
+                Math.max(0.0f, cells.light(x, y, 0) + r),
+                Math.max(0.0f, cells.light(x, y, 1) + g),
+                Math.max(0.0f, cells.light(x, y, 2) + b));
+    }
+
+    /**
+     * A counter that changes whenever all light on the level is wiped (by {@link #prepareTurn()} or a reset).
+     */
+    public int getLightEpoch() {
+        return lightEpoch;
+    }
+
+    /**
+     * A counter that changes whenever the opacity of any cell changes or the level is reset.
+     * A field of view computed at one version is still valid as long as the version is unchanged.
+     */
+    public int getOpacityVersion() {
+        return opacityVersion;
+    }
+
+    /**
+     * A counter that changes whenever the visible flags of the whole level are wiped (by
+     * {@link #prepareTurn()} or a reset), so whoever marked them knows to mark them again.
+     */
+    public int getVisibilityEpoch() {
+        return visibilityEpoch;
+    }
+
+    /**
+     * A counter that changes whenever the level is reset, so caches of anything on it can be dropped outright.
+     */
+    public int getResetCount() {
+        return resetCount;
+    }
+
+    /**
+     * A counter that changes whenever the passability of any cell changes or the level is reset.
+     * A path planned at one version is still walkable as long as the version is unchanged.
+     */
+    public int getPassabilityVersion() {
+        return passabilityVersion;
+    }
+
+    public boolean isVisible(int x, int y) {
+        return isVisibleAt(x, y);
+    }
+
+    public boolean isExplored(int x, int y) {
+        return isExploredAt(x, y);
+    }
+
+    /**
+     * Marks a cell as visible (and explored) this turn, without creating a {@link Tile} view.
+     * Used by the FOV system for every lit cell.
+     */
+    public void markVisible(int x, int y) {
+        setVisibleAt(x, y, true);
+    }
+
+    /**
+     * Hides a single cell again. Used by the FOV system to clear only the cells it lit last time.
+     */
+    public void clearVisible(int x, int y) {
+        setVisibleAt(x, y, false);
+    }
+
+    // --- Cell storage (package-private, used by Tile views) ---
+
+    TerrainType terrainAt(int x, int y) {
+        return TERRAIN_TYPES[cells.layer(0, x, y)];
+    }
+
+    boolean isVisibleAt(int x, int y) {
+        return (cells.flags(x, y) & FLAG_VISIBLE) != 0;
+    }
+
+    boolean isExploredAt(int x, int y) {
+        return (cells.flags(x, y) & FLAG_EXPLORED) != 0;
+    }
+
+    void setVisibleAt(int x, int y, boolean visible) {
+        byte f = cells.flags(x, y);
+        if (visible) {
+            cells.setFlags(x, y, (byte) (f | FLAG_VISIBLE | FLAG_EXPLORED));
+            rememberCell(x, y);
+        } else if ((f & FLAG_VISIBLE) != 0) {
+            // Leaving view: remember the cell as it looks at this moment
+            rememberCell(x, y);
+            cells.setFlags(x, y, (byte) (f & ~FLAG_VISIBLE));
+        }
+    }
+
+    /**
+     * Stores what the player currently sees on a cell: the top item if any, otherwise the terrain.
+     * Creatures are not remembered.
+     */
+    private void rememberCell(int x, int y) {
+        Item top = floorItems.getTopItem(x, y);
+        if (top != null) {
+            memory.remember(x, y, top.getSymbol(), top.getColor().toRgbInt(RememberedMap.ITEM_DIM));
+        } else {
+            TerrainType terrain = getDisplayTerrain(x, y);
+            memory.remember(x, y, terrain.getSymbol(), TERRAIN_MEMORY_RGB[terrain.ordinal()]);
+        }
+    }
+
+    byte flagsAt(int x, int y) {
+        return cells.flags(x, y);
+    }
+
+    void setFlagsAt(int x, int y, byte value) {
+        cells.setFlags(x, y, value);
+    }
+
+    Entity occupantAt(int x, int y) {
+        return cells.occupant(x, y);
+    }
+
+    void setOccupantAt(int x, int y, Entity occupant) {
+        Entity previous = cells.occupant(x, y);
+        if (previous != occupant) {
+            if (previous != null) occupants.remove(x, y, previous);
+            if (occupant != null) occupants.add(x, y, occupant);
         }
+        cells.setOccupant(x, y, occupant);
+        occupied.set(x, y, occupant != null);
+    }
+
+    BrogueColor lightAt(int x, int y) {
+        float r = cells.light(x, y, 0);
+        float g = cells.light(x, y, 1);
+        float b = cells.light(x, y, 2);
+        if (r == 0.0f && g == 0.0f && b == 0.0f) return BrogueColor.BLACK;
+        return new BrogueColor(r, g, b);
+    }
+
+    void setLightAt(int x, int y, BrogueColor color) {
+        cells.setLight(x, y, (float) color.red(), (float) color.green(), (float) color.blue());
     }
 }
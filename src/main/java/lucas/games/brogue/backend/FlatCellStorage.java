@@ -0,0 +1,152 @@
+package lucas.games.brogue.backend;
+
+import lucas.games.brogue.backend.entities.Entity;
+
+import java.util.Arrays;
+
+/**
+ * Cell storage as one flat array per property, indexed by {@code y * width + x}.
+ * This is the default for normal sized levels.
+ */
+final class FlatCellStorage extends CellStorage {
+
+    private final byte[][] layers;          // One plane of TerrainType ordinals per layer
+    private final boolean[] layerUsed;
+    private final short[] terrainFlags;     // Combined TerrainFlags of all layers
+    private final byte[] flags;             // Visibility / memory bits
+    private final Entity[] occupants;       // The blocking entity on each cell (if any)
+
+    // Light as r,g,b triples. Allocated the first time any light is written.
+    private float[] light;
+
+    FlatCellStorage(int width, int height, TerrainType defaultTerrain) {
+        super(width, height, defaultTerrain);
+        int size = width * height;
+        this.layers = new byte[TerrainLayer.COUNT][];
+        this.layerUsed = new boolean[TerrainLayer.COUNT];
+        this.terrainFlags = new short[size];
+        this.flags = new byte[size];
+        this.occupants = new Entity[size];
+
+        // The dungeon layer always exists, upper layers are allocated when first used
+        layers[0] = new byte[size];
+        layerUsed[0] = true;
+        Arrays.fill(layers[0], this.defaultTerrain);
+        Arrays.fill(terrainFlags, defaultTerrainFlags);
+    }
+
+    private byte[] plane(int layer) {
+        byte[] plane = layers[layer];
+        if (plane == null) {
+            plane = new byte[width * height];
+            Arrays.fill(plane, EMPTY);
+            layers[layer] = plane;
+        }
+        layerUsed[layer] = true;
+        return plane;
+    }
+
+    @Override
+    byte layer(int layer, int x, int y) {
+        return layerUsed[layer] ? layers[layer][y * width + x] : defaultLayerValue(layer);
+    }
+
+    @Override
+    void setLayer(int layer, int x, int y, byte value) {
+        if (!layerUsed[layer] && value == defaultLayerValue(layer)) return;
+        plane(layer)[y * width + x] = value;
+    }
+
+    @Override
+    void fillLayer(int layer, int y, int x0, int x1, byte value) {
+        if (!layerUsed[layer] && value == defaultLayerValue(layer)) return;
+        int row = y * width;
+        Arrays.fill(plane(layer), row + x0, row + x1, value);
+    }
+
+    @Override
+    boolean hasLayer(int layer) {
+        return layerUsed[layer];
+    }
+
+    @Override
+    short terrainFlags(int x, int y) {
+        return terrainFlags[y * width + x];
+    }
+
+    @Override
+    void setTerrainFlags(int x, int y, short value) {
+        terrainFlags[y * width + x] = value;
+    }
+
+    @Override
+    void fillTerrainFlags(int y, int x0, int x1, short value) {
+        int row = y * width;
+        Arrays.fill(terrainFlags, row + x0, row + x1, value);
+    }
+
+    @Override
+    byte flags(int x, int y) {
+        return flags[y * width + x];
+    }
+
+    @Override
+    void setFlags(int x, int y, byte value) {
+        flags[y * width + x] = value;
+    }
+
+    @Override
+    Entity occupant(int x, int y) {
+        return occupants[y * width + x];
+    }
+
+    @Override
+    void setOccupant(int x, int y, Entity occupant) {
+        occupants[y * width + x] = occupant;
+    }
+
+    @Override
+    float light(int x, int y, int channel) {
+        return light == null ? 0.0f : light[(y * width + x) * 3 + channel];
+    }
+
+    @Override
+    void setLight(int x, int y, float r, float g, float b) {
+        if (light == null) {
+            if (r == 0.0f && g == 0.0f && b == 0.0f) return;
+            light = new float[width * height * 3];
+        }
+        int i = (y * width + x) * 3;
+        light[i]     = r;
+        light[i + 1] = g;
+        light[i + 2] = b;
+    }
+
+    @Override
+    void reset() {
+        Arrays.fill(layers[0], defaultTerrain);
+        for (int layer = 1; layer < layers.length; layer++) {
+            if (layerUsed[layer]) {
+                Arrays.fill(layers[layer], EMPTY);
+                layerUsed[layer] = false;
+            }
+        }
+        Arrays.fill(terrainFlags, defaultTerrainFlags);
+        Arrays.fill(flags, (byte) 0);
+        Arrays.fill(occupants, null);
+        if (light != null) {
+            Arrays.fill(light, 0.0f);
+        }
+    }
+
+    @Override
+    void clearFlagsAndLight(byte mask) {
+        byte[] f = flags;
+        for (int i = 0; i < f.length; i++) {
+            f[i] &= (byte) ~mask;
+        }
+        if (light != null) {
+            Arrays.fill(light, 0.0f);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package lucas.games.brogue.backend;
+
+import lucas.games.brogue.backend.entities.items.Item;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A sparse index of the items lying on the floor of a level.
+ * <p>
+ *     Only cells that actually hold items have a stack, kept in a {@link CellMap} keyed by the
+ *     cell's {@link PackedPosition}, so lookups never box a key. A parallel {@link BitGrid} marks those cells, so "is there
+ *     anything here?" is a single bit test and area queries scan whole words at a time.
+ * </p>
+ */
+public class FloorItemIndex {
+
+    private final int width;
+    private final int height;
+    private final CellMap<List<Item>> stacks;
+    private final BitGrid occupied;
+    private int itemCount;
+
+    public FloorItemIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.stacks = new CellMap<>();
+        this.occupied = new BitGrid(width, height);
+    }
+
+    /**
+     * Places an item on top of the stack at the given cell.
+     */
+    public void add(int x, int y, Item item) {
+        int key = PackedPosition.pack(x, y);
+        List<Item> stack = stacks.get(key);
+        if (stack == null) {
+            stack = new ArrayList<>(1);
+            stacks.put(key, stack);
+        }
+        stack.add(item);
+        occupied.set(x, y);
+        itemCount++;
+    }
+
+    /**
+     * Removes an item from the stack at the given cell.
+     * @return true if the item was there.
+     */
+    public boolean remove(int x, int y, Item item) {
+        if (!occupied.get(x, y)) return false;
+
+        int key = PackedPosition.pack(x, y);
+        List<Item> stack = stacks.get(key);
+        if (!stack.remove(item)) return false;
+
+        itemCount--;
+        if (stack.isEmpty()) {
+            stacks.remove(key);
+            occupied.clear(x, y);
+        }
+        return true;
+    }
+
+    /**
+     * Replaces the whole stack at a cell. An empty or null list clears the cell.
+     */
+    public void setStack(int x, int y, Collection<Item> items) {
+        boolean incoming = items != null && !items.isEmpty();
+        // Copying an empty tile onto an empty cell, the common case, leaves the map alone
+        if (!incoming && !occupied.get(x, y)) return;
+
+        int key = PackedPosition.pack(x, y);
+        List<Item> old = stacks.remove(key);
+        if (old != null) itemCount -= old.size();
+        occupied.clear(x, y);
+
+        if (incoming) {
+            stacks.put(key, new ArrayList<>(items));
+            occupied.set(x, y);
+            itemCount += items.size();
+        }
+    }
+
+    public boolean hasItems(int x, int y) {
+        return occupied.get(x, y);
+    }
+
+    /**
+     * Returns the item on top of the stack (the last one dropped), or null if the cell is empty.
+     */
+    public Item getTopItem(int x, int y) {
+        if (!occupied.get(x, y)) return null;
+        return stacks.get(PackedPosition.pack(x, y)).getLast();
+    }
+
+    /**
+     * Returns the stack at a cell, bottom first. The list is read-only.
+     */
+    public List<Item> getStack(int x, int y) {
+        if (!occupied.get(x, y)) return Collections.emptyList();
+        return Collections.unmodifiableList(stacks.get(PackedPosition.pack(x, y)));
+    }
+
+    /**
+     * Collects every item inside the rectangle (clipped to the level) into the given list.
+     * @return the number of items added.
+     */
+    public int collectInRect(Rect rect, List<Item> out) {
+        int x0 = Math.max(0, rect.x());
+        int y0 = Math.max(0, rect.y());
+        int x1 = Math.min(width, rect.x2());
+        int y1 = Math.min(height, rect.y2());
+
+        int added = 0;
+        for (int y = y0; y < y1; y++) {
+            for (int x = occupied.nextSetBit(y, x0); x >= 0 && x < x1; x = occupied.nextSetBit(y, x + 1)) {
+                List<Item> stack = stacks.get(PackedPosition.pack(x, y));
+                out.addAll(stack);
+                added += stack.size();
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Collects every item within the given (Euclidean) radius of a point into the given list.
+     * @return the number of items added.
+     */
+    public int collectInRadius(int cx, int cy, int radius, List<Item> out) {
+        int y0 = Math.max(0, cy - radius);
+        int y1 = Math.min(height - 1, cy + radius);
+        int x0 = Math.max(0, cx - radius);
+        int x1 = Math.min(width - 1, cx + radius);
+        int r2 = radius * radius;
+
+        int added = 0;
+        for (int y = y0; y <= y1; y++) {
+            int dy = y - cy;
+            for (int x = occupied.nextSetBit(y, x0); x >= 0 && x <= x1; x = occupied.nextSetBit(y, x + 1)) {
+                int dx = x - cx;
+                if (dx * dx + dy * dy > r2) continue;
+                List<Item> stack = stacks.get(PackedPosition.pack(x, y));
+                out.addAll(stack);
+                added += stack.size();
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Returns the live bit layer marking cells that hold items. Callers must treat it as read-only.
+     */
+    public BitGrid getOccupancyGrid() {
+        return occupied;
+    }
+
+    /**
+     * Total number of items on the floor.
+     */
+    public int size() {
+        return itemCount;
+    }
+
+    public void clear() {
+        stacks.clear();
+        occupied.fill(false);
+        itemCount = 0;
+    }
+}
@@ -2,11 +2,18 @@ package lucas.games.brogue.backend;
 
 import lucas.games.brogue.backend.entities.*;
 import lucas.games.brogue.backend.entities.items.Item;
+import lucas.games.brogue.backend.entities.items.Weapon;
 import lucas.games.brogue.backend.generators.DungeonGenerator;
 import lucas.games.brogue.backend.systems.AISystem;
 import lucas.games.brogue.backend.systems.FOVSystem;
+import lucas.games.brogue.backend.systems.LightingSystem;
+import lucas.games.brogue.backend.systems.LineOfSightIndex;
+import lucas.games.brogue.backend.systems.ProjectileSystem;
+import lucas.games.brogue.backend.systems.Trajectory;
+import lucas.games.brogue.backend.systems.VisibilityDelta;
 import lucas.games.brogue.backend.views.MessageLog;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,20 +23,40 @@ import java.util.List;
  */
 public class GameManager {
 
+    /** Radius of the player's torch. */
+    public static final int PLAYER_LIGHT_RADIUS = 9;
+
     private final DungeonLevel dungeonLevel;
+    private final EntityRegistry<Monster> monsters;
+    private final EntityRegistry<Item> items; // Items lying on the floor
     private final List<Entity> entities;
     private final FOVSystem fovSystem;
     private final AISystem aiSystem;
+    private final LightingSystem lightingSystem;
+    private final ProjectileSystem projectileSystem;
+    private final Trajectory trajectory;
     private final MessageLog messageLog;
     private Player player;
 
     private int currentDepth = 1;
 
+    // Longest view distance of any monster spawned on this level, so the AI only looks that far around the player
+    private int monsterReach;
+
+    // Optional all-pairs line of sight index, rebuilt after each level is generated
+    private boolean lineOfSightIndexEnabled;
+    private LineOfSightIndex lineOfSightIndex;
+
     public GameManager(int width, int height) {
-        this.dungeonLevel = new DungeonLevel(width, height);
-        this.entities = new ArrayList<>();
+        this.dungeonLevel = DungeonLevel.create(width, height);
+        this.monsters = new EntityRegistry<>();
+        this.items = new EntityRegistry<>();
+        this.entities = new EntityView();
         this.fovSystem = new FOVSystem();
         this.aiSystem = new AISystem();
+        this.lightingSystem = new LightingSystem();
+        this.projectileSystem = new ProjectileSystem();
+        this.trajectory = new Trajectory();
         this.messageLog = new MessageLog();
     }
 
@@ -40,7 +67,6 @@ public class GameManager {
     public void startNewGame(int seed) {
         this.currentDepth = 1;
         this.player = null;
-        this.entities.clear();
         generateLevel(seed);
 
         log("Started a new game.");
@@ -57,20 +83,26 @@ public class GameManager {
      * This replaces the current level geometry with a procedurally generated one.
      */
     private void generateLevel(int seed) {
-        // Clear entities list but KEEP the player if they exist
-        List<Entity> preservedEntities = new ArrayList<>();
-        if (this.player != null) {
-            preservedEntities.add(this.player);
+        // Clear the registries; the player is kept apart and survives the move
+        monsters.clear();
+        items.clear();
+        monsterReach = 0;
+
+        // Lights of creatures left behind go with them
+        lightingSystem.clearLights();
+        if (player != null && player.getLight() != null) {
+            lightingSystem.addLight(player.getLight());
         }
-        this.entities.clear();
-        this.entities.addAll(preservedEntities);
 
         DungeonGenerator generator = new DungeonGenerator(dungeonLevel, seed, currentDepth);
+        // The whole map changes, so the next view is a full refresh rather than a delta
+        fovSystem.invalidate();
 
         // Pass entities list to populate
         List<Entity> newEntities = new ArrayList<>();
 
         Position startPos = generator.generate(newEntities);
+        buildLineOfSightIndex();
 
         // Spawn generated loot
         for (Entity e : newEntities) {
@@ -84,10 +116,12 @@ public class GameManager {
             Tile t = dungeonLevel.getTile(startPos);
             t.setOccupant(player);
             player.setPosition(startPos);
+            if (player.getLight() != null) player.getLight().setPosition(startPos);
         }
 
         log("--- Depth " + currentDepth + " ---");
         updatePlayerFOV();
+        updateLighting();
         System.out.println(entities.toString());
     }
 
@@ -121,15 +155,15 @@ public class GameManager {
 
         // Create player
         this.player = new Player(pos);
+        player.setLight(new LightSource(pos, PLAYER_LIGHT_RADIUS, BrogueColor.TORCH_LIGHT));
+        lightingSystem.addLight(player.getLight());
 
         // Link to the grid
         Tile tile = dungeonLevel.getTile(pos);
         tile.setOccupant(this.player);
 
-        // Track in entity list
-        entities.add(this.player);
-
         updatePlayerFOV();
+        updateLighting();
     }
 
     /**
@@ -137,26 +171,40 @@ public class GameManager {
      * @return true if successful, false blocked.
      */
     public boolean spawnEntity(Entity entity, Position pos) {
+        if (!(entity instanceof Item) && !(entity instanceof Monster)) {
+            throw new IllegalArgumentException("Only monsters and items can be spawned: " + entity);
+        }
         if (!dungeonLevel.isValidCoordinate(pos)) return false;
 
         Tile tile = dungeonLevel.getTile(pos);
 
         // Basic collision check, don't spawn on walls or occupied tiles
-        if (!tile.getTerrain().isPassable()) return false;
+        if (!dungeonLevel.isPassable(pos.x(), pos.y())) return false;
 
         // Handle logic based on type
         if (entity instanceof Item) {
-            tile.addItem((Item) entity);
+            dungeonLevel.getFloorItems().add(pos.x(), pos.y(), (Item) entity);
         } else {
             // Creature/Blockers cannot spawn on top of each other
             if (tile.hasOccupant()) return false;
             // update grid state
             tile.setOccupant(entity);
+            if (entity instanceof Creature creature && creature.getLight() != null) {
+                creature.getLight().setPosition(pos);
+                lightingSystem.addLight(creature.getLight());
+            }
+            if (entity instanceof Monster monster) {
+                monsterReach = Math.max(monsterReach, monster.getViewDistance());
+            }
         }
 
         // update entity internal state
         entity.setPosition(pos);
-        entities.add(entity);
+        if (entity instanceof Item item) {
+            items.add(item);
+        } else {
+            monsters.add((Monster) entity);
+        }
 
         return true;
     }
@@ -167,22 +215,33 @@ public class GameManager {
      * @return true if the move was successful, false otherwise.
      */
     public boolean moveEntity(Entity entity, Position targetPos) {
-        if (!dungeonLevel.isValidCoordinate(targetPos)) {
+        return moveEntity(entity, targetPos.x(), targetPos.y(), targetPos);
+    }
+
+    /**
+     * Packed-coordinate variant of {@link #moveEntity(Entity, Position)} for hot paths.
+     * A Position is only created if the move actually happens.
+     */
+    public boolean moveEntity(Entity entity, int packedTarget) {
+        return moveEntity(entity, PackedPosition.x(packedTarget), PackedPosition.y(packedTarget), null);
+    }
+
+    private boolean moveEntity(Entity entity, int targetX, int targetY, Position targetPos) {
+        if (!dungeonLevel.isValidCoordinate(targetX, targetY)) {
             return false;
         }
 
-        Tile currentTile = dungeonLevel.getTile(entity.getPosition());
-        Tile targetTile = dungeonLevel.getTile(targetPos);
-
         // terrain check
-        if (!targetTile.getTerrain().isPassable()) {
+        if (!dungeonLevel.isPassable(targetX, targetY)) {
             if (entity == player) log("Blocked by wall.");
             return false; // hit a wall
         }
 
+        Tile targetTile = dungeonLevel.getTile(targetX, targetY);
+
         // occupant check (attack logic could go here)
         // Only check collision if we are moving a "Blocker" (like the Player)
-        // TODO: Implement throwing items, items might fly over entities
+        // Items are never moved through here; see throwItem for items in flight
         if (!(entity instanceof Item) && targetTile.hasOccupant()) {
             Entity occupant = targetTile.getOccupant();
 
@@ -200,12 +259,15 @@ public class GameManager {
         // Move logic
         if (!(entity instanceof Item)) {
             // Move the occupant reference
-            currentTile.setOccupant(null);
+            dungeonLevel.getTile(entity.getPosition()).setOccupant(null);
             targetTile.setOccupant(entity);
         }
 
         // update entity internal position
-        entity.setPosition(targetPos);
+        entity.setPosition(targetPos != null ? targetPos : new Position(targetX, targetY));
+        if (entity instanceof Creature creature && creature.getLight() != null) {
+            creature.getLight().setPosition(targetX, targetY);
+        }
 
         if (entity == player) {
             updatePlayerFOV();
@@ -216,8 +278,16 @@ public class GameManager {
     }
 
     private void handleCombat(Player attacker, Creature target) {
-        int rawDamage = attacker.getTotalDamage();
+        int finalDamage = applyPlayerDamage(attacker, target, attacker.getTotalDamage());
+        log("You hit the " + target.getName() + " for " + finalDamage + " damage.");
+        resolveDeath(attacker, target);
+    }
 
+    /**
+     * Applies damage dealt by the player after defense.
+     * @return the damage actually dealt.
+     */
+    private int applyPlayerDamage(Player attacker, Creature target, int rawDamage) {
         // Defense calculation
         int defense = 0;
         // TODO: In future if monsters wear armor, place here
@@ -225,8 +295,13 @@ public class GameManager {
         int finalDamage = Math.max(1, rawDamage - defense);
 
         target.takeDamage(finalDamage);
-        log("You hit the " + target.getName() + " for " + finalDamage + " damage.");
+        return finalDamage;
+    }
 
+    /**
+     * Awards experience and removes the target from the level if the player's attack killed it.
+     */
+    private void resolveDeath(Player attacker, Creature target) {
         if (target.isDead()) {
             log ("The " + target.getName() + " dies.");
 
@@ -245,8 +320,13 @@ public class GameManager {
                 tile.setOccupant(null);
             }
 
-            // Remove from entity list
-            entities.remove(target);
+            // Leaves the registry at the end of the phase, so loops over monsters are not disturbed
+            if (target instanceof Monster monster) {
+                monsters.requestRemoval(monster);
+            }
+            if (target.getLight() != null) {
+                lightingSystem.removeLight(target.getLight());
+            }
         }
     }
 
@@ -280,22 +360,21 @@ public class GameManager {
         if (player == null) return false;
 
         Position pos = player.getPosition();
-        Tile tile = dungeonLevel.getTile(pos);
+        FloorItemIndex floorItems = dungeonLevel.getFloorItems();
 
-        if (!tile.hasItems()) {
+        Item item = floorItems.getTopItem(pos.x(), pos.y());
+        if (item == null) {
             log("There is nothing to pick up.");
             return false; // Nothing to pick up
         }
 
-        Item item = tile.getTopItem();
         Inventory inv = player.getInventory();
 
         if (inv.add(item)) {
             // Success - remove from world
-            tile.removeItem(item);
-            // Technically, it should be removed from the entities list too
-            // to stop the engine from tracking it as a map object
-            entities.remove(item);
+            floorItems.remove(pos.x(), pos.y(), item);
+            // Stop tracking it as a map object
+            items.remove(item);
             log("You pick up the " + item.getName() + ".");
             processTurn();
             return true;
@@ -306,6 +385,51 @@ public class GameManager {
         return false; // Inventory full or other failure
     }
 
+    /**
+     * The Player throws an item from their inventory towards a target cell.
+     * The item flies until it hits a wall or a creature, or reaches the target (see {@link ProjectileSystem}),
+     * then lands on the floor. Thrown weapons damage the creature they hit. Throwing takes a turn.
+     * @param index The slot index (0-25).
+     * @return true if an item was thrown.
+     */
+    public boolean throwItem(int index, Position target) {
+        if (player == null) return false;
+
+        Inventory inv = player.getInventory();
+        Item item = inv.get(index);
+        if (item == null) {
+            log("No item in that slot.");
+            return false;
+        }
+
+        // Let go of it first if it is wielded or worn
+        if (item == player.getEquippedWeapon() || item == player.getEquippedArmor()) {
+            player.equip(item);
+        }
+        inv.remove(item);
+
+        Position from = player.getPosition();
+        projectileSystem.throwItem(dungeonLevel, item, from.x(), from.y(), target.x(), target.y(), trajectory);
+        items.add(item);
+        log("You throw the " + item.getName() + ".");
+
+        if (trajectory.hitOccupant()) {
+            Entity occupant = dungeonLevel.getTile(trajectory.getLanding()).getOccupant();
+            if (occupant instanceof Creature creature) {
+                if (item instanceof Weapon weapon) {
+                    int finalDamage = applyPlayerDamage(player, creature, player.getBaseDamage() + weapon.getDamageBonus());
+                    log("The " + item.getName() + " hits the " + creature.getName() + " for " + finalDamage + " damage.");
+                    resolveDeath(player, creature);
+                } else {
+                    log("The " + item.getName() + " bounces off the " + creature.getName() + ".");
+                }
+            }
+        }
+
+        processTurn();
+        return true;
+    }
+
     /**
      * Uses an item from the player's inventory.
      * @param index The slot index (0-25).
@@ -335,11 +459,49 @@ public class GameManager {
         return message;
     }
 
+    /**
+     * Enables the precomputed line of sight index (see {@link LineOfSightIndex}). It is built
+     * after each level is generated, for levels no larger than {@link LineOfSightIndex#MAX_CELLS}.
+     */
+    public void setLineOfSightIndexEnabled(boolean enabled) {
+        this.lineOfSightIndexEnabled = enabled;
+        buildLineOfSightIndex();
+    }
+
+    /**
+     * Returns the line of sight index of the current level, or null if it is disabled or the level is too large.
+     */
+    public LineOfSightIndex getLineOfSightIndex() { return lineOfSightIndex; }
+
+    private void buildLineOfSightIndex() {
+        boolean fits = (long) dungeonLevel.getWidth() * dungeonLevel.getHeight() <= LineOfSightIndex.MAX_CELLS;
+        lineOfSightIndex = lineOfSightIndexEnabled && fits ? LineOfSightIndex.build(dungeonLevel) : null;
+    }
+
     /**
      * Executes the enemy turn.
      */
     private void processTurn() {
+        // Deaths caused by the player's action take effect before the monsters act
+        endPhase();
         aiSystem.processMonsters(this);
+        endPhase();
+        updateLighting();
+    }
+
+    /**
+     * Applies the registry removals requested during a phase.
+     */
+    private void endPhase() {
+        monsters.flushRemovals();
+        items.flushRemovals();
+    }
+
+    /**
+     * Relights the level for sources that moved or changed.
+     */
+    private void updateLighting() {
+        lightingSystem.update(dungeonLevel);
     }
 
     /**
@@ -352,9 +514,70 @@ public class GameManager {
         }
     }
 
+    /**
+     * Returns the cells that entered or left the player's view during the last FOV update,
+     * so renderers and remote clients can redraw only what changed.
+     */
+    public VisibilityDelta getVisibilityDelta() { return fovSystem.getDelta(); }
+
+    /**
+     * The player's FOV system; its visibility buffer is shared with the AI for symmetric sight checks.
+     */
+    public FOVSystem getFovSystem() { return fovSystem; }
+
+    public AISystem getAISystem() { return aiSystem; }
+
+    public LightingSystem getLightingSystem() { return lightingSystem; }
+
     public DungeonLevel getDungeonLevel() { return dungeonLevel; }
 
     public Player getPlayer() { return player; }
 
+    /**
+     * The longest view distance of any monster spawned on the current level.
+     * Monsters further than this from the player cannot notice them.
+     */
+    public int getMonsterReach() { return monsterReach; }
+
+    /**
+     * The monsters on the current level, including any killed during the current phase.
+     */
+    public EntityRegistry<Monster> getMonsters() { return monsters; }
+
+    /**
+     * The items lying on the floor of the current level.
+     */
+    public EntityRegistry<Item> getItems() { return items; }
+
+    /**
+     * Every entity on the level: the player, then the monsters, then the items on the floor.
+     * A read-only live view over the registries.
+     */
     public List<Entity> getEntities() { return entities; }
+
+    private class EntityView extends AbstractList<Entity> {
+
+        @Override
+        public Entity get(int index) {
+            int playerCount = player != null ? 1 : 0;
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size());
+            }
+            if (index < playerCount) return player;
+            index -= playerCount;
+            if (index < monsters.size()) return monsters.get(index);
+            return items.get(index - monsters.size());
+        }
+
+        @Override
+        public int size() {
+            return (player != null ? 1 : 0) + monsters.size() + items.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o == player && o != null) return true;
+            return o instanceof Entity entity && (monsters.contains(entity) || items.contains(entity));
+        }
+    }
 }
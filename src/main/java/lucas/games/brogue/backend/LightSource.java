@@ -0,0 +1,72 @@
+package lucas.games.brogue.backend;
+
+/**
+ * A point light: a torch, a glowing creature or a luminous patch of terrain.
+ * <p>
+ *     Light falls off linearly from full strength at the source to nothing at the radius, and
+ *     is blocked by opaque cells. Colour channels may exceed 1.0 for very bright lights.
+ *     Every change bumps a version number, which lets the lighting system relight only the
+ *     sources that actually changed.
+ * </p>
+ */
+public final class LightSource {
+
+    private int x;
+    private int y;
+    private int radius;
+    private float red;
+    private float green;
+    private float blue;
+    private int version;
+
+    public LightSource(int x, int y, int radius, BrogueColor color) {
+        this.x = x;
+        this.y = y;
+        this.radius = radius;
+        setColorChannels(color);
+    }
+
+    public LightSource(Position position, int radius, BrogueColor color) {
+        this(position.x(), position.y(), radius, color);
+    }
+
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getRadius() { return radius; }
+    public float getRed() { return red; }
+    public float getGreen() { return green; }
+    public float getBlue() { return blue; }
+
+    /**
+     * Incremented on every change to the light.
+     */
+    public int getVersion() { return version; }
+
+    public void setPosition(int x, int y) {
+        if (x == this.x && y == this.y) return;
+        this.x = x;
+        this.y = y;
+        version++;
+    }
+
+    public void setPosition(Position position) {
+        setPosition(position.x(), position.y());
+    }
+
+    public void setRadius(int radius) {
+        if (radius == this.radius) return;
+        this.radius = radius;
+        version++;
+    }
+
+    public void setColor(BrogueColor color) {
+        setColorChannels(color);
+        version++;
+    }
+
+    private void setColorChannels(BrogueColor color) {
+        this.red = (float) color.red();
+        this.green = (float) color.green();
+        this.blue = (float) color.blue();
+    }
+}
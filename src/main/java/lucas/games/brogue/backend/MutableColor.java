@@ -0,0 +1,129 @@
+package lucas.games.brogue.backend;
+
+/**
+ * A floating point colour that is modified in place, for accumulating light and blending
+ * in hot loops without allocating a {@link BrogueColor} per operation.
+ * <p>
+ *     Every operation returns {@code this} so calls can be chained. Like {@link BrogueColor},
+ *     channels may go above 1.0 until {@link #clamp()} or {@link #toRgbInt()}.
+ *     Instances are not thread safe; keep one per thread or per loop.
+ * </p>
+ */
+public final class MutableColor {
+
+    private float r;
+    private float g;
+    private float b;
+
+    public MutableColor() {
+    }
+
+    public MutableColor(float r, float g, float b) {
+        set(r, g, b);
+    }
+
+    public float red() { return r; }
+    public float green() { return g; }
+    public float blue() { return b; }
+
+    public MutableColor set(float r, float g, float b) {
+        this.r = r;
+        this.g = g;
+        this.b = b;
+        return this;
+    }
+
+    public MutableColor set(BrogueColor color) {
+        return set((float) color.red(), (float) color.green(), (float) color.blue());
+    }
+
+    public MutableColor set(MutableColor color) {
+        return set(color.r, color.g, color.b);
+    }
+
+    /**
+     * Sets this colour from a packed {@code 0xRRGGBB} value.
+     */
+    public MutableColor setRgb(int rgb) {
+        return set(PackedColor.red(rgb) / 255.0f, PackedColor.green(rgb) / 255.0f, PackedColor.blue(rgb) / 255.0f);
+    }
+
+    public MutableColor add(float r, float g, float b) {
+        this.r += r;
+        this.g += g;
+        this.b += b;
+        return this;
+    }
+
+    public MutableColor add(BrogueColor color) {
+        return add((float) color.red(), (float) color.green(), (float) color.blue());
+    }
+
+    /**
+     * Adds another colour scaled by a factor, e.g. a light's colour times its falloff.
+     */
+    public MutableColor addScaled(BrogueColor color, float factor) {
+        return add((float) color.red() * factor, (float) color.green() * factor, (float) color.blue() * factor);
+    }
+
+    public MutableColor scale(float factor) {
+        r *= factor;
+        g *= factor;
+        b *= factor;
+        return this;
+    }
+
+    /**
+     * Multiplies each channel by the matching channel of a light, e.g. to tint a terrain colour.
+     */
+    public MutableColor multiply(float lightR, float lightG, float lightB) {
+        r *= lightR;
+        g *= lightG;
+        b *= lightB;
+        return this;
+    }
+
+    /**
+     * Moves this colour towards a target.
+     * @param percent The share of the target (0.0 = unchanged, 1.0 = target).
+     */
+    public MutableColor lerp(BrogueColor target, float percent) {
+        r += ((float) target.red() - r) * percent;
+        g += ((float) target.green() - g) * percent;
+        b += ((float) target.blue() - b) * percent;
+        return this;
+    }
+
+    /**
+     * Raises every channel to at least the given value.
+     */
+    public MutableColor atLeast(float floor) {
+        r = Math.max(floor, r);
+        g = Math.max(floor, g);
+        b = Math.max(floor, b);
+        return this;
+    }
+
+    public MutableColor clamp() {
+        r = Math.min(1.0f, Math.max(0.0f, r));
+        g = Math.min(1.0f, Math.max(0.0f, g));
+        b = Math.min(1.0f, Math.max(0.0f, b));
+        return this;
+    }
+
+    /**
+     * Packs the clamped colour as {@code 0xRRGGBB} without modifying it.
+     */
+    public int toRgbInt() {
+        return PackedColor.pack(r, g, b);
+    }
+
+    public BrogueColor toBrogueColor() {
+        return new BrogueColor(r, g, b);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MutableColor[%.2f, %.2f, %.2f]", r, g, b);
+    }
+}
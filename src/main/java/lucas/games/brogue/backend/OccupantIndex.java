@@ -0,0 +1,267 @@
+package lucas.games.brogue.backend;
+
+import lucas.games.brogue.backend.entities.Entity;
+import lucas.games.brogue.backend.entities.Monster;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A uniform-grid spatial index of the entities occupying cells of a level (the player and monsters).
+ * <p>
+ *     The level is cut into {@value #BUCKET_SIZE}x{@value #BUCKET_SIZE} buckets, each holding
+ *     its occupants and their packed cells in small parallel arrays that are allocated on
+ *     first use. Neighbourhood queries only visit the buckets overlapping the area asked for,
+ *     so their cost follows the number of creatures nearby rather than the size of the level.
+ *     {@link DungeonLevel} keeps the index in step with its occupants, so every spawn, move
+ *     and death that goes through a tile is reflected here.
+ * </p>
+ * <p>
+ *     Queries write into lists supplied by the caller, which can be reused from turn to turn.
+ *     Monsters are also kept in a typed column beside the entities, filled in once when they
+ *     are added, so monster queries hand out {@link Monster} references without any checks.
+ *     Items on the floor are indexed separately by {@link FloorItemIndex}.
+ * </p>
+ */
+public class OccupantIndex {
+
+    static final int BUCKET_SHIFT = 3;
+    static final int BUCKET_SIZE = 1 << BUCKET_SHIFT;
+
+    private final int width;
+    private final int height;
+    private final int bucketsX;
+    private final int bucketsY;
+    private final Entity[][] bucketEntities;
+    // The same occupants where they are monsters, null otherwise
+    private final Monster[][] bucketMonsters;
+    private final int[][] bucketCells;
+    private final int[] bucketSizes;
+    private int count;
+
+    // Scratch for nearest-neighbour queries, best first
+    private Entity[] nearest = new Entity[8];
+    private int[] nearestDistances = new int[8];
+
+    public OccupantIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.bucketsX = (width + BUCKET_SIZE - 1) >> BUCKET_SHIFT;
+        this.bucketsY = (height + BUCKET_SIZE - 1) >> BUCKET_SHIFT;
+        this.bucketEntities = new Entity[bucketsX * bucketsY][];
+        this.bucketMonsters = new Monster[bucketsX * bucketsY][];
+        this.bucketCells = new int[bucketsX * bucketsY][];
+        this.bucketSizes = new int[bucketsX * bucketsY];
+    }
+
+    private int bucket(int x, int y) {
+        return (y >> BUCKET_SHIFT) * bucketsX + (x >> BUCKET_SHIFT);
+    }
+
+    /**
+     * Records an entity on a cell.
+     */
+    public void add(int x, int y, Entity entity) {
+        int b = bucket(x, y);
+        int size = bucketSizes[b];
+        if (bucketEntities[b] == null) {
+            bucketEntities[b] = new Entity[4];
+            bucketMonsters[b] = new Monster[4];
+            bucketCells[b] = new int[4];
+        } else if (size == bucketEntities[b].length) {
+            bucketEntities[b] = Arrays.copyOf(bucketEntities[b], size * 2);
+            bucketMonsters[b] = Arrays.copyOf(bucketMonsters[b], size * 2);
+            bucketCells[b] = Arrays.copyOf(bucketCells[b], size * 2);
+        }
+        bucketEntities[b][size] = entity;
+        bucketMonsters[b][size] = entity instanceof Monster monster ? monster : null;
+        bucketCells[b][size] = PackedPosition.pack(x, y);
+        bucketSizes[b] = size + 1;
+        count++;
+    }
+
+    /**
+     * Forgets an entity on a cell. The last entry of the bucket takes its place.
+     * @return true if the entity was recorded there.
+     */
+    public boolean remove(int x, int y, Entity entity) {
+        int b = bucket(x, y);
+        int size = bucketSizes[b];
+        int cell = PackedPosition.pack(x, y);
+        Entity[] entities = bucketEntities[b];
+        Monster[] monsters = bucketMonsters[b];
+        int[] cells = bucketCells[b];
+        for (int i = 0; i < size; i++) {
+            if (entities[i] != entity || cells[i] != cell) continue;
+
+            int last = size - 1;
+            entities[i] = entities[last];
+            monsters[i] = monsters[last];
+            cells[i] = cells[last];
+            entities[last] = null;
+            monsters[last] = null;
+            bucketSizes[b] = last;
+            count--;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Collects every entity inside the rectangle (clipped to the level) into the given list.
+     * @return the number of entities added.
+     */
+    public int collectInRect(Rect rect, List<Entity> out) {
+        int x0 = Math.max(0, rect.x());
+        int y0 = Math.max(0, rect.y());
+        int x1 = Math.min(width, rect.x2()) - 1;
+        int y1 = Math.min(height, rect.y2()) - 1;
+        if (x0 > x1 || y0 > y1) return 0;
+
+        int added = 0;
+        for (int by = y0 >> BUCKET_SHIFT; by <= y1 >> BUCKET_SHIFT; by++) {
+            for (int bx = x0 >> BUCKET_SHIFT; bx <= x1 >> BUCKET_SHIFT; bx++) {
+                int b = by * bucketsX + bx;
+                for (int i = 0; i < bucketSizes[b]; i++) {
+                    int x = PackedPosition.x(bucketCells[b][i]);
+                    int y = PackedPosition.y(bucketCells[b][i]);
+                    if (x < x0 || x > x1 || y < y0 || y > y1) continue;
+                    out.add(bucketEntities[b][i]);
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Collects every entity within the given (Euclidean) radius of a point into the given list.
+     * @return the number of entities added.
+     */
+    public int collectInRadius(int cx, int cy, int radius, List<Entity> out) {
+        return collectInRadius(cx, cy, radius, bucketEntities, out);
+    }
+
+    /**
+     * Collects every monster within the given (Euclidean) radius of a point into the given list.
+     * @return the number of monsters added.
+     */
+    public int collectMonstersInRadius(int cx, int cy, int radius, List<Monster> out) {
+        return collectInRadius(cx, cy, radius, bucketMonsters, out);
+    }
+
+    /**
+     * Collects the non-null entries of one of the bucket columns within a radius.
+     */
+    private <T extends Entity> int collectInRadius(int cx, int cy, int radius, T[][] column, List<T> out) {
+        int x0 = Math.max(0, cx - radius);
+        int y0 = Math.max(0, cy - radius);
+        int x1 = Math.min(width - 1, cx + radius);
+        int y1 = Math.min(height - 1, cy + radius);
+        if (x0 > x1 || y0 > y1) return 0;
+        int r2 = radius * radius;
+
+        int added = 0;
+        for (int by = y0 >> BUCKET_SHIFT; by <= y1 >> BUCKET_SHIFT; by++) {
+            for (int bx = x0 >> BUCKET_SHIFT; bx <= x1 >> BUCKET_SHIFT; bx++) {
+                int b = by * bucketsX + bx;
+                for (int i = 0; i < bucketSizes[b]; i++) {
+                    T entity = column[b][i];
+                    if (entity == null) continue;
+                    int dx = PackedPosition.x(bucketCells[b][i]) - cx;
+                    int dy = PackedPosition.y(bucketCells[b][i]) - cy;
+                    if (dx * dx + dy * dy > r2) continue;
+                    out.add(entity);
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Collects up to {@code k} entities within the given radius of a point, nearest first.
+     * Buckets are visited in growing rings, and the search stops as soon as no unvisited
+     * bucket can hold anything closer than the k-th entity found.
+     * @param exclude An entity to skip (typically the one asking), or null.
+     * @return the number of entities added.
+     */
+    public int collectNearest(int cx, int cy, int k, int radius, Entity exclude, List<Entity> out) {
+        if (k <= 0 || count == 0) return 0;
+        if (nearest.length < k) {
+            nearest = new Entity[k];
+            nearestDistances = new int[k];
+        }
+        int found = 0;
+        int r2 = radius * radius;
+
+        int cbx = Math.clamp(cx >> BUCKET_SHIFT, 0, bucketsX - 1);
+        int cby = Math.clamp(cy >> BUCKET_SHIFT, 0, bucketsY - 1);
+        int maxRing = (radius >> BUCKET_SHIFT) + 1;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Every cell of this ring is at least (ring - 1) whole buckets away from the point
+            int bound = Math.max(0, (ring - 1) << BUCKET_SHIFT) + 1;
+            if (ring > 0 && (found == k ? bound * bound > nearestDistances[k - 1] : bound * bound > r2)) break;
+
+            for (int by = cby - ring; by <= cby + ring; by++) {
+                if (by < 0 || by >= bucketsY) continue;
+                boolean edgeRow = by == cby - ring || by == cby + ring;
+                for (int bx = cbx - ring; bx <= cbx + ring; bx += edgeRow ? 1 : 2 * ring) {
+                    if (bx >= 0 && bx < bucketsX) {
+                        found = offerBucket(by * bucketsX + bx, cx, cy, k, r2, exclude, found);
+                    }
+                    if (ring == 0) break;
+                }
+            }
+        }
+
+        for (int i = 0; i < found; i++) {
+            out.add(nearest[i]);
+            nearest[i] = null;
+        }
+        return found;
+    }
+
+    /**
+     * Inserts the entities of a bucket into the sorted nearest list.
+     * @return the new length of the list.
+     */
+    private int offerBucket(int b, int cx, int cy, int k, int r2, Entity exclude, int found) {
+        for (int i = 0; i < bucketSizes[b]; i++) {
+            Entity entity = bucketEntities[b][i];
+            if (entity == exclude) continue;
+            int dx = PackedPosition.x(bucketCells[b][i]) - cx;
+            int dy = PackedPosition.y(bucketCells[b][i]) - cy;
+            int d = dx * dx + dy * dy;
+            if (d > r2 || (found == k && d >= nearestDistances[k - 1])) continue;
+
+            int slot = found < k ? found++ : k - 1;
+            while (slot > 0 && nearestDistances[slot - 1] > d) {
+                nearest[slot] = nearest[slot - 1];
+                nearestDistances[slot] = nearestDistances[slot - 1];
+                slot--;
+            }
+            nearest[slot] = entity;
+            nearestDistances[slot] = d;
+        }
+        return found;
+    }
+
+    /**
+     * Total number of entities in the index.
+     */
+    public int size() {
+        return count;
+    }
+
+    public void clear() {
+        for (int b = 0; b < bucketSizes.length; b++) {
+            if (bucketSizes[b] > 0) {
+                Arrays.fill(bucketEntities[b], 0, bucketSizes[b], null);
+                Arrays.fill(bucketMonsters[b], 0, bucketSizes[b], null);
+                bucketSizes[b] = 0;
+            }
+        }
+        count = 0;
+    }
+}
@@ -0,0 +1,78 @@
+package lucas.games.brogue.backend;
+
+/**
+ * Static helpers for display colours packed into a single {@code int} as {@code 0xRRGGBB}.
+ * <p>
+ *     {@link BrogueColor} stays the public value type for HDR colour maths, but colours that
+ *     are already clamped for display (remembered cells, render buffers) can be kept and
+ *     blended packed, without allocating a colour object per cell. Channels are 0-255.
+ * </p>
+ */
+public final class PackedColor {
+
+    public static final int BLACK = 0x000000;
+    public static final int WHITE = 0xFFFFFF;
+
+    private PackedColor() {
+    }
+
+    /**
+     * Packs floating point channels, clamping each to 0.0-1.0 first.
+     * Gives the same result as {@link BrogueColor#toRgbInt()}.
+     */
+    public static int pack(double r, double g, double b) {
+        return (toByte(r) << 16) | (toByte(g) << 8) | toByte(b);
+    }
+
+    /**
+     * Packs 0-255 channels, clamping each to that range.
+     */
+    public static int packBytes(int r, int g, int b) {
+        return (clampByte(r) << 16) | (clampByte(g) << 8) | clampByte(b);
+    }
+
+    private static int toByte(double channel) {
+        return (int) (Math.min(1.0, Math.max(0.0, channel)) * 255.0);
+    }
+
+    private static int clampByte(int channel) {
+        return Math.min(255, Math.max(0, channel));
+    }
+
+    public static int red(int rgb) {
+        return (rgb >> 16) & 0xFF;
+    }
+
+    public static int green(int rgb) {
+        return (rgb >> 8) & 0xFF;
+    }
+
+    public static int blue(int rgb) {
+        return rgb & 0xFF;
+    }
+
+    /**
+     * Interpolates between two packed colours.
+     * @param percent The share of {@code to} (0.0 = from, 1.0 = to).
+     */
+    public static int lerp(int from, int to, double percent) {
+        return packBytes(
+                (int) (red(from) + (red(to) - red(from)) * percent),
+                (int) (green(from) + (green(to) - green(from)) * percent),
+                (int) (blue(from) + (blue(to) - blue(from)) * percent));
+    }
+
+    /**
+     * Scales the brightness of a packed colour. The result saturates at white.
+     */
+    public static int scale(int rgb, double factor) {
+        return packBytes((int) (red(rgb) * factor), (int) (green(rgb) * factor), (int) (blue(rgb) * factor));
+    }
+
+    /**
+     * Adds two packed colours, saturating each channel at 255.
+     */
+    public static int add(int a, int b) {
+        return packBytes(red(a) + red(b), green(a) + green(b), blue(a) + blue(b));
+    }
+}
@@ -0,0 +1,100 @@
+package lucas.games.brogue.backend;
+
+/**
+ * Static helpers for coordinates packed into a single {@code int}.
+ * <p>
+ *     {@link Position} stays the readable public API, but hot loops (neighbour probes,
+ *     pathing, map keys) can use packed coordinates to avoid allocating a record per cell.
+ *     The low 16 bits hold x and the high 16 bits hold y, both as signed values, so
+ *     coordinates in the range -32768..32767 round-trip exactly.
+ * </p>
+ */
+public final class PackedPosition {
+
+    /** Largest width or height of a grid whose cells all pack: coordinates run up to 32767. */
+    public static final int MAX_EXTENT = Short.MAX_VALUE + 1;
+
+    /** Number of neighbouring directions (including diagonals). */
+    public static final int DIRECTION_COUNT = 8;
+
+    // Neighbour offsets, ordered by dx then dy
+    private static final int[] DIRECTION_DX = {-1, -1, -1,  0, 0,  1, 1, 1};
+    private static final int[] DIRECTION_DY = {-1,  0,  1, -1, 1, -1, 0, 1};
+
+    private PackedPosition() {
+    }
+
+    public static int pack(int x, int y) {
+        return (y << 16) | (x & 0xFFFF);
+    }
+
+    public static int pack(Position pos) {
+        return pack(pos.x(), pos.y());
+    }
+
+    public static int x(int packed) {
+        return (short) packed;
+    }
+
+    public static int y(int packed) {
+        return packed >> 16;
+    }
+
+    public static Position toPosition(int packed) {
+        return new Position(x(packed), y(packed));
+    }
+
+    /**
+     * Returns the packed coordinate offset by dx and dy.
+     */
+    public static int offset(int packed, int dx, int dy) {
+        return pack(x(packed) + dx, y(packed) + dy);
+    }
+
+    /**
+     * Returns the neighbouring coordinate in the given direction (0 to {@link #DIRECTION_COUNT} - 1).
+     */
+    public static int neighbor(int packed, int direction) {
+        return pack(x(packed) + DIRECTION_DX[direction], y(packed) + DIRECTION_DY[direction]);
+    }
+
+    public static int directionDx(int direction) {
+        return DIRECTION_DX[direction];
+    }
+
+    public static int directionDy(int direction) {
+        return DIRECTION_DY[direction];
+    }
+
+    /**
+     * Returns the Squared Euclidean distance between two packed coordinates.
+     */
+    public static int distanceSquared(int a, int b) {
+        int dx = x(a) - x(b);
+        int dy = y(a) - y(b);
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Returns the Euclidean distance between two packed coordinates.
+     */
+    public static double distance(int a, int b) {
+        return Math.sqrt(distanceSquared(a, b));
+    }
+
+    /**
+     * Returns the Chebyshev distance (King distance) between two packed coordinates.
+     */
+    public static int chebyshevDistance(int a, int b) {
+        return Math.max(Math.abs(x(a) - x(b)), Math.abs(y(a) - y(b)));
+    }
+
+    /**
+     * Checks if the packed coordinate is within the bounds of a grid.
+     */
+    public static boolean isValid(int packed, int width, int height) {
+        int x = x(packed);
+        int y = y(packed);
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+}
@@ -22,6 +22,15 @@ public record Rect(int x, int y, int width, int height) {
                 this.y <= other.y + other.height && this.y + this.height >= other.y);
     }
 
+    /**
+     * Returns the smallest rectangle containing both this rectangle and the other.
+     */
+    public Rect union(Rect other) {
+        int minX = Math.min(x, other.x);
+        int minY = Math.min(y, other.y);
+        return new Rect(minX, minY, Math.max(x2(), other.x2()) - minX, Math.max(y2(), other.y2()) - minY);
+    }
+
     /**
      * Returns a random position inside this rectangle.
      */
@@ -0,0 +1,197 @@
+package lucas.games.brogue.backend;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The player's memory of a level: the glyph and colour each explored cell had when it was last seen.
+ * <p>
+ *     Memory is written when a cell becomes visible and is never touched by what happens out of
+ *     sight, so remembered areas show the dungeon as it was, not as it is. Colours are stored
+ *     packed (0xRRGGBB) and already dimmed for display, so drawing memory is a plain copy.
+ * </p>
+ * <p>
+ *     Storage is split into {@value #BLOCK_SIZE}x{@value #BLOCK_SIZE} blocks allocated on first
+ *     write, so unexplored parts of huge levels cost nothing. A glyph of {@code 0} means
+ *     "never seen".
+ * </p>
+ */
+public class RememberedMap {
+
+    /** Brightness of remembered terrain relative to its lit colour. */
+    public static final double TERRAIN_DIM = 0.3;
+    /** Brightness of remembered items relative to their colour. */
+    public static final double ITEM_DIM = 0.5;
+
+    static final int BLOCK_SHIFT = 5;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    private static final int BLOCK_AREA = BLOCK_SIZE * BLOCK_SIZE;
+
+    private final int width;
+    private final int height;
+    private final int blocksX;
+    private final char[][] glyphs;
+    private final int[][] colors;
+
+    public RememberedMap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.blocksX = (width + BLOCK_MASK) >> BLOCK_SHIFT;
+        int blocksY = (height + BLOCK_MASK) >> BLOCK_SHIFT;
+        this.glyphs = new char[blocksX * blocksY][];
+        this.colors = new int[blocksX * blocksY][];
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    private int block(int x, int y) {
+        return (y >> BLOCK_SHIFT) * blocksX + (x >> BLOCK_SHIFT);
+    }
+
+    private static int local(int x, int y) {
+        return ((y & BLOCK_MASK) << BLOCK_SHIFT) | (x & BLOCK_MASK);
+    }
+
+    /**
+     * Records what a cell looks like right now.
+     * @param rgb The packed (0xRRGGBB) colour to show while the cell is out of sight.
+     */
+    public void remember(int x, int y, char glyph, int rgb) {
+        int b = block(x, y);
+        if (glyphs[b] == null) {
+            glyphs[b] = new char[BLOCK_AREA];
+            colors[b] = new int[BLOCK_AREA];
+        }
+        int i = local(x, y);
+        glyphs[b][i] = glyph;
+        colors[b][i] = rgb;
+    }
+
+    public boolean isRemembered(int x, int y) {
+        return getGlyph(x, y) != 0;
+    }
+
+    /**
+     * Returns the remembered glyph, or 0 if the cell was never seen.
+     */
+    public char getGlyph(int x, int y) {
+        char[] block = glyphs[block(x, y)];
+        return block == null ? 0 : block[local(x, y)];
+    }
+
+    /**
+     * Returns the remembered packed colour, or 0 (black) if the cell was never seen.
+     */
+    public int getColor(int x, int y) {
+        int[] block = colors[block(x, y)];
+        return block == null ? 0 : block[local(x, y)];
+    }
+
+    /**
+     * Copies the memory of row y in [x0, x1) into the given buffers, starting at offset.
+     * Cells that were never seen are copied as glyph 0 and colour 0.
+     */
+    public void copyRow(int y, int x0, int x1, char[] glyphOut, int[] colorOut, int offset) {
+        int x = x0;
+        while (x < x1) {
+            int spanEnd = Math.min(x1, (x | BLOCK_MASK) + 1);
+            int length = spanEnd - x;
+            int b = block(x, y);
+            if (glyphs[b] == null) {
+                Arrays.fill(glyphOut, offset, offset + length, (char) 0);
+                Arrays.fill(colorOut, offset, offset + length, 0);
+            } else {
+                int i = local(x, y);
+                System.arraycopy(glyphs[b], i, glyphOut, offset, length);
+                System.arraycopy(colors[b], i, colorOut, offset, length);
+            }
+            offset += length;
+            x = spanEnd;
+        }
+    }
+
+    /**
+     * Forgets everything (e.g. when the level is regenerated). Allocated blocks are kept for reuse.
+     */
+    public void clear() {
+        for (int b = 0; b < glyphs.length; b++) {
+            if (glyphs[b] != null) {
+                Arrays.fill(glyphs[b], (char) 0);
+                Arrays.fill(colors[b], 0);
+            }
+        }
+    }
+
+    private static boolean isBlank(char[] block) {
+        if (block == null) return true;
+        for (char c : block) {
+            if (c != 0) return false;
+        }
+        return true;
+    }
+
+    // --- Serialization ---
+
+    /**
+     * Writes the memory on its own, independent of the rest of the level.
+     * Only blocks that hold memory are written.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(height);
+
+        int count = 0;
+        for (char[] block : glyphs) {
+            if (!isBlank(block)) count++;
+        }
+        out.writeInt(count);
+
+        for (int b = 0; b < glyphs.length; b++) {
+            if (isBlank(glyphs[b])) continue;
+            out.writeInt(b);
+            for (int i = 0; i < BLOCK_AREA; i++) {
+                out.writeChar(glyphs[b][i]);
+                out.writeInt(colors[b][i]);
+            }
+        }
+    }
+
+    /**
+     * Reads memory previously written with {@link #writeTo(DataOutput)}.
+     */
+    public static RememberedMap readFrom(DataInput in) throws IOException {
+        RememberedMap map = new RememberedMap(in.readInt(), in.readInt());
+        int count = in.readInt();
+        for (int n = 0; n < count; n++) {
+            int b = in.readInt();
+            if (b < 0 || b >= map.glyphs.length) {
+                throw new IOException("Remembered map block out of range: " + b);
+            }
+            map.glyphs[b] = new char[BLOCK_AREA];
+            map.colors[b] = new int[BLOCK_AREA];
+            for (int i = 0; i < BLOCK_AREA; i++) {
+                map.glyphs[b][i] = in.readChar();
+                map.colors[b][i] = in.readInt();
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Replaces this memory with a copy of another map of the same size (e.g. after loading a save).
+     */
+    public void copyFrom(RememberedMap other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Cannot copy a " + other.width + "x" + other.height +
+                    " memory into a " + width + "x" + height + " level");
+        }
+        for (int b = 0; b < glyphs.length; b++) {
+            glyphs[b] = other.glyphs[b] == null ? null : other.glyphs[b].clone();
+            colors[b] = other.colors[b] == null ? null : other.colors[b].clone();
+        }
+    }
+}
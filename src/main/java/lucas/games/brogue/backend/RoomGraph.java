@@ -0,0 +1,363 @@
+package lucas.games.brogue.backend;
+
+import lucas.games.brogue.backend.systems.DijkstraMap;
+import lucas.games.brogue.backend.systems.PathFinder;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The rooms of a generated level and how they connect, kept as level metadata for long-range routing.
+ * <p>
+ *     Every passable cell belongs to the region of its nearest room, found by a breadth-first
+ *     flood from all rooms at once, so corridors are split between the rooms they join. Two
+ *     rooms are linked when their regions touch, which also catches links made by corridors
+ *     crossing other rooms or corridors. A link costs the walk between the two room centres,
+ *     found with a search bounded to the two regions.
+ * </p>
+ * <p>
+ *     Room-to-room distances and next hops are precomputed for every pair, so a route across
+ *     the level is a few table lookups. The graph describes the level as generated and is not
+ *     updated when terrain changes later; planners fall back to a cell-level search when a
+ *     leg turns out to be blocked.
+ * </p>
+ * <p>
+ *     The region map is kept in {@value #BLOCK_SIZE}x{@value #BLOCK_SIZE} blocks allocated only
+ *     where a region reaches, and the flood's queue only ever holds its frontier, so the graph
+ *     of a huge, mostly solid {@link ChunkedDungeonLevel} costs about as much as its floor.
+ * </p>
+ */
+public class RoomGraph {
+
+    /** Region of cells that belong to no room (walls, and floor cut off from every room). */
+    public static final int NO_ROOM = -1;
+
+    /** Distance between rooms with no route between them. */
+    public static final int UNREACHABLE = DijkstraMap.UNREACHABLE;
+
+    static final int BLOCK_SHIFT = 5;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+    private final int width;
+    private final int height;
+    private final Rect[] rooms;
+    private final int[] centers;
+    private final Rect[] regionBounds;
+    // Region of each cell, by block; blocks without any region are left null
+    private final int blocksX;
+    private final short[][] regionBlocks;
+
+    // Links as compressed adjacency lists: the links of room i are linkStart[i] until linkStart[i + 1]
+    private final int[] linkStart;
+    private final int[] linkTargets;
+    private final int[] linkCosts;
+
+    // Room-to-room tables, indexed by from * roomCount + to
+    private final int[] distances;
+    private final int[] nextHops;
+
+    private RoomGraph(int width, int height, Rect[] rooms) {
+        this.width = width;
+        this.height = height;
+        this.rooms = rooms;
+        this.centers = new int[rooms.length];
+        for (int i = 0; i < rooms.length; i++) {
+            centers[i] = PackedPosition.pack(rooms[i].getCenter());
+        }
+        this.regionBounds = new Rect[rooms.length];
+        this.blocksX = (width + BLOCK_MASK) >> BLOCK_SHIFT;
+        this.regionBlocks = new short[blocksX * ((height + BLOCK_MASK) >> BLOCK_SHIFT)][];
+        this.linkStart = new int[rooms.length + 1];
+        int pairs = rooms.length * rooms.length;
+        this.linkTargets = new int[pairs];
+        this.linkCosts = new int[pairs];
+        this.distances = new int[pairs];
+        this.nextHops = new int[pairs];
+    }
+
+    /**
+     * Builds the graph of a level from the rooms carved into it.
+     */
+    public static RoomGraph build(DungeonLevel level, List<Rect> rooms) {
+        if (rooms.size() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many rooms for a room graph: " + rooms.size());
+        }
+        RoomGraph graph = new RoomGraph(level.getWidth(), level.getHeight(), rooms.toArray(new Rect[0]));
+        graph.assignRegions(level);
+        graph.linkRegions(level);
+        graph.computeTables();
+        return graph;
+    }
+
+    /**
+     * Floods outwards from every room at once, giving each passable cell to the room that reaches it first.
+     */
+    private void assignRegions(DungeonLevel level) {
+        int[] minX = new int[rooms.length];
+        int[] minY = new int[rooms.length];
+        int[] maxX = new int[rooms.length];
+        int[] maxY = new int[rooms.length];
+        Arrays.fill(minX, Integer.MAX_VALUE);
+        Arrays.fill(minY, Integer.MAX_VALUE);
+        Arrays.fill(maxX, Integer.MIN_VALUE);
+        Arrays.fill(maxY, Integer.MIN_VALUE);
+
+        // Ring buffer of packed cells, grown only when the frontier outgrows it
+        int[] queue = new int[256];
+        int head = 0;
+        int size = 0;
+        for (int r = 0; r < rooms.length; r++) {
+            Rect room = rooms[r];
+            for (int y = Math.max(room.y(), 0); y < Math.min(room.y2(), height); y++) {
+                for (int x = Math.max(room.x(), 0); x < Math.min(room.x2(), width); x++) {
+                    if (regionAt(x, y) == NO_ROOM && level.isPassable(x, y)) {
+                        setRegion(x, y, r);
+                        if (size == queue.length) {
+                            queue = growQueue(queue, head, size);
+                            head = 0;
+                        }
+                        queue[(head + size++) & (queue.length - 1)] = PackedPosition.pack(x, y);
+                    }
+                }
+            }
+        }
+
+        while (size > 0) {
+            int cell = queue[head];
+            head = (head + 1) & (queue.length - 1);
+            size--;
+            int x = PackedPosition.x(cell);
+            int y = PackedPosition.y(cell);
+            int r = regionAt(x, y);
+            minX[r] = Math.min(minX[r], x);
+            minY[r] = Math.min(minY[r], y);
+            maxX[r] = Math.max(maxX[r], x);
+            maxY[r] = Math.max(maxY[r], y);
+
+            for (int dir = 0; dir < PackedPosition.DIRECTION_COUNT; dir++) {
+                int nx = x + PackedPosition.directionDx(dir);
+                int ny = y + PackedPosition.directionDy(dir);
+                if (!level.isPassable(nx, ny) || regionAt(nx, ny) != NO_ROOM) continue;
+
+                setRegion(nx, ny, r);
+                if (size == queue.length) {
+                    queue = growQueue(queue, head, size);
+                    head = 0;
+                }
+                queue[(head + size++) & (queue.length - 1)] = PackedPosition.pack(nx, ny);
+            }
+        }
+
+        for (int r = 0; r < rooms.length; r++) {
+            // A room with no passable cell keeps its own rectangle and simply has no links
+            regionBounds[r] = minX[r] > maxX[r] ? rooms[r]
+                    : new Rect(minX[r], minY[r], maxX[r] - minX[r] + 1, maxY[r] - minY[r] + 1);
+        }
+    }
+
+    /**
+     * Doubles a full ring buffer, unrolling it so the oldest entry is first.
+     */
+    private static int[] growQueue(int[] queue, int head, int size) {
+        int[] grown = new int[queue.length * 2];
+        int firstPart = queue.length - head;
+        System.arraycopy(queue, head, grown, 0, firstPart);
+        System.arraycopy(queue, 0, grown, firstPart, size - firstPart);
+        return grown;
+    }
+
+    private void setRegion(int x, int y, int r) {
+        int b = (y >> BLOCK_SHIFT) * blocksX + (x >> BLOCK_SHIFT);
+        if (regionBlocks[b] == null) {
+            regionBlocks[b] = new short[BLOCK_SIZE * BLOCK_SIZE];
+            Arrays.fill(regionBlocks[b], (short) NO_ROOM);
+        }
+        regionBlocks[b][((y & BLOCK_MASK) << BLOCK_SHIFT) | (x & BLOCK_MASK)] = (short) r;
+    }
+
+    /**
+     * Links rooms whose regions touch, costing each link with a search bounded to the two regions.
+     */
+    private void linkRegions(DungeonLevel level) {
+        int n = rooms.length;
+        boolean[] touching = new boolean[n * n];
+        for (int b = 0; b < regionBlocks.length; b++) {
+            short[] block = regionBlocks[b];
+            if (block == null) continue;
+            int x0 = (b % blocksX) << BLOCK_SHIFT;
+            int y0 = (b / blocksX) << BLOCK_SHIFT;
+            for (int i = 0; i < block.length; i++) {
+                int r = block[i];
+                if (r == NO_ROOM) continue;
+                int x = x0 + (i & BLOCK_MASK);
+                int y = y0 + (i >> BLOCK_SHIFT);
+                // Looking forwards is enough, since every touching pair is seen from one side
+                touch(touching, r, x + 1, y);
+                touch(touching, r, x - 1, y + 1);
+                touch(touching, r, x, y + 1);
+                touch(touching, r, x + 1, y + 1);
+            }
+        }
+
+        PathFinder finder = new PathFinder();
+        int[] path = new int[64];
+        int[] costs = new int[n * n];
+        Arrays.fill(costs, UNREACHABLE);
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                if (!touching[a * n + b]) continue;
+
+                Rect bounds = regionBounds[a].union(regionBounds[b]);
+                int length = finder.findPath(level, centers[a], centers[b], bounds, path);
+                if (length > path.length) {
+                    path = new int[length];
+                    length = finder.findPath(level, centers[a], centers[b], bounds, path);
+                }
+                if (length == PathFinder.NO_PATH) continue;
+
+                int cost = PathFinder.pathCost(centers[a], path, length);
+                costs[a * n + b] = cost;
+                costs[b * n + a] = cost;
+            }
+        }
+
+        int links = 0;
+        for (int a = 0; a < n; a++) {
+            linkStart[a] = links;
+            for (int b = 0; b < n; b++) {
+                if (costs[a * n + b] == UNREACHABLE) continue;
+                linkTargets[links] = b;
+                linkCosts[links] = costs[a * n + b];
+                links++;
+            }
+        }
+        linkStart[n] = links;
+    }
+
+    private void touch(boolean[] touching, int r, int x, int y) {
+        int s = regionAt(x, y);
+        if (s != NO_ROOM && s != r) {
+            touching[r * rooms.length + s] = true;
+            touching[s * rooms.length + r] = true;
+        }
+    }
+
+    /**
+     * Fills the distance and next-hop tables with Floyd-Warshall. Generated levels have a few
+     * dozen rooms at most, so the cubic pass is cheaper than it sounds and runs once per level.
+     */
+    private void computeTables() {
+        int n = rooms.length;
+        Arrays.fill(distances, UNREACHABLE);
+        Arrays.fill(nextHops, NO_ROOM);
+        for (int a = 0; a < n; a++) {
+            distances[a * n + a] = 0;
+            nextHops[a * n + a] = a;
+            for (int l = linkStart[a]; l < linkStart[a + 1]; l++) {
+                int b = linkTargets[l];
+                distances[a * n + b] = linkCosts[l];
+                nextHops[a * n + b] = b;
+            }
+        }
+
+        for (int k = 0; k < n; k++) {
+            for (int a = 0; a < n; a++) {
+                int toK = distances[a * n + k];
+                if (toK == UNREACHABLE) continue;
+                for (int b = 0; b < n; b++) {
+                    int fromK = distances[k * n + b];
+                    if (fromK == UNREACHABLE) continue;
+                    if (toK + fromK < distances[a * n + b]) {
+                        distances[a * n + b] = toK + fromK;
+                        nextHops[a * n + b] = nextHops[a * n + k];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of region map blocks that hold memory.
+     */
+    int getAllocatedBlockCount() {
+        int count = 0;
+        for (short[] block : regionBlocks) {
+            if (block != null) count++;
+        }
+        return count;
+    }
+
+    public int getRoomCount() { return rooms.length; }
+
+    public Rect getRoom(int room) { return rooms[room]; }
+
+    /**
+     * The packed centre of a room (see {@link PackedPosition}), which routes pass through.
+     */
+    public int getCenter(int room) { return centers[room]; }
+
+    /**
+     * The bounding box of a room's region: the room plus its share of the corridors around it.
+     */
+    public Rect getRegionBounds(int room) { return regionBounds[room]; }
+
+    /**
+     * The room whose region holds a cell, or {@link #NO_ROOM}.
+     */
+    public int regionAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return NO_ROOM;
+        short[] block = regionBlocks[(y >> BLOCK_SHIFT) * blocksX + (x >> BLOCK_SHIFT)];
+        return block == null ? NO_ROOM : block[((y & BLOCK_MASK) << BLOCK_SHIFT) | (x & BLOCK_MASK)];
+    }
+
+    public int regionAt(int packed) {
+        return regionAt(PackedPosition.x(packed), PackedPosition.y(packed));
+    }
+
+    public int getLinkCount(int room) {
+        return linkStart[room + 1] - linkStart[room];
+    }
+
+    /**
+     * The room at the other end of one of a room's links (0 to {@link #getLinkCount(int)} - 1).
+     */
+    public int getLinkTarget(int room, int link) {
+        return linkTargets[linkStart[room] + link];
+    }
+
+    public int getLinkCost(int room, int link) {
+        return linkCosts[linkStart[room] + link];
+    }
+
+    /**
+     * Cost of the cheapest route between two room centres through the graph, or {@link #UNREACHABLE}.
+     */
+    public int getDistance(int from, int to) {
+        return distances[from * rooms.length + to];
+    }
+
+    /**
+     * The next room on the cheapest route between two rooms: {@code to} itself when they
+     * are linked or equal, or {@link #NO_ROOM} when there is no route.
+     */
+    public int nextRoom(int from, int to) {
+        return nextHops[from * rooms.length + to];
+    }
+
+    /**
+     * Writes the rooms of the cheapest route between two rooms, starting with {@code from}
+     * and ending with {@code to}.
+     * @return the number of rooms on the route, or 0 if there is none. Only the first
+     *         {@code out.length} are written if the buffer is too small.
+     */
+    public int route(int from, int to, int[] out) {
+        if (nextRoom(from, to) == NO_ROOM) return 0;
+        int count = 0;
+        for (int room = from; ; room = nextRoom(room, to)) {
+            if (count < out.length) out[count] = room;
+            count++;
+            if (room == to) return count;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package lucas.games.brogue.backend;
+
+/**
+ * Plain loop implementation of {@link ColorCompositor}, used when the Vector API is not available.
+ */
+public final class ScalarColorCompositor implements ColorCompositor {
+
+    @Override
+    public void blend(float[] dst, float[] src, int offset, int length, float percent) {
+        for (int i = offset; i < offset + length; i++) {
+            dst[i] = (src[i] - dst[i]) * percent + dst[i];
+        }
+    }
+
+    @Override
+    public void addScaled(float[] dst, float[] src, int offset, int length, float factor) {
+        for (int i = offset; i < offset + length; i++) {
+            dst[i] = src[i] * factor + dst[i];
+        }
+    }
+
+    @Override
+    public void multiply(float[] dst, float[] src, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            dst[i] *= src[i];
+        }
+    }
+
+    @Override
+    public void scale(float[] dst, int offset, int length, float factor) {
+        for (int i = offset; i < offset + length; i++) {
+            dst[i] *= factor;
+        }
+    }
+
+    @Override
+    public void pack(float[] red, float[] green, float[] blue, int offset, int length, int[] out, int outOffset) {
+        for (int i = 0; i < length; i++) {
+            int r = (int) (Math.min(1.0f, Math.max(0.0f, red[offset + i])) * 255.0f);
+            int g = (int) (Math.min(1.0f, Math.max(0.0f, green[offset + i])) * 255.0f);
+            int b = (int) (Math.min(1.0f, Math.max(0.0f, blue[offset + i])) * 255.0f);
+            out[outOffset + i] = (r << 16) | (g << 8) | b;
+        }
+    }
+}
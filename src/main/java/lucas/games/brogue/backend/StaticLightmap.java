@@ -0,0 +1,172 @@
+package lucas.games.brogue.backend;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Light from sources that never move (glowing terrain, fixed torches), baked once per level.
+ * <p>
+ *     Stored as r,g,b float triples in {@value #BLOCK_SIZE}x{@value #BLOCK_SIZE} blocks that
+ *     are allocated on first write, so a level with a few glowing patches only pays for the
+ *     blocks they light. The dynamic lighting pass adds moving sources on top of it.
+ *     The map is serialized on its own, so a saved or revisited level does not need rebaking.
+ * </p>
+ */
+public class StaticLightmap {
+
+    static final int BLOCK_SHIFT = 5;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    private static final int BLOCK_AREA = BLOCK_SIZE * BLOCK_SIZE;
+
+    private final int width;
+    private final int height;
+    private final int blocksX;
+    private final float[][] blocks;
+
+    public StaticLightmap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.blocksX = (width + BLOCK_MASK) >> BLOCK_SHIFT;
+        int blocksY = (height + BLOCK_MASK) >> BLOCK_SHIFT;
+        this.blocks = new float[blocksX * blocksY][];
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    private int block(int x, int y) {
+        return (y >> BLOCK_SHIFT) * blocksX + (x >> BLOCK_SHIFT);
+    }
+
+    private static int local(int x, int y) {
+        return (((y & BLOCK_MASK) << BLOCK_SHIFT) | (x & BLOCK_MASK)) * 3;
+    }
+
+    /**
+     * Adds light to a cell.
+     */
+    public void add(int x, int y, float r, float g, float b) {
+        int bi = block(x, y);
+        if (blocks[bi] == null) {
+            blocks[bi] = new float[BLOCK_AREA * 3];
+        }
+        int i = local(x, y);
+        blocks[bi][i]     += r;
+        blocks[bi][i + 1] += g;
+        blocks[bi][i + 2] += b;
+    }
+
+    /**
+     * Returns one channel (0 = red, 1 = green, 2 = blue) of the baked light on a cell.
+     */
+    public float get(int x, int y, int channel) {
+        float[] block = blocks[block(x, y)];
+        return block == null ? 0.0f : block[local(x, y) + channel];
+    }
+
+    public boolean isEmpty() {
+        for (float[] block : blocks) {
+            if (block != null) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds the whole map onto the light plane of a level of the same size.
+     */
+    public void applyTo(DungeonLevel level) {
+        addTo(level, 1.0f);
+    }
+
+    /**
+     * Takes the whole map back off a light plane it was applied to.
+     */
+    public void removeFrom(DungeonLevel level) {
+        addTo(level, -1.0f);
+    }
+
+    private void addTo(DungeonLevel level, float sign) {
+        for (int bi = 0; bi < blocks.length; bi++) {
+            float[] block = blocks[bi];
+            if (block == null) continue;
+
+            int x0 = (bi % blocksX) << BLOCK_SHIFT;
+            int y0 = (bi / blocksX) << BLOCK_SHIFT;
+            int x1 = Math.min(width, x0 + BLOCK_SIZE);
+            int y1 = Math.min(height, y0 + BLOCK_SIZE);
+            for (int y = y0; y < y1; y++) {
+                for (int x = x0; x < x1; x++) {
+                    int i = local(x, y);
+                    if (block[i] != 0.0f || block[i + 1] != 0.0f || block[i + 2] != 0.0f) {
+                        level.addLight(x, y, block[i] * sign, block[i + 1] * sign, block[i + 2] * sign);
+                    }
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(blocks, null);
+    }
+
+    // --- Serialization ---
+
+    /**
+     * Writes the lightmap on its own, independent of the rest of the level.
+     * Only blocks that hold light are written.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(height);
+
+        int count = 0;
+        for (float[] block : blocks) {
+            if (block != null) count++;
+        }
+        out.writeInt(count);
+
+        for (int bi = 0; bi < blocks.length; bi++) {
+            if (blocks[bi] == null) continue;
+            out.writeInt(bi);
+            for (float value : blocks[bi]) {
+                out.writeFloat(value);
+            }
+        }
+    }
+
+    /**
+     * Reads a lightmap previously written with {@link #writeTo(DataOutput)}.
+     */
+    public static StaticLightmap readFrom(DataInput in) throws IOException {
+        StaticLightmap map = new StaticLightmap(in.readInt(), in.readInt());
+        int count = in.readInt();
+        for (int n = 0; n < count; n++) {
+            int bi = in.readInt();
+            if (bi < 0 || bi >= map.blocks.length) {
+                throw new IOException("Lightmap block out of range: " + bi);
+            }
+            float[] block = new float[BLOCK_AREA * 3];
+            for (int i = 0; i < block.length; i++) {
+                block[i] = in.readFloat();
+            }
+            map.blocks[bi] = block;
+        }
+        return map;
+    }
+
+    /**
+     * Replaces this lightmap with a copy of another of the same size (e.g. after loading a save).
+     */
+    public void copyFrom(StaticLightmap other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Cannot copy a " + other.width + "x" + other.height +
+                    " lightmap into a " + width + "x" + height + " level");
+        }
+        for (int bi = 0; bi < blocks.length; bi++) {
+            blocks[bi] = other.blocks[bi] == null ? null : other.blocks[bi].clone();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package lucas.games.brogue.backend;
+
+import java.util.Arrays;
+
+/**
+ * A precomputed set of offsets around a centre cell, for "every cell within r" queries
+ * (area effects, auras, noise, vision radii).
+ * <p>
+ *     A stencil is stored two ways: as the half width of each row, so a caller can loop over
+ *     spans without any distance test, and as a row-major array of packed offsets (see
+ *     {@link PackedPosition}). Cells are included while they are strictly inside the radius,
+ *     matching the field of view: {@code dx*dx + dy*dy < r*r} for a disc and
+ *     {@code |dx| + |dy| < r} for a diamond. A radius of 0 is empty.
+ * </p>
+ * <p>
+ *     Stencils are immutable and cached per shape and radius, so {@link #disc(int)} and
+ *     {@link #diamond(int)} only build each one once. They are safe to share between threads.
+ * </p>
+ */
+public final class Stencil {
+
+    public enum Shape {
+        /** Euclidean: {@code dx*dx + dy*dy < r*r}. */
+        DISC,
+        /** Manhattan: {@code |dx| + |dy| < r}. */
+        DIAMOND
+    }
+
+    private static volatile Stencil[][] cache = new Stencil[Shape.values().length][0];
+
+    private final Shape shape;
+    private final int radius;
+    // Half width of the row at |dy|, for dy = 0..radius; -1 for an empty row
+    private final int[] halfWidths;
+    private final int[] offsets;
+
+    private Stencil(Shape shape, int radius) {
+        this.shape = shape;
+        this.radius = radius;
+        this.halfWidths = new int[radius + 1];
+
+        int size = 0;
+        for (int dy = 0; dy <= radius; dy++) {
+            int halfWidth = -1;
+            while (halfWidth + 1 <= radius && includes(shape, radius, halfWidth + 1, dy)) {
+                halfWidth++;
+            }
+            halfWidths[dy] = halfWidth;
+            if (halfWidth >= 0) {
+                size += (dy == 0 ? 1 : 2) * (2 * halfWidth + 1);
+            }
+        }
+
+        this.offsets = new int[size];
+        int i = 0;
+        for (int dy = -radius; dy <= radius; dy++) {
+            int halfWidth = halfWidths[Math.abs(dy)];
+            for (int dx = -halfWidth; dx <= halfWidth; dx++) {
+                offsets[i++] = PackedPosition.pack(dx, dy);
+            }
+        }
+    }
+
+    private static boolean includes(Shape shape, int radius, int dx, int dy) {
+        return switch (shape) {
+            case DISC -> dx * dx + dy * dy < radius * radius;
+            case DIAMOND -> Math.abs(dx) + Math.abs(dy) < radius;
+        };
+    }
+
+    public static Stencil disc(int radius) {
+        return get(Shape.DISC, radius);
+    }
+
+    public static Stencil diamond(int radius) {
+        return get(Shape.DIAMOND, radius);
+    }
+
+    /**
+     * Returns the cached stencil of the given shape and radius, building it on first use.
+     */
+    public static Stencil get(Shape shape, int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Negative stencil radius: " + radius);
+        }
+        Stencil[] byRadius = cache[shape.ordinal()];
+        if (radius < byRadius.length && byRadius[radius] != null) {
+            return byRadius[radius];
+        }
+        return build(shape, radius);
+    }
+
+    private static synchronized Stencil build(Shape shape, int radius) {
+        Stencil[][] current = cache;
+        Stencil[] byRadius = current[shape.ordinal()];
+        if (radius < byRadius.length && byRadius[radius] != null) {
+            return byRadius[radius];
+        }
+
+        // Copy on write, so readers never see a half-filled table
+        Stencil[] grown = Arrays.copyOf(byRadius, Math.max(byRadius.length, radius + 1));
+        Stencil stencil = new Stencil(shape, radius);
+        grown[radius] = stencil;
+        Stencil[][] next = current.clone();
+        next[shape.ordinal()] = grown;
+        cache = next;
+        return stencil;
+    }
+
+    public Shape getShape() { return shape; }
+    public int getRadius() { return radius; }
+
+    /**
+     * Number of cells in the stencil.
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * The i-th offset as a packed position, in row-major order (dy, then dx, ascending).
+     */
+    public int offset(int i) {
+        return offsets[i];
+    }
+
+    /**
+     * Half width of the row at vertical offset {@code dy}: the row spans dx = -w..w.
+     * Returns -1 for rows the stencil does not reach.
+     */
+    public int halfWidth(int dy) {
+        dy = Math.abs(dy);
+        return dy <= radius ? halfWidths[dy] : -1;
+    }
+
+    public boolean contains(int dx, int dy) {
+        return Math.abs(dx) <= halfWidth(dy);
+    }
+}
@@ -0,0 +1,18 @@
+package lucas.games.brogue.backend;
+
+/**
+ * Bit flags describing terrain behaviour.
+ * A cell's combined flag word is the OR of the flags of every layer present on it,
+ * so one obstructing layer is enough to block the whole cell.
+ */
+public final class TerrainFlags {
+
+    public static final int OBSTRUCTS_PASSABILITY = 1;
+    public static final int OBSTRUCTS_VISION      = 1 << 1;
+    public static final int IS_LIQUID             = 1 << 2;
+    public static final int IS_FLAMMABLE          = 1 << 3;
+    public static final int IS_LUMINOUS           = 1 << 4;
+
+    private TerrainFlags() {
+    }
+}
@@ -0,0 +1,14 @@
+package lucas.games.brogue.backend;
+
+/**
+ * The layers a cell's terrain is built from, bottom to top.
+ * Mirrors Brogue's dungeon / liquid / surface / gas layering.
+ */
+public enum TerrainLayer {
+    DUNGEON,    // Walls, floors, doors, stairs. Always present.
+    LIQUID,     // Water, lava...
+    SURFACE,    // Grass, fungus, blood...
+    GAS;        // Smoke, poison clouds...
+
+    public static final int COUNT = values().length;
+}
@@ -1,8 +1,14 @@
 package lucas.games.brogue.backend;
 
+import static lucas.games.brogue.backend.TerrainFlags.*;
+
 /**
  * Defines the static properties of different terrain types.
  * Replaces the C approach of checking flags or ID ranges.
+ * <p>
+ *     Each type has a preferred {@link TerrainLayer} and a set of {@link TerrainFlags}.
+ *     Passability and light blocking are derived from those flags.
+ * </p>
  */
 public enum TerrainType {
 
@@ -12,23 +18,69 @@ public enum TerrainType {
     DOOR_CLOSED('+',    false, true,  new BrogueColor(0.6, 0.4, 0.2)),
     DOOR_OPEN(  '/',    true,  false, new BrogueColor(0.6, 0.4, 0.2)),
     CHASM(      ':',    true,  false, new BrogueColor(0.1, 0.1, 0.1)),
-    WATER(      '~',    true,  false, new BrogueColor(0.0, 0.2, 0.8)),
-    STAIRS_DOWN('>',    true,  false, BrogueColor.MAGENTA);
+    WATER(      '~',    true,  false, new BrogueColor(0.0, 0.2, 0.8), TerrainLayer.LIQUID, IS_LIQUID),
+    STAIRS_DOWN('>',    true,  false, BrogueColor.MAGENTA),
+
+    // Layered terrain
+    LAVA(       '~',    true,  false, new BrogueColor(1.0, 0.3, 0.0), TerrainLayer.LIQUID, IS_LIQUID | IS_LUMINOUS,
+                5, new BrogueColor(1.0, 0.45, 0.1)),
+    GRASS(      '"',    true,  false, new BrogueColor(0.2, 0.6, 0.1), TerrainLayer.SURFACE, IS_FLAMMABLE),
+    LUMINESCENT_FUNGUS('"', true, false, new BrogueColor(0.3, 0.9, 0.6), TerrainLayer.SURFACE, IS_LUMINOUS,
+                3, new BrogueColor(0.15, 0.5, 0.3)),
+    SMOKE(      '*',    true,  true,  new BrogueColor(0.5, 0.5, 0.5), TerrainLayer.GAS, 0);
 
     private final char symbol;
-    private final boolean isPassable;
-    private final boolean blocksLight;
     private final BrogueColor color;
+    private final TerrainLayer layer;
+    private final int flags;
+    private final int glowRadius;
+    private final BrogueColor glowColor;
 
     TerrainType(char symbol, boolean isPassable, boolean blocksLight, BrogueColor color) {
+        this(symbol, isPassable, blocksLight, color, TerrainLayer.DUNGEON, 0);
+    }
+
+    TerrainType(char symbol, boolean isPassable, boolean blocksLight, BrogueColor color,
+                TerrainLayer layer, int extraFlags) {
+        this(symbol, isPassable, blocksLight, color, layer, extraFlags, 0, null);
+    }
+
+    TerrainType(char symbol, boolean isPassable, boolean blocksLight, BrogueColor color,
+                TerrainLayer layer, int extraFlags, int glowRadius, BrogueColor glowColor) {
         this.symbol = symbol;
-        this.isPassable = isPassable;
-        this.blocksLight = blocksLight;
         this.color = color;
+        this.layer = layer;
+        this.flags = extraFlags
+                | (isPassable ? 0 : OBSTRUCTS_PASSABILITY)
+                | (blocksLight ? OBSTRUCTS_VISION : 0);
+        this.glowRadius = glowRadius;
+        this.glowColor = glowColor;
     }
 
     public char getSymbol() { return symbol; }
-    public boolean isPassable() { return isPassable; }
-    public boolean blocksLight() { return blocksLight; }
+    public boolean isPassable() { return (flags & OBSTRUCTS_PASSABILITY) == 0; }
+    public boolean blocksLight() { return (flags & OBSTRUCTS_VISION) != 0; }
     public BrogueColor getColor() { return color; }
+
+    /**
+     * The layer this terrain normally lives on.
+     */
+    public TerrainLayer getLayer() { return layer; }
+
+    /**
+     * The {@link TerrainFlags} bits of this terrain.
+     */
+    public int getFlags() { return flags; }
+
+    public boolean hasFlag(int flag) { return (flags & flag) != 0; }
+
+    /**
+     * Radius of the light this terrain gives off, or 0 if it does not glow.
+     */
+    public int getGlowRadius() { return glowRadius; }
+
+    /**
+     * Colour of the light this terrain gives off, or null if it does not glow.
+     */
+    public BrogueColor getGlowColor() { return glowColor; }
 }
@@ -4,81 +4,166 @@ import lucas.games.brogue.backend.entities.Entity;
 import lucas.games.brogue.backend.entities.items.Item;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Represents a single tile square in the dungeon grid.
  * This object is mutable because the state of a tile changes (light levels, memory).
+ * <p>
+ *     A tile is a flyweight view onto one cell of a {@link DungeonLevel}; it holds no state of
+ *     its own. Tiles created with {@link #Tile(TerrainType)} are detached: they keep their
+ *     state in a small {@link DetachedCell} until it is copied into a level with
+ *     {@link DungeonLevel#setTile}.
+ * </p>
  */
 public class Tile {
 
-    private TerrainType terrain;
+    private final DungeonLevel level;
+    private final int x;
+    private final int y;
+    // State of a detached tile, null for views onto a level
+    private final DetachedCell cell;
 
-    // Light memory: the color of light stored on this tile
-    private BrogueColor lightColor;
-
-    // The entity blocking this tile (if any)
-    private Entity occupant;
-
-    // The items lying on the floor
-    private final List<Item> items;
+    public Tile(TerrainType terrain) {
+        this.level = null;
+        this.x = 0;
+        this.y = 0;
+        this.cell = new DetachedCell();
+        setTerrain(terrain);
+    }
 
-    // Visibility
-    private boolean isVisible;  // Is the player seeing it right now?
-    private boolean isExplored; // Has the player seen it before? (Fog of war)
+    Tile(DungeonLevel level, int x, int y) {
+        this.level = level;
+        this.x = x;
+        this.y = y;
+        this.cell = null;
+    }
 
-    public Tile(TerrainType terrain) {
-        this.terrain = terrain;
-        this.lightColor = BrogueColor.BLACK;
-        this.isVisible = false;
-        this.isExplored = false;
-        this.occupant = null;
-        this.items = new ArrayList<>();
+    /**
+     * The state of a tile that belongs to no level: what {@link #copyTo} writes into a cell.
+     * Visibility is kept in the same flag bits as {@link DungeonLevel} uses, but nothing is remembered.
+     */
+    private static final class DetachedCell {
+        final TerrainType[] layers = new TerrainType[TerrainLayer.COUNT];
+        byte flags;
+        Entity occupant;
+        final List<Item> items = new ArrayList<>();
+        BrogueColor light = BrogueColor.BLACK;
     }
 
     // --- Item management ---
 
     public void addItem(Item item) {
-        items.add(item);
+        if (cell != null) cell.items.add(item);
+        else level.getFloorItems().add(x, y, item);
     }
 
     public void removeItem(Item item) {
-        items.remove(item);
+        if (cell != null) cell.items.remove(item);
+        else level.getFloorItems().remove(x, y, item);
     }
 
+    /**
+     * Returns the items on this tile, bottom first. The list is read-only.
+     */
     public List<Item> getItems() {
-        return items;
+        if (cell != null) return Collections.unmodifiableList(cell.items);
+        return level.getFloorItems().getStack(x, y);
     }
 
     public boolean hasItems() {
-        return !items.isEmpty();
+        if (cell != null) return !cell.items.isEmpty();
+        return level.getFloorItems().hasItems(x, y);
     }
 
     public Item getTopItem() {
-        if (items.isEmpty()) return null;
-        return items.getLast();
+        if (cell != null) return cell.items.isEmpty() ? null : cell.items.getLast();
+        return level.getFloorItems().getTopItem(x, y);
     }
 
-    public TerrainType getTerrain() { return terrain; }
-    public void setTerrain(TerrainType terrain) { this.terrain = terrain; }
+    public TerrainType getTerrain() {
+        if (cell != null) return cell.layers[TerrainLayer.DUNGEON.ordinal()];
+        return level.terrainAt(x, y);
+    }
 
-    public BrogueColor getLightColor() { return lightColor; }
-    public void setLightColor(BrogueColor lightColor) { this.lightColor = lightColor; }
+    public void setTerrain(TerrainType terrain) { setLayer(TerrainLayer.DUNGEON, terrain); }
+
+    public TerrainType getLayer(TerrainLayer layer) {
+        if (cell != null) return cell.layers[layer.ordinal()];
+        return level.getLayer(x, y, layer);
+    }
+
+    public void setLayer(TerrainLayer layer, TerrainType terrain) {
+        if (cell == null) {
+            level.setLayer(x, y, layer, terrain);
+            return;
+        }
+        if (terrain == null && layer == TerrainLayer.DUNGEON) {
+            throw new IllegalArgumentException("The dungeon layer cannot be empty");
+        }
+        cell.layers[layer.ordinal()] = terrain;
+    }
+
+    /**
+     * The terrain to draw for this tile (see {@link DungeonLevel#getDisplayTerrain}).
+     */
+    public TerrainType getDisplayTerrain() {
+        if (cell == null) return level.getDisplayTerrain(x, y);
+        for (int layer = TerrainLayer.SURFACE.ordinal(); layer > 0; layer--) {
+            if (cell.layers[layer] != null) return cell.layers[layer];
+        }
+        return cell.layers[0];
+    }
+
+    /**
+     * The combined {@link TerrainFlags} of every layer on this tile.
+     */
+    public int getTerrainFlags() {
+        if (cell == null) return level.getTerrainFlags(x, y);
+        int combined = 0;
+        for (TerrainType terrain : cell.layers) {
+            if (terrain != null) combined |= terrain.getFlags();
+        }
+        return combined;
+    }
+
+    public BrogueColor getLightColor() { return cell != null ? cell.light : level.lightAt(x, y); }
+
+    public void setLightColor(BrogueColor lightColor) {
+        if (cell != null) cell.light = lightColor;
+        else level.setLightAt(x, y, lightColor);
+    }
+
+    public boolean isVisible() {
+        if (cell != null) return (cell.flags & DungeonLevel.FLAG_VISIBLE) != 0;
+        return level.isVisibleAt(x, y);
+    }
 
-    public boolean isVisible() { return isVisible; }
     public void setVisible(boolean visible) {
-        isVisible = visible;
-        if (visible) {
-            isExplored = true;
+        if (cell == null) {
+            level.setVisibleAt(x, y, visible);
+        } else if (visible) {
+            cell.flags |= DungeonLevel.FLAG_VISIBLE | DungeonLevel.FLAG_EXPLORED;
+        } else {
+            cell.flags &= ~DungeonLevel.FLAG_VISIBLE;
         }
     }
 
-    public boolean isExplored() { return isExplored; }
+    public boolean isExplored() {
+        if (cell != null) return (cell.flags & DungeonLevel.FLAG_EXPLORED) != 0;
+        return level.isExploredAt(x, y);
+    }
+
+    public Entity getOccupant() { return cell != null ? cell.occupant : level.occupantAt(x, y); }
+
+    public void setOccupant(Entity occupant) {
+        if (cell != null) cell.occupant = occupant;
+        else level.setOccupantAt(x, y, occupant);
+    }
 
-    public Entity getOccupant() { return occupant; }
-    public void setOccupant(Entity occupant) { this.occupant = occupant; }
     public boolean hasOccupant() {
-        return this.occupant != null;
+        return getOccupant() != null;
     }
 
     /**
@@ -86,8 +171,21 @@ public class Tile {
      * 'Explored' is not reset because map memory persists.
      */
     public void resetForTurn() {
-        this.isVisible = false;
-        this.lightColor = BrogueColor.BLACK;
+        setVisible(false);
+        setLightColor(BrogueColor.BLACK);
         // In Brogue, there's always ambient light, but that is calculated later
     }
+
+    /**
+     * Copies this tile's full state into a cell of another level.
+     */
+    void copyTo(DungeonLevel target, int targetX, int targetY) {
+        for (TerrainLayer layer : TerrainLayer.values()) {
+            target.setLayer(targetX, targetY, layer, getLayer(layer));
+        }
+        target.setFlagsAt(targetX, targetY, cell != null ? cell.flags : level.flagsAt(x, y));
+        target.setOccupantAt(targetX, targetY, getOccupant());
+        target.getFloorItems().setStack(targetX, targetY, getItems());
+        target.setLightAt(targetX, targetY, getLightColor());
+    }
 }
@@ -1,6 +1,7 @@
 package lucas.games.brogue.backend.entities;
 
 import lucas.games.brogue.backend.BrogueColor;
+import lucas.games.brogue.backend.LightSource;
 import lucas.games.brogue.backend.Position;
 import lucas.games.brogue.backend.entities.items.Item;
 
@@ -18,6 +19,8 @@ public class Creature extends Entity {
     private int experience;
     private int xpValue; // how much XP this creature gives when killed
 
+    private LightSource light; // carried light (torch, glow), or null
+
     public Creature(Position position,
                     char symbol,
                     BrogueColor color,
@@ -40,6 +43,12 @@ public class Creature extends Entity {
     public int getXpValue()    { return xpValue; }
     public void setXpValue(int xpValue) { this.xpValue = xpValue; }
 
+    /**
+     * The light this creature carries or emits, which follows it around. May be null.
+     */
+    public LightSource getLight() { return light; }
+    public void setLight(LightSource light) { this.light = light; }
+
     public boolean isDead() {
         return currentHp <= 0;
     }
@@ -9,9 +9,13 @@ import lucas.games.brogue.backend.Position;
  */
 public abstract class Entity {
 
+    /** Id of an entity that is not in any {@link EntityRegistry}. */
+    public static final int NO_ID = -1;
+
     private Position position;
     private char symbol;
     private BrogueColor color;
+    private int id = NO_ID;
 
     public Entity(Position position, char symbol, BrogueColor color) {
         this.position = position;
@@ -19,6 +23,18 @@ public abstract class Entity {
         this.color = color;
     }
 
+    /**
+     * The id given by the registry holding this entity, or {@link #NO_ID}.
+     * It stays the same for as long as the entity is registered.
+     */
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
     public Position getPosition() {
         return position;
     }
@@ -0,0 +1,142 @@
+package lucas.games.brogue.backend.entities;
+
+import java.util.Arrays;
+
+/**
+ * A registry of one kind of entity, stored densely for fast iteration.
+ * <p>
+ *     Entities sit in a packed array in no particular order and are visited by index
+ *     ({@link #get(int)} from 0 to {@link #size()} - 1). Each one is given a stable id when it is
+ *     added, which maps to its current slot, so lookups by id and removals are O(1): the last
+ *     entity is swapped into the hole. Ids are not reused until the registry is cleared.
+ * </p>
+ * <p>
+ *     Removals requested while a system is iterating (a monster killed mid-turn) are buffered
+ *     with {@link #requestRemoval(Entity)} and applied by {@link #flushRemovals()} at the end of
+ *     the phase, so the slots do not shift under the loop.
+ * </p>
+ */
+public class EntityRegistry<T extends Entity> {
+
+    private Entity[] entities = new Entity[16];
+    private int size;
+
+    // Slot of each id, or -1 once it has been removed
+    private int[] slots = new int[16];
+    private int nextId;
+
+    private Entity[] pending = new Entity[8];
+    private int pendingCount;
+
+    /**
+     * Registers an entity.
+     * @return its id.
+     * @throws IllegalStateException if the entity is already registered.
+     */
+    public int add(T entity) {
+        if (entity.getId() != Entity.NO_ID) {
+            throw new IllegalStateException("Entity is already registered: " + entity);
+        }
+        if (size == entities.length) {
+            entities = Arrays.copyOf(entities, size * 2);
+        }
+        if (nextId == slots.length) {
+            slots = Arrays.copyOf(slots, nextId * 2);
+        }
+        int id = nextId++;
+        entities[size] = entity;
+        slots[id] = size++;
+        entity.setId(id);
+        return id;
+    }
+
+    /**
+     * Removes an entity straight away, moving the last entity into its slot.
+     * @return true if the entity was in this registry.
+     */
+    public boolean remove(T entity) {
+        int slot = slotOf(entity);
+        if (slot < 0) return false;
+
+        int last = --size;
+        Entity moved = entities[last];
+        entities[slot] = moved;
+        slots[moved.getId()] = slot;
+        entities[last] = null;
+        slots[entity.getId()] = -1;
+        entity.setId(Entity.NO_ID);
+        return true;
+    }
+
+    /**
+     * Asks for an entity to be removed at the next {@link #flushRemovals()}. Until then it stays in place.
+     */
+    public void requestRemoval(T entity) {
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+        }
+        pending[pendingCount++] = entity;
+    }
+
+    /**
+     * Applies the removals requested since the last flush.
+     * @return the number of entities removed.
+     */
+    @SuppressWarnings("unchecked")
+    public int flushRemovals() {
+        int removed = 0;
+        for (int i = 0; i < pendingCount; i++) {
+            if (remove((T) pending[i])) removed++;
+            pending[i] = null;
+        }
+        pendingCount = 0;
+        return removed;
+    }
+
+    private int slotOf(Entity entity) {
+        int id = entity.getId();
+        if (id < 0 || id >= nextId) return -1;
+        int slot = slots[id];
+        // The id may belong to another registry
+        return slot >= 0 && entities[slot] == entity ? slot : -1;
+    }
+
+    public boolean contains(Entity entity) {
+        return slotOf(entity) >= 0;
+    }
+
+    /**
+     * The entity in a slot (0 to {@link #size()} - 1). Slots change when entities are removed.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) entities[index];
+    }
+
+    /**
+     * The entity with an id, or null if it has been removed.
+     */
+    @SuppressWarnings("unchecked")
+    public T getById(int id) {
+        if (id < 0 || id >= nextId || slots[id] < 0) return null;
+        return (T) entities[slots[id]];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every entity, including pending removals, and starts ids again from 0.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            entities[i].setId(Entity.NO_ID);
+            entities[i] = null;
+        }
+        Arrays.fill(pending, 0, pendingCount, null);
+        size = 0;
+        nextId = 0;
+        pendingCount = 0;
+    }
+}
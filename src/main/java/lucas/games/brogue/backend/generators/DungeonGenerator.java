@@ -6,6 +6,7 @@ import lucas.games.brogue.backend.data.SpawnTable;
 import lucas.games.brogue.backend.entities.Entity;
 import lucas.games.brogue.backend.entities.Monster;
 import lucas.games.brogue.backend.entities.items.*;
+import lucas.games.brogue.backend.systems.StaticLightBaker;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -20,6 +21,7 @@ public class DungeonGenerator {
     private final BrogueRandom random;
     private final int depth;
     private final SpawnTable spawnTable;
+    private final StaticLightBaker lightBaker = new StaticLightBaker();
 
     public DungeonGenerator(DungeonLevel level, int seed, int depth) {
         this.level = level;
@@ -111,9 +113,17 @@ public class DungeonGenerator {
         if (!rooms.isEmpty()) {
             Rect lastRoom = rooms.getLast();
             Position stairPos = lastRoom.getCenter();
-            level.setTile(stairPos.x(), stairPos.y(), new Tile(TerrainType.STAIRS_DOWN));
+            level.setTerrain(stairPos.x(), stairPos.y(), TerrainType.STAIRS_DOWN);
         }
 
+        // --- Decoration ---
+        // Rolled after everything else so the layout and contents of a seed do not change
+        for (Rect room : rooms) {
+            growFungus(room);
+        }
+        lightBaker.bake(level);
+        level.setRoomGraph(RoomGraph.build(level, rooms));
+
         // Return the center of the FIRST room for the player start
         if (!rooms.isEmpty()) {
             return rooms.getFirst().getCenter();
@@ -122,11 +132,7 @@ public class DungeonGenerator {
     }
 
     private void createRoom(Rect room) {
-        for (int x = room.x(); x < room.x() + room.width(); x++) {
-            for (int y = room.y(); y < room.y() + room.height(); y++) {
-                level.setTile(x, y, new Tile(TerrainType.FLOOR));
-            }
-        }
+        level.fillRect(room, TerrainType.FLOOR);
     }
 
     /**
@@ -134,19 +140,25 @@ public class DungeonGenerator {
      * Uses a simple "L" shape (Horizontal then Vertical)
      */
     private void createCorridor(Position start, Position end) {
-        int x = start.x();
-        int y = start.y();
-
-        // Move horizontally first
-        while (x != end.x()) {
-            level.setTile(x, y, new Tile(TerrainType.FLOOR));
-            x += (end.x() > x) ? 1 : -1;
-        }
+        // Move horizontally first, then vertically from the corner
+        level.carveLine(start.x(), start.y(), end.x(), start.y(), TerrainType.FLOOR);
+        level.carveLine(end.x(), start.y(), end.x(), end.y(), TerrainType.FLOOR);
+    }
 
-        // Move vertically
-        while (y != end.y()) {
-            level.setTile(x, y, new Tile(TerrainType.FLOOR));
-            y += (end.y() > y) ? 1 : -1;
+    /**
+     * Sometimes covers a few floor cells of a room in luminescent fungus.
+     * Fungus is more common deeper down.
+     */
+    private void growFungus(Rect room) {
+        int chance = Math.min(10 + depth * 3, 40);
+        if (!random.randomPercent(chance)) return;
+
+        int patches = random.randomRange(3, 8);
+        for (int i = 0; i < patches; i++) {
+            Position pos = room.getRandomPosition(random);
+            if (level.getLayer(pos.x(), pos.y(), TerrainLayer.DUNGEON) == TerrainType.FLOOR) {
+                level.setLayer(pos.x(), pos.y(), TerrainLayer.SURFACE, TerrainType.LUMINESCENT_FUNGUS);
+            }
         }
     }
 
@@ -1,27 +1,110 @@
 package lucas.games.brogue.backend.systems;
 
+import lucas.games.brogue.backend.BitGrid;
 import lucas.games.brogue.backend.DungeonLevel;
 import lucas.games.brogue.backend.GameManager;
+import lucas.games.brogue.backend.PackedPosition;
 import lucas.games.brogue.backend.Position;
-import lucas.games.brogue.backend.Tile;
-import lucas.games.brogue.backend.entities.Entity;
 import lucas.games.brogue.backend.entities.Monster;
 import lucas.games.brogue.backend.entities.Player;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class AISystem {
 
+    // Precomputed lines covering every monster's view distance
+    private static final RayTable SIGHT_RAYS = RayTable.get(16);
+
+    // When true, "can the monster see the player?" is answered from the player's field of view
+    private boolean symmetricVisibility = true;
+
+    // "Can see the player" field for monsters that see further than the player's FOV radius
+    private final ShadowCaster caster = new ShadowCaster();
+    private BitGrid extendedField;
+    private DungeonLevel extendedLevel;
+    private int extendedOriginX;
+    private int extendedOriginY;
+    private int extendedRadius;
+    private int extendedVersion;
+
+    // Per-monster fields of view, computed in one batch at the start of the turn
+    private final BatchFOVSystem batchFov = new BatchFOVSystem();
+    private Monster[] observers = new Monster[16];
+    private int[] observerOrigins = new int[16];
+    private int[] observerRadii = new int[16];
+    private ObserverField[] observerFields;
+    private int observerCount;
+    private int nextObserver;
+
+    // Monsters within reach of the player, gathered from the level's spatial index each turn
+    private final List<Monster> nearby = new ArrayList<>();
+
+    // Distance to the player, computed the first time a monster needs to step in a turn
+    private final DijkstraMap chaseMap = new DijkstraMap();
+    private boolean chaseMapCurrent;
+
+    public boolean isSymmetricVisibility() {
+        return symmetricVisibility;
+    }
+
+    /**
+     * Switches between symmetric visibility (monsters see the player exactly when the player could
+     * see them, looked up from the player's field of view) and each monster's own field of view.
+     * Monster fields come from the level's {@link LineOfSightIndex} if there is one, and are
+     * otherwise computed in one parallel batch per turn.
+     */
+    public void setSymmetricVisibility(boolean symmetricVisibility) {
+        this.symmetricVisibility = symmetricVisibility;
+    }
+
     public void processMonsters(GameManager gameManager) {
         Player player = gameManager.getPlayer();
-        List<Entity> entities = gameManager.getEntities();
+        DungeonLevel level = gameManager.getDungeonLevel();
+
+        // Only monsters that could see the player act, so the rest of the level is never visited
+        Position playerPos = player.getPosition();
+        nearby.clear();
+        level.getOccupants().collectMonstersInRadius(playerPos.x(), playerPos.y(), gameManager.getMonsterReach(), nearby);
+
+        observerCount = 0;
+        nextObserver = 0;
+        chaseMapCurrent = false;
+        if (!symmetricVisibility && gameManager.getLineOfSightIndex() == null) {
+            computeMonsterFields(nearby, player, level);
+        }
 
-        // Iterate backward or use a copy to avoid concurrent modification if monsters die
-        for (Entity entity : entities) {
-            if (entity instanceof Monster) {
-                takeTurn((Monster) entity, player, gameManager);
+        // The list is a snapshot, so monsters moving or dying during the turn do not disturb it
+        for (Monster monster : nearby) {
+            takeTurn(monster, player, gameManager);
+        }
+        nearby.clear();
+        Arrays.fill(observers, 0, observerCount, null);
+    }
+
+    /**
+     * Computes the field of view of every living monster close enough to possibly see the player.
+     */
+    private void computeMonsterFields(List<Monster> monsters, Player player, DungeonLevel level) {
+        Position playerPos = player.getPosition();
+        for (Monster monster : monsters) {
+            if (monster.isDead()) continue;
+            if (monster.getPosition().distance(playerPos) > monster.getViewDistance()) continue;
+
+            if (observerCount == observers.length) {
+                int capacity = observerCount * 2;
+                observers = Arrays.copyOf(observers, capacity);
+                observerOrigins = Arrays.copyOf(observerOrigins, capacity);
+                observerRadii = Arrays.copyOf(observerRadii, capacity);
             }
+            observers[observerCount] = monster;
+            observerOrigins[observerCount] = PackedPosition.pack(monster.getPosition());
+            // Fields hold cells strictly inside the radius; the view distance itself is inclusive
+            observerRadii[observerCount] = monster.getViewDistance() + 1;
+            observerCount++;
         }
+        observerFields = batchFov.computeFields(level, observerOrigins, observerRadii, observerCount);
     }
 
     private void takeTurn(Monster monster, Player player, GameManager gameManager) {
@@ -35,18 +118,87 @@ public class AISystem {
         if (distance > monster.getViewDistance()) return; // too far away, do nothing
 
         // 2. Check line of sight
-        if (!hasLineOfSight(monsterPos, playerPos, gameManager.getDungeonLevel())) return;
+        if (!canSeePlayer(monster, monsterPos, playerPos, distance, gameManager)) return;
 
         // 3. Combat or move
         if (distance < 1.5) gameManager.handleMonsterAttack(monster, player); // adjacent, diagonals are ~1.4
         else moveTowards(monster, playerPos, gameManager); // move closer
     }
 
+    private boolean canSeePlayer(Monster monster, Position monsterPos, Position playerPos,
+                                 double distance, GameManager gameManager) {
+        DungeonLevel level = gameManager.getDungeonLevel();
+        if (!symmetricVisibility) {
+            // The monster's own line of sight: precomputed if the level has an index, otherwise walked
+            LineOfSightIndex index = gameManager.getLineOfSightIndex();
+            if (index != null && index.getLevel() == level) {
+                return index.canSee(monsterPos.x(), monsterPos.y(), playerPos.x(), playerPos.y());
+            }
+            // Fields were computed in the same order the monsters take their turns
+            if (nextObserver < observerCount && observers[nextObserver] == monster) {
+                return observerFields[nextObserver++].canSee(playerPos.x(), playerPos.y());
+            }
+            return hasLineOfSight(monsterPos, playerPos, level);
+        }
+
+        // The player's field covers this monster: a single bit lookup
+        FOVSystem fov = gameManager.getFovSystem();
+        if (distance < fov.getRadius() && fov.isCurrent(level, playerPos.x(), playerPos.y())) {
+            return fov.getVisibleGrid().get(monsterPos.x(), monsterPos.y());
+        }
+
+        // Otherwise use a larger field cast from the player, computed at most once per turn and radius
+        return extendedField(level, playerPos, monster.getViewDistance() + 1).get(monsterPos.x(), monsterPos.y());
+    }
+
+    private BitGrid extendedField(DungeonLevel level, Position origin, int radius) {
+        if (level == extendedLevel && level.getOpacityVersion() == extendedVersion
+                && origin.x() == extendedOriginX && origin.y() == extendedOriginY && radius <= extendedRadius) {
+            return extendedField;
+        }
+
+        if (extendedField == null || extendedField.getWidth() != level.getWidth()
+                || extendedField.getHeight() != level.getHeight()) {
+            extendedField = new BitGrid(level.getWidth(), level.getHeight());
+        } else {
+            // Only the rows around the previous origin can hold set bits
+            int y0 = Math.max(0, extendedOriginY - extendedRadius);
+            int y1 = Math.min(extendedField.getHeight() - 1, extendedOriginY + extendedRadius);
+            for (int y = y0; y <= y1; y++) {
+                extendedField.setRange(y, 0, extendedField.getWidth(), false);
+            }
+        }
+        caster.cast(level.getOpacityGrid(), origin.x(), origin.y(), radius, extendedField::set);
+
+        extendedLevel = level;
+        extendedOriginX = origin.x();
+        extendedOriginY = origin.y();
+        extendedRadius = radius;
+        extendedVersion = level.getOpacityVersion();
+        return extendedField;
+    }
+
     /**
-     * Bresenham's Line Algorithm to check for obstacles between two points
+     * Bresenham's Line Algorithm to check for obstacles between two points.
+     * Lines within {@link #SIGHT_RAYS} range are read from the precomputed table.
      * @return true if there is a clear line of sight, false if blocked.
      */
     private boolean hasLineOfSight(Position start, Position end, DungeonLevel level) {
+        int rayX = end.x() - start.x();
+        int rayY = end.y() - start.y();
+        if (SIGHT_RAYS.covers(rayX, rayY)) {
+            // Every cell between the two ends (the last ray cell is the target itself)
+            int from = SIGHT_RAYS.start(rayX, rayY);
+            int to = from + SIGHT_RAYS.length(rayX, rayY) - 1;
+            for (int i = from; i < to; i++) {
+                int offset = SIGHT_RAYS.cell(i);
+                if (level.isOpaque(start.x() + PackedPosition.x(offset), start.y() + PackedPosition.y(offset))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
         int x0 = start.x();
         int y0 = start.y();
         int x1 = end.x();
@@ -64,8 +216,7 @@ public class AISystem {
             // Check if this tile blocks light
             // Skip the starting tile (the monster's position)
             if (x0 != start.x() || y0 != start.y()) {
-                Tile t = level.getTile(x0, y0);
-                if (t == null || t.getTerrain().blocksLight()) {
+                if (level.isOpaque(x0, y0)) {
                     return false;
                 }
             }
@@ -82,33 +233,31 @@ public class AISystem {
         }
     }
 
+    /**
+     * Steps the monster one cell downhill on the chase map, around walls if need be.
+     * The map is computed from the player's position once per turn and shared by every monster.
+     */
     private void moveTowards(Monster monster, Position target, GameManager gm) {
-        Position current = monster.getPosition();
-        Position bestMove = current;
-        double closestDist = current.distanceSquared(target);
-
-        // Check all 8 neighbours
-        for (int dx = -1; dx <= 1; dx++) {
-            for (int dy = -1; dy <= 1; dy++) {
-                if (dx == 0 && dy == 0) continue;
-
-                Position candidate = current.offset(dx, dy);
-
-                // must be passable and closer to target
-                if (gm.getDungeonLevel().isValidCoordinate(candidate) &&
-                    gm.getDungeonLevel().getTile(candidate).getTerrain().isPassable() &&
-                    !gm.getDungeonLevel().getTile(candidate).hasOccupant()) {
-                    double dist = candidate.distanceSquared(target);
-                    if (dist < closestDist) {
-                        closestDist = dist;
-                        bestMove = candidate;
-                    }
-                }
-            }
+        DungeonLevel level = gm.getDungeonLevel();
+        if (!chaseMapCurrent) {
+            chaseMap.clearGoals();
+            chaseMap.addGoal(target.x(), target.y(), 0);
+            chaseMap.compute(level);
+            chaseMapCurrent = true;
         }
 
-        if (!bestMove.equals(current)) {
-            gm.moveEntity(monster, bestMove);
+        int current = PackedPosition.pack(monster.getPosition());
+        int step = chaseMap.nextStep(level, current);
+        if (step != current) {
+            gm.moveEntity(monster, step);
         }
     }
+
+    /**
+     * Distance of every cell to the player, as computed during the last turn in which a monster
+     * chased the player. Other systems may read it, but it is only refreshed on demand.
+     */
+    public DijkstraMap getChaseMap() {
+        return chaseMap;
+    }
 }
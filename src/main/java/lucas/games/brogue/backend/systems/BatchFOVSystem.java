@@ -0,0 +1,99 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.BitGrid;
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.PackedPosition;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the fields of view of many observers (typically monsters) in one call.
+ * <p>
+ *     Every observer only reads the level's opacity, which does not change during the call,
+ *     so the work is split across a {@link ForkJoinPool}. Each worker thread uses its own
+ *     {@link ShadowCaster}, and each observer writes to its own {@link ObserverField}.
+ *     Small batches are computed on the calling thread.
+ * </p>
+ * <p>
+ *     The returned fields are reused by the next call, so read them before computing again.
+ * </p>
+ */
+public class BatchFOVSystem {
+
+    // Observers per fork/join leaf task; batches this small also skip the pool entirely
+    private static final int BATCH = 16;
+
+    private static final ThreadLocal<ShadowCaster> CASTERS = ThreadLocal.withInitial(ShadowCaster::new);
+
+    private final ForkJoinPool pool;
+    private ObserverField[] fields = new ObserverField[0];
+
+    public BatchFOVSystem() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BatchFOVSystem(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Computes the field of view of every observer.
+     * @param origins The packed position of each observer (see {@link PackedPosition}).
+     * @param radii The view radius of each observer.
+     * @param count The number of observers to compute, from the start of both arrays.
+     * @return One field per observer, in the same order. Only the first {@code count} entries are valid.
+     */
+    public ObserverField[] computeFields(DungeonLevel level, int[] origins, int[] radii, int count) {
+        if (fields.length < count) {
+            int oldLength = fields.length;
+            fields = Arrays.copyOf(fields, Math.max(count, oldLength * 2));
+            for (int i = oldLength; i < fields.length; i++) fields[i] = new ObserverField();
+        }
+
+        FieldTask task = new FieldTask(level.getOpacityGrid(), origins, radii, 0, count);
+        if (count <= BATCH) {
+            task.compute();
+        } else {
+            pool.invoke(task);
+        }
+        return fields;
+    }
+
+    private final class FieldTask extends RecursiveAction {
+
+        private final BitGrid opaque;
+        private final int[] origins;
+        private final int[] radii;
+        private final int from;
+        private final int to;
+
+        FieldTask(BitGrid opaque, int[] origins, int[] radii, int from, int to) {
+            this.opaque = opaque;
+            this.origins = origins;
+            this.radii = radii;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new FieldTask(opaque, origins, radii, from, mid),
+                        new FieldTask(opaque, origins, radii, mid, to));
+                return;
+            }
+
+            ShadowCaster caster = CASTERS.get();
+            for (int i = from; i < to; i++) {
+                ObserverField field = fields[i];
+                int x = PackedPosition.x(origins[i]);
+                int y = PackedPosition.y(origins[i]);
+                field.reset(x, y, radii[i]);
+                caster.cast(opaque, x, y, radii[i], field::set);
+            }
+        }
+    }
+}
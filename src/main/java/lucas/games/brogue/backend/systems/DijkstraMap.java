@@ -0,0 +1,215 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.PackedPosition;
+
+import java.util.Arrays;
+
+/**
+ * A distance field over a level: for every passable cell, the cost of the cheapest walk
+ * to the nearest goal. Moving to the lowest neighbour follows a shortest path.
+ * <p>
+ *     Costs are integers ({@value #ORTHOGONAL_COST} per orthogonal step, {@value #DIAGONAL_COST}
+ *     per diagonal one), so the frontier is kept in a circular bucket queue with one bucket per
+ *     possible step cost instead of a heap. Goals may start at any value, including negative
+ *     ones; they are sorted once and merged into the queue as the distance sweeps past them.
+ *     This is what lets one map be turned into a safety map for fleeing
+ *     (see {@link #computeSafetyMap(DungeonLevel, DijkstraMap)}).
+ * </p>
+ * <p>
+ *     Distances, goals and queue buckets are kept in reusable primitive arrays, so recomputing
+ *     a map of the same size allocates nothing. Occupants are ignored: the map describes the
+ *     terrain, and {@link #nextStep(DungeonLevel, int)} skips occupied cells.
+ * </p>
+ */
+public class DijkstraMap {
+
+    public static final int ORTHOGONAL_COST = 10;
+    public static final int DIAGONAL_COST = 14;
+
+    /** Distance of cells that cannot reach any goal (and of impassable cells). */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // Safety maps scale the threat distance by -FLEE_NUMERATOR / FLEE_DENOMINATOR (Brogue uses -1.2)
+    private static final int FLEE_NUMERATOR = 6;
+    private static final int FLEE_DENOMINATOR = 5;
+
+    private static final int BUCKETS = DIAGONAL_COST + 1;
+
+    private int width;
+    private int height;
+    private int[] distance = new int[0];
+
+    // Goals as (value << 32) | packed position, as added
+    private long[] goals = new long[16];
+    private int goalCount;
+    // Valid goals as (value << 32) | cell index, sorted before each sweep
+    private long[] sortedGoals = new long[16];
+
+    // Circular bucket queue of cell indices, one bucket per distance modulo BUCKETS
+    private final int[][] buckets = new int[BUCKETS][16];
+    private final int[] bucketSizes = new int[BUCKETS];
+
+    public void clearGoals() {
+        goalCount = 0;
+    }
+
+    /**
+     * Adds a goal cell with a starting value (0 for an ordinary destination).
+     * If a cell is added more than once, the lowest value wins.
+     */
+    public void addGoal(int x, int y, int value) {
+        if (goalCount == goals.length) {
+            goals = Arrays.copyOf(goals, goalCount * 2);
+        }
+        goals[goalCount++] = ((long) value << 32) | (PackedPosition.pack(x, y) & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Fills the map with the distance from every cell to its nearest goal.
+     * Goals on impassable cells or outside the level are ignored.
+     */
+    public void compute(DungeonLevel level) {
+        width = level.getWidth();
+        height = level.getHeight();
+        int cellCount = width * height;
+        if (distance.length != cellCount) {
+            distance = new int[cellCount];
+        }
+        Arrays.fill(distance, UNREACHABLE);
+
+        // Convert goals to cell indices, keeping only valid ones
+        if (sortedGoals.length < goalCount) {
+            sortedGoals = new long[goals.length];
+        }
+        int valid = 0;
+        for (int g = 0; g < goalCount; g++) {
+            int packed = (int) goals[g];
+            int x = PackedPosition.x(packed);
+            int y = PackedPosition.y(packed);
+            if (!level.isValidCoordinate(x, y) || !level.isPassable(x, y)) continue;
+
+            int value = (int) (goals[g] >> 32);
+            int index = y * width + x;
+            sortedGoals[valid++] = ((long) value << 32) | index;
+            distance[index] = Math.min(distance[index], value);
+        }
+        if (valid == 0) return;
+        Arrays.sort(sortedGoals, 0, valid);
+        sweep(level, valid);
+    }
+
+    private void sweep(DungeonLevel level, int validGoals) {
+        Arrays.fill(bucketSizes, 0);
+        int queued = 0;
+        int nextGoal = 0;
+        int current = (int) (sortedGoals[0] >> 32);
+
+        while (true) {
+            // Goals starting at the current distance join the frontier now
+            while (nextGoal < validGoals && (int) (sortedGoals[nextGoal] >> 32) == current) {
+                push(current, (int) sortedGoals[nextGoal++]);
+                queued++;
+            }
+
+            int bucket = Math.floorMod(current, BUCKETS);
+            while (bucketSizes[bucket] > 0) {
+                int index = buckets[bucket][--bucketSizes[bucket]];
+                queued--;
+                // Stale entry: the cell was reached more cheaply after it was queued
+                if (distance[index] != current) continue;
+                queued += relax(level, index, current);
+            }
+
+            if (queued > 0) {
+                current++;
+            } else if (nextGoal < validGoals) {
+                current = (int) (sortedGoals[nextGoal] >> 32);
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Lowers the neighbours of a settled cell.
+     * @return the number of cells queued.
+     */
+    private int relax(DungeonLevel level, int index, int current) {
+        int x = index % width;
+        int y = index / width;
+        int pushed = 0;
+        for (int dir = 0; dir < PackedPosition.DIRECTION_COUNT; dir++) {
+            int dx = PackedPosition.directionDx(dir);
+            int dy = PackedPosition.directionDy(dir);
+            int nx = x + dx;
+            int ny = y + dy;
+            if (nx < 0 || nx >= width || ny < 0 || ny >= height || !level.isPassable(nx, ny)) continue;
+
+            int next = current + (dx != 0 && dy != 0 ? DIAGONAL_COST : ORTHOGONAL_COST);
+            int neighbour = ny * width + nx;
+            if (next < distance[neighbour]) {
+                distance[neighbour] = next;
+                push(next, neighbour);
+                pushed++;
+            }
+        }
+        return pushed;
+    }
+
+    private void push(int value, int index) {
+        int bucket = Math.floorMod(value, BUCKETS);
+        int size = bucketSizes[bucket];
+        if (size == buckets[bucket].length) {
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], size * 2);
+        }
+        buckets[bucket][size] = index;
+        bucketSizes[bucket] = size + 1;
+    }
+
+    /**
+     * Turns a map into one for fleeing from its goals: every reachable cell of {@code threat}
+     * becomes a goal valued at -1.2 times its distance, and the result is recomputed. Walking
+     * downhill on the result leads away from the threat, but around it rather than into
+     * dead ends, because nearby open space scores better than a corner that is only slightly further.
+     */
+    public void computeSafetyMap(DungeonLevel level, DijkstraMap threat) {
+        clearGoals();
+        for (int index = 0; index < threat.distance.length; index++) {
+            int d = threat.distance[index];
+            if (d == UNREACHABLE) continue;
+            addGoal(index % threat.width, index / threat.width, -(d * FLEE_NUMERATOR / FLEE_DENOMINATOR));
+        }
+        compute(level);
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    /**
+     * Distance of a cell to the nearest goal, or {@link #UNREACHABLE}.
+     */
+    public int getDistance(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return UNREACHABLE;
+        return distance[y * width + x];
+    }
+
+    /**
+     * The lowest neighbour of a cell that is passable, unoccupied and strictly lower than the cell itself.
+     * @param packed The current cell (see {@link PackedPosition}).
+     * @return the packed neighbour to step to, or {@code packed} if there is no better cell.
+     */
+    public int nextStep(DungeonLevel level, int packed) {
+        int best = packed;
+        int bestDistance = getDistance(PackedPosition.x(packed), PackedPosition.y(packed));
+        for (int dir = 0; dir < PackedPosition.DIRECTION_COUNT; dir++) {
+            int candidate = PackedPosition.neighbor(packed, dir);
+            int d = getDistance(PackedPosition.x(candidate), PackedPosition.y(candidate));
+            if (d < bestDistance && !level.isOccupied(candidate)) {
+                bestDistance = d;
+                best = candidate;
+            }
+        }
+        return best;
+    }
+}
@@ -1,87 +1,156 @@
 package lucas.games.brogue.backend.systems;
 
+import lucas.games.brogue.backend.BitGrid;
 import lucas.games.brogue.backend.DungeonLevel;
 import lucas.games.brogue.backend.Position;
-import lucas.games.brogue.backend.Tile;
 
+/**
+ * Computes the player's field of view.
+ * <p>
+ *     Each field is cast into one of two visibility bitmaps and compared with the other, which
+ *     still holds the previous field. Only the difference is written back to the level, and it
+ *     is published as a {@link VisibilityDelta} so renderers and clients can repaint just the
+ *     changed cells. If neither the origin, the radius nor the level's
+ *     {@link DungeonLevel#getOpacityVersion() opacity version} changed, and the level's visible
+ *     flags have not been wiped since, the previous field is still correct and nothing is recomputed.
+ * </p>
+ */
 public class FOVSystem {
 
-    // Multipliers for transforming coordinates into 8 octants
-    private static final int[][] MULTIPLIERS = {
-            {1, 0, 0, -1, -1, 0, 0, 1},
-            {0, 1, -1, 0, 0, -1, 1, 0},
-            {0, 1, 1, 0, 0, -1, -1, 0},
-            {1, 0, 0, 1, -1, 0, 0, -1}
-    };
+    private final ShadowCaster caster = new ShadowCaster();
+    private final VisibilityDelta delta = new VisibilityDelta();
 
-    public void calculateFOV(DungeonLevel level, Position origin, int radius) {
-        // Reset visibility for new turn
-        level.prepareTurn();
+    // Double-buffered fields; rows outside [rowMin, rowMax] of a buffer are known to be clear
+    private BitGrid current;
+    private BitGrid previous;
+    private int currentRowMin = Integer.MAX_VALUE;
+    private int currentRowMax = -1;
+    private int previousRowMin = Integer.MAX_VALUE;
+    private int previousRowMax = -1;
+
+    private DungeonLevel lastLevel;
+    private int lastOriginX;
+    private int lastOriginY;
+    private int lastRadius;
+    private int lastVersion;
+    private int lastVisibilityEpoch;
 
-        // Origin is always visible
-        Tile originTile = level.getTile(origin);
-        if (originTile != null) {
-            originTile.setVisible(true);
+    public void calculateFOV(DungeonLevel level, Position origin, int radius) {
+        if (level == lastLevel && level.getOpacityVersion() == lastVersion
+                && level.getVisibilityEpoch() == lastVisibilityEpoch
+                && origin.x() == lastOriginX && origin.y() == lastOriginY && radius == lastRadius) {
+            delta.clear(false);
+            return;
         }
 
-        // Cast shadows in 8 octants
-        for (int i = 0; i < 8; i++) {
-            castLight(level, origin, radius, 1, 1.0f, 0.0f,
-                      MULTIPLIERS[0][i], MULTIPLIERS[1][i],
-                      MULTIPLIERS[2][i], MULTIPLIERS[3][i]);
+        boolean sameLevel = level == lastLevel;
+        // Someone else wiped the level's visible flags: the whole field has to be marked again
+        boolean wiped = sameLevel && level.getVisibilityEpoch() != lastVisibilityEpoch;
+        if (!sameLevel) {
+            // Unknown level: reset visibility for the whole map once, and start from empty buffers
+            level.prepareTurn();
+            if (current == null || current.getWidth() != level.getWidth() || current.getHeight() != level.getHeight()) {
+                current = new BitGrid(level.getWidth(), level.getHeight());
+                previous = new BitGrid(level.getWidth(), level.getHeight());
+            } else {
+                current.fill(false);
+                previous.fill(false);
+            }
+            currentRowMin = previousRowMin = Integer.MAX_VALUE;
+            currentRowMax = previousRowMax = -1;
         }
+        delta.clear(!sameLevel);
+
+        swapBuffers();
+        caster.cast(level.getOpacityGrid(), origin.x(), origin.y(), radius, current::set);
+        currentRowMin = Math.max(0, origin.y() - radius);
+        currentRowMax = Math.min(level.getHeight() - 1, origin.y() + radius);
+        applyDifference(level, wiped);
+
+        lastLevel = level;
+        lastOriginX = origin.x();
+        lastOriginY = origin.y();
+        lastRadius = radius;
+        lastVersion = level.getOpacityVersion();
+        lastVisibilityEpoch = level.getVisibilityEpoch();
     }
 
-    private void castLight(DungeonLevel level, Position origin, int radius,
-                           int row, float startSlope, float endSlope,
-                           int xx, int xy, int yx, int yy) {
-        if (startSlope < endSlope) {
-            return;
+    /**
+     * Returns what changed during the last call to {@link #calculateFOV}.
+     */
+    public VisibilityDelta getDelta() {
+        return delta;
+    }
+
+    /**
+     * Returns the visibility bitmap of the last field, or null before the first calculation.
+     * Callers must treat it as read-only.
+     */
+    public BitGrid getVisibleGrid() {
+        return current;
+    }
+
+    /**
+     * Returns true if the last field was computed on this level from the given origin, and
+     * nothing affecting opacity has changed since, so {@link #getVisibleGrid()} is up to date.
+     */
+    public boolean isCurrent(DungeonLevel level, int originX, int originY) {
+        return level == lastLevel && level.getOpacityVersion() == lastVersion
+                && originX == lastOriginX && originY == lastOriginY;
+    }
+
+    /**
+     * The radius of the last field. Cells are inside it while dx*dx + dy*dy &lt; radius*radius.
+     */
+    public int getRadius() {
+        return lastRadius;
+    }
+
+    /**
+     * Forgets the previous field, so the next calculation starts from a full clear.
+     */
+    public void invalidate() {
+        lastLevel = null;
+    }
+
+    private void swapBuffers() {
+        // The spare buffer still holds the field before last; clear only the rows it used
+        BitGrid spare = previous;
+        for (int y = previousRowMin; y <= previousRowMax; y++) {
+            spare.setRange(y, 0, spare.getWidth(), false);
         }
 
-        float nextStartSlope = startSlope;
-        for (int i = row; i <= radius; i++) {
-            boolean blocked = false;
-            for (int dx = -i, dy = -i; dx <= 0; dx++) {
-                float lSlope = (dx - 0.5f) / (dy + 0.5f);
-                float rSlope = (dx + 0.5f) / (dy - 0.5f);
-
-                if (startSlope < rSlope) {
-                    continue;
-                } else if (endSlope > lSlope) {
-                    break;
-                }
+        previous = current;
+        previousRowMin = currentRowMin;
+        previousRowMax = currentRowMax;
+        current = spare;
+    }
 
-                // Transform logic to actual map coordinates
-                int mapX = origin.x() + dx * xx + dy * xy;
-                int mapY = origin.y() + dx * yx + dy * yy;
+    /**
+     * Writes the new field into the level and records the delta against the previous one.
+     * Only changed cells are written, unless the level's flags were wiped since the last field.
+     */
+    private void applyDifference(DungeonLevel level, boolean remarkAll) {
+        int rowMin = Math.min(currentRowMin, previousRowMin);
+        int rowMax = Math.max(currentRowMax, previousRowMax);
 
-                // Radius check (circular vision)
-                if ((dx * dx + dy * dy) < (radius * radius)) {
-                    Tile tile = level.getTile(mapX, mapY);
-                    if (tile != null) {
-                        tile.setVisible(true);
-                    }
-                }
+        int wordsPerRow = current.getWordsPerRow();
+        for (int y = rowMin; y <= rowMax; y++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                long now = current.word(y, w);
+                long before = previous.word(y, w);
 
-                // Logic for walls blocking light
-                Tile tile = level.getTile(mapX, mapY);
-                if (blocked) {
-                    if (tile == null || tile.getTerrain().blocksLight()) {
-                        nextStartSlope = rSlope;
-                        continue;
-                    } else {
-                        blocked = false;
-                        startSlope = nextStartSlope;
-                    }
-                } else if (tile != null && tile.getTerrain().blocksLight() && i < radius) {
-                    blocked = true;
-                    castLight(level, origin, radius, i + 1, startSlope, lSlope, xx, xy, yx, yy);
-                    nextStartSlope = rSlope;
+                for (long bits = remarkAll ? now : now & ~before; bits != 0; bits &= bits - 1) {
+                    level.markVisible((w << 6) + Long.numberOfTrailingZeros(bits), y);
+                }
+                for (long bits = now & ~before; bits != 0; bits &= bits - 1) {
+                    delta.addEntered((w << 6) + Long.numberOfTrailingZeros(bits), y);
+                }
+                for (long bits = before & ~now; bits != 0; bits &= bits - 1) {
+                    int x = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    level.clearVisible(x, y);
+                    delta.addLeft(x, y);
                 }
-            }
-            if (blocked) {
-                break;
             }
         }
     }
@@ -0,0 +1,251 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.BitGrid;
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.LightSource;
+import lucas.games.brogue.backend.StaticLightmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Propagates coloured light from point sources into the level's light plane.
+ * <p>
+ *     Each source is shadowcast like a field of view, and every lit cell receives the source's
+ *     colour scaled by a linear falloff. The per-cell falloff of each source is cached, so a
+ *     source that changes is relit by subtracting its old contribution and adding the new one.
+ *     Sources that have not changed, and whose area contains no cell whose opacity changed, are
+ *     left alone. No colour objects are created; everything is accumulated as floats.
+ * </p>
+ * <p>
+ *     The level's baked {@link StaticLightmap} is laid down first,
+ *     once per light epoch, and the dynamic sources are added on top of it.
+ * </p>
+ */
+public class LightingSystem {
+
+    private final ShadowCaster caster = new ShadowCaster();
+    // Cells already lit by the source being cast (the caster may report a cell twice)
+    private final ObserverField seen = new ObserverField();
+
+    // Registered sources, and what each one last added to the level (same index)
+    private final List<LightSource> sources = new ArrayList<>();
+    private final List<Contribution> contributions = new ArrayList<>();
+    private final List<Contribution> removed = new ArrayList<>();
+
+    private DungeonLevel level;
+    private BitGrid opacitySnapshot;
+    private int opacityVersion;
+    private int lightEpoch;
+    private boolean staticApplied;
+
+    // Scratch list of cells whose opacity changed since the last update, as x/y pairs
+    private int[] changedCells = new int[32];
+    private int changedCount;
+
+    public void addLight(LightSource light) {
+        sources.add(light);
+        contributions.add(new Contribution());
+    }
+
+    /**
+     * Removes a light. Its contribution disappears from the level on the next {@link #update}.
+     */
+    public void removeLight(LightSource light) {
+        int i = sources.indexOf(light);
+        if (i < 0) return;
+
+        // Swap-remove to keep both lists aligned without shifting
+        int last = sources.size() - 1;
+        Contribution contribution = contributions.get(i);
+        sources.set(i, sources.get(last));
+        contributions.set(i, contributions.get(last));
+        sources.remove(last);
+        contributions.remove(last);
+        if (contribution.applied) removed.add(contribution);
+    }
+
+    /**
+     * Removes every light.
+     */
+    public void clearLights() {
+        for (int i = sources.size() - 1; i >= 0; i--) {
+            removeLight(sources.get(i));
+        }
+    }
+
+    public List<LightSource> getLights() {
+        return Collections.unmodifiableList(sources);
+    }
+
+    /**
+     * Brings the level's light up to date with the current sources.
+     * @return the number of sources that were relit.
+     */
+    public int update(DungeonLevel level) {
+        if (level != this.level) {
+            attach(level);
+        }
+
+        if (level.getLightEpoch() != lightEpoch) {
+            // The level's light was wiped, so nothing we added is there any more
+            for (Contribution contribution : contributions) contribution.applied = false;
+            removed.clear();
+            staticApplied = false;
+            lightEpoch = level.getLightEpoch();
+        }
+
+        if (!staticApplied) {
+            level.getStaticLightmap().applyTo(level);
+            staticApplied = true;
+        }
+
+        collectOpacityChanges();
+
+        for (Contribution contribution : removed) {
+            apply(contribution, -1.0f);
+        }
+        removed.clear();
+
+        int relit = 0;
+        for (int i = 0; i < sources.size(); i++) {
+            LightSource light = sources.get(i);
+            Contribution contribution = contributions.get(i);
+            if (contribution.applied && contribution.version == light.getVersion() && !occluderChanged(contribution)) {
+                continue;
+            }
+
+            if (contribution.applied) apply(contribution, -1.0f);
+            cast(light, contribution);
+            apply(contribution, 1.0f);
+            relit++;
+        }
+
+        // Reading the epoch after our own writes: a wipe from here on is someone else's
+        lightEpoch = level.getLightEpoch();
+        return relit;
+    }
+
+    /**
+     * Moves to another level, taking every contribution (and the baked light) off the old one.
+     */
+    private void attach(DungeonLevel newLevel) {
+        if (level != null && level.getLightEpoch() == lightEpoch) {
+            for (Contribution contribution : contributions) {
+                if (contribution.applied) apply(contribution, -1.0f);
+            }
+            for (Contribution contribution : removed) apply(contribution, -1.0f);
+            if (staticApplied) level.getStaticLightmap().removeFrom(level);
+        }
+        staticApplied = false;
+        for (Contribution contribution : contributions) contribution.applied = false;
+        removed.clear();
+
+        level = newLevel;
+        opacitySnapshot = new BitGrid(newLevel.getWidth(), newLevel.getHeight());
+        opacitySnapshot.copyFrom(newLevel.getOpacityGrid());
+        opacityVersion = newLevel.getOpacityVersion();
+        lightEpoch = newLevel.getLightEpoch();
+    }
+
+    private void collectOpacityChanges() {
+        changedCount = 0;
+        if (level.getOpacityVersion() == opacityVersion) return;
+
+        BitGrid opacity = level.getOpacityGrid();
+        int wordsPerRow = opacity.getWordsPerRow();
+        for (int y = 0; y < level.getHeight(); y++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                for (long changed = opacity.word(y, w) ^ opacitySnapshot.word(y, w); changed != 0; changed &= changed - 1) {
+                    if (changedCount + 2 > changedCells.length) {
+                        changedCells = Arrays.copyOf(changedCells, changedCells.length * 2);
+                    }
+                    changedCells[changedCount++] = (w << 6) + Long.numberOfTrailingZeros(changed);
+                    changedCells[changedCount++] = y;
+                }
+            }
+        }
+        opacitySnapshot.copyFrom(opacity);
+        opacityVersion = level.getOpacityVersion();
+    }
+
+    /**
+     * Returns true if a cell whose opacity changed lies within the square the contribution was cast over.
+     */
+    private boolean occluderChanged(Contribution contribution) {
+        for (int i = 0; i < changedCount; i += 2) {
+            if (Math.abs(changedCells[i] - contribution.originX) <= contribution.radius
+                    && Math.abs(changedCells[i + 1] - contribution.originY) <= contribution.radius) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void cast(LightSource light, Contribution contribution) {
+        int originX = light.getX();
+        int originY = light.getY();
+        int radius = light.getRadius();
+
+        contribution.count = 0;
+        contribution.originX = originX;
+        contribution.originY = originY;
+        contribution.radius = radius;
+        contribution.red = light.getRed();
+        contribution.green = light.getGreen();
+        contribution.blue = light.getBlue();
+        contribution.version = light.getVersion();
+
+        if (radius <= 0) return;
+
+        seen.reset(originX, originY, radius);
+        caster.cast(level.getOpacityGrid(), originX, originY, radius, (x, y) -> {
+            if (seen.canSee(x, y)) return;
+            seen.set(x, y);
+            int dx = x - originX;
+            int dy = y - originY;
+            float falloff = 1.0f - (float) Math.sqrt(dx * dx + dy * dy) / radius;
+            contribution.add(x, y, falloff);
+        });
+    }
+
+    private void apply(Contribution contribution, float sign) {
+        for (int i = 0; i < contribution.count; i++) {
+            float amount = contribution.falloff[i] * sign;
+            level.addLight(contribution.cells[2 * i], contribution.cells[2 * i + 1],
+                    contribution.red * amount, contribution.green * amount, contribution.blue * amount);
+        }
+        contribution.applied = sign > 0;
+    }
+
+    /**
+     * What one source added to the level: the cells it lit, their falloff, and the colour used.
+     */
+    private static final class Contribution {
+        int[] cells = new int[64];
+        float[] falloff = new float[32];
+        int count;
+
+        int originX;
+        int originY;
+        int radius;
+        float red;
+        float green;
+        float blue;
+        int version;
+        boolean applied;
+
+        void add(int x, int y, float amount) {
+            if (count == falloff.length) {
+                falloff = Arrays.copyOf(falloff, count * 2);
+                cells = Arrays.copyOf(cells, count * 4);
+            }
+            cells[2 * count] = x;
+            cells[2 * count + 1] = y;
+            falloff[count] = amount;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.BitGrid;
+import lucas.games.brogue.backend.DungeonLevel;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A precomputed answer to "can cell A see cell B?" for every pair of cells on a level.
+ * <p>
+ *     Every transparent cell gets a row: a bitset over all cells of the level, set where the
+ *     shadowcaster reaches from that cell with unlimited range. Rows are trimmed to the words
+ *     between their first and last set bit, which keeps them small on maps made of rooms.
+ *     Opaque cells have no row and cannot see anything. Rows are built in parallel on a
+ *     fork/join pool.
+ * </p>
+ * <p>
+ *     When the level's opacity changes, only the rows of cells that could see a changed cell
+ *     (and of the changed cells themselves) are rebuilt. This happens lazily on the next query.
+ *     Queries are not thread-safe while a rebuild may be pending.
+ * </p>
+ * <p>
+ *     Memory grows with the square of the level area, so this is meant for small and medium
+ *     levels (see {@link #MAX_CELLS}).
+ * </p>
+ */
+public final class LineOfSightIndex {
+
+    /** Largest level (in cells) an index will be built for. */
+    public static final int MAX_CELLS = 1 << 14;
+
+    // Rows per fork/join leaf task
+    private static final int BATCH = 32;
+    // Above cellCount / divisor changed cells, finding affected rows costs more than rebuilding them all
+    private static final int REBUILD_ALL_DIVISOR = 16;
+    private static final long[] EMPTY_ROW = new long[0];
+
+    private final DungeonLevel level;
+    private final int width;
+    private final int height;
+    private final int radius;
+    private final ForkJoinPool pool;
+
+    // Per cell: trimmed visibility bits, and the index of their first word
+    private final long[][] rows;
+    private final int[] rowOffsets;
+
+    // Opacity the rows were built against
+    private final BitGrid builtOpacity;
+    private int builtVersion;
+
+    private LineOfSightIndex(DungeonLevel level, ForkJoinPool pool) {
+        this.level = level;
+        this.width = level.getWidth();
+        this.height = level.getHeight();
+        // Long enough to reach every cell of the level from every other cell
+        this.radius = (int) Math.ceil(Math.sqrt((double) width * width + (double) height * height)) + 1;
+        this.pool = pool;
+        this.rows = new long[width * height][];
+        this.rowOffsets = new int[width * height];
+        this.builtOpacity = new BitGrid(width, height);
+    }
+
+    /**
+     * Builds the index for a level on the common fork/join pool.
+     * @throws IllegalArgumentException if the level has more than {@link #MAX_CELLS} cells.
+     */
+    public static LineOfSightIndex build(DungeonLevel level) {
+        return build(level, ForkJoinPool.commonPool());
+    }
+
+    public static LineOfSightIndex build(DungeonLevel level, ForkJoinPool pool) {
+        if ((long) level.getWidth() * level.getHeight() > MAX_CELLS) {
+            throw new IllegalArgumentException("Level of " + level.getWidth() + "x" + level.getHeight() +
+                    " is too large for a line of sight index");
+        }
+        LineOfSightIndex index = new LineOfSightIndex(level, pool);
+        int[] all = new int[level.getWidth() * level.getHeight()];
+        for (int i = 0; i < all.length; i++) all[i] = i;
+        index.snapshotOpacity();
+        index.rebuild(all, all.length);
+        return index;
+    }
+
+    public DungeonLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * Returns true if the cell at (fromX, fromY) can see the cell at (toX, toY).
+     * Opaque or out-of-bounds observers see nothing. A pending rebuild is applied first.
+     */
+    public boolean canSee(int fromX, int fromY, int toX, int toY) {
+        if (!level.isValidCoordinate(fromX, fromY) || !level.isValidCoordinate(toX, toY)) return false;
+        refresh();
+        return bit(fromY * width + fromX, toY * width + toX);
+    }
+
+    /**
+     * Brings the index up to date with the level's opacity.
+     * @return the number of rows that were rebuilt.
+     */
+    public int refresh() {
+        if (level.getOpacityVersion() == builtVersion) return 0;
+
+        BitGrid opacity = level.getOpacityGrid();
+        int cellCount = width * height;
+
+        // Diff the opacity against the snapshot a word at a time
+        int[] changedCells = new int[16];
+        int changedCount = 0;
+        int wordsPerRow = opacity.getWordsPerRow();
+        for (int y = 0; y < height; y++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                for (long changed = opacity.word(y, w) ^ builtOpacity.word(y, w); changed != 0; changed &= changed - 1) {
+                    changedCells = append(changedCells, changedCount++, y * width + (w << 6) + Long.numberOfTrailingZeros(changed));
+                }
+            }
+        }
+
+        int[] dirtyCells;
+        int dirtyCount = 0;
+        if (changedCount > cellCount / REBUILD_ALL_DIVISOR) {
+            // Too much changed (e.g. the level was regenerated): rebuild everything
+            dirtyCells = new int[cellCount];
+            for (int i = 0; i < cellCount; i++) dirtyCells[dirtyCount++] = i;
+        } else {
+            // The changed cells themselves, and every cell that could see one of them
+            boolean[] dirty = new boolean[cellCount];
+            dirtyCells = new int[16];
+            for (int c = 0; c < changedCount; c++) {
+                int cell = changedCells[c];
+                if (!dirty[cell]) {
+                    dirty[cell] = true;
+                    dirtyCells = append(dirtyCells, dirtyCount++, cell);
+                }
+                for (int observer = 0; observer < cellCount; observer++) {
+                    if (!dirty[observer] && bit(observer, cell)) {
+                        dirty[observer] = true;
+                        dirtyCells = append(dirtyCells, dirtyCount++, observer);
+                    }
+                }
+            }
+        }
+
+        snapshotOpacity();
+        rebuild(dirtyCells, dirtyCount);
+        return dirtyCount;
+    }
+
+    /**
+     * Total number of words held by all rows, for memory accounting.
+     */
+    public long getStoredWords() {
+        long total = 0;
+        for (long[] row : rows) {
+            if (row != null) total += row.length;
+        }
+        return total;
+    }
+
+    private boolean bit(int from, int to) {
+        long[] row = rows[from];
+        if (row == null) return false;
+        int word = (to >>> 6) - rowOffsets[from];
+        return word >= 0 && word < row.length && (row[word] & (1L << to)) != 0;
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) array = Arrays.copyOf(array, index * 2);
+        array[index] = value;
+        return array;
+    }
+
+    private void snapshotOpacity() {
+        builtOpacity.copyFrom(level.getOpacityGrid());
+        builtVersion = level.getOpacityVersion();
+    }
+
+    private void rebuild(int[] cells, int count) {
+        if (count == 0) return;
+        pool.invoke(new BuildTask(cells, 0, count));
+    }
+
+    /**
+     * Rebuilds the rows of a range of cells, splitting until a batch is small enough.
+     */
+    private final class BuildTask extends RecursiveAction {
+
+        private final int[] cells;
+        private final int from;
+        private final int to;
+
+        BuildTask(int[] cells, int from, int to) {
+            this.cells = cells;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATCH) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new BuildTask(cells, from, mid), new BuildTask(cells, mid, to));
+                return;
+            }
+
+            ShadowCaster caster = new ShadowCaster();
+            long[] scratch = new long[(width * height + 63) >>> 6];
+            for (int i = from; i < to; i++) {
+                buildRow(cells[i], caster, scratch);
+            }
+        }
+
+        private void buildRow(int cell, ShadowCaster caster, long[] scratch) {
+            int x = cell % width;
+            int y = cell / width;
+            if (builtOpacity.get(x, y)) {
+                rows[cell] = null;
+                return;
+            }
+
+            Arrays.fill(scratch, 0L);
+            caster.cast(builtOpacity, x, y, radius, (vx, vy) -> {
+                int target = vy * width + vx;
+                scratch[target >>> 6] |= 1L << target;
+            });
+
+            int first = 0;
+            while (first < scratch.length && scratch[first] == 0) first++;
+            int last = scratch.length - 1;
+            while (last >= first && scratch[last] == 0) last--;
+
+            rowOffsets[cell] = first;
+            rows[cell] = first > last ? EMPTY_ROW : Arrays.copyOfRange(scratch, first, last + 1);
+        }
+    }
+}
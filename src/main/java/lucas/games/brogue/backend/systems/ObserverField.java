@@ -0,0 +1,77 @@
+package lucas.games.brogue.backend.systems;
+
+import java.util.Arrays;
+
+/**
+ * The cells one observer can see, stored as bits over the (2r+1) x (2r+1) square around it.
+ * <p>
+ *     A field only costs {@code (2r+1)^2} bits whatever the size of the level, and is reused
+ *     between calculations as long as it is large enough for the radius.
+ * </p>
+ */
+public final class ObserverField {
+
+    private int originX;
+    private int originY;
+    private int radius;
+    private int side;
+    private long[] bits = new long[0];
+
+    public int getOriginX() { return originX; }
+    public int getOriginY() { return originY; }
+    public int getRadius() { return radius; }
+
+    /**
+     * Returns true if the observer can see the cell.
+     */
+    public boolean canSee(int x, int y) {
+        int lx = x - originX + radius;
+        int ly = y - originY + radius;
+        if (lx < 0 || lx >= side || ly < 0 || ly >= side) return false;
+        int i = ly * side + lx;
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * Number of distinct visible cells.
+     */
+    public int countVisible() {
+        int count = 0;
+        int words = (side * side + 63) >>> 6;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(bits[w]);
+        }
+        return count;
+    }
+
+    /**
+     * Calls the visitor once for every visible cell, in row order.
+     */
+    public void forEachVisible(ShadowCaster.CellVisitor visitor) {
+        int words = (side * side + 63) >>> 6;
+        for (int w = 0; w < words; w++) {
+            for (long word = bits[w]; word != 0; word &= word - 1) {
+                int i = (w << 6) + Long.numberOfTrailingZeros(word);
+                visitor.visit(originX - radius + i % side, originY - radius + i / side);
+            }
+        }
+    }
+
+    void reset(int originX, int originY, int radius) {
+        this.originX = originX;
+        this.originY = originY;
+        this.radius = radius;
+        this.side = 2 * radius + 1;
+        int words = (side * side + 63) >>> 6;
+        if (bits.length < words) {
+            bits = new long[words];
+        } else {
+            Arrays.fill(bits, 0, words, 0L);
+        }
+    }
+
+    void set(int x, int y) {
+        int i = (y - originY + radius) * side + (x - originX + radius);
+        bits[i >>> 6] |= 1L << i;
+    }
+}
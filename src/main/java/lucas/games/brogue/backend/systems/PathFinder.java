@@ -0,0 +1,402 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.BitGrid;
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.PackedPosition;
+import lucas.games.brogue.backend.Rect;
+
+import java.util.Arrays;
+
+/**
+ * A* search between two cells, for long single-agent routes (travel, returning home,
+ * following the player) where a whole {@link DijkstraMap} would be wasted work.
+ * <p>
+ *     Steps cost the same as on a Dijkstra map ({@value DijkstraMap#ORTHOGONAL_COST} straight,
+ *     {@value DijkstraMap#DIAGONAL_COST} diagonal) and the heuristic is the matching octile
+ *     distance, so paths are shortest paths. The open set is a binary heap of packed
+ *     {@code long}s, and scores and the closed set are kept in per-cell arrays that are stamped
+ *     with a search number instead of being cleared, so a search touches only the cells it
+ *     reaches and allocates nothing once the arrays have grown to the level's size. Occupants are ignored, as on a Dijkstra map.
+ * </p>
+ * <p>
+ *     Unbounded results are kept in a small direct-mapped cache keyed by (start, goal). Each slot
+ *     keeps its path array and only grows it for a longer path, so the cache stops allocating once
+ *     its slots have seen paths of the usual lengths. A cached
+ *     path is dropped only when a cell on it changes passability, found by diffing a snapshot
+ *     of the level's passability grid whenever {@link DungeonLevel#getPassabilityVersion()}
+ *     moves. A cached path therefore stays walkable, though a newly opened shortcut is not
+ *     taken until the entry is evicted or the level changes.
+ * </p>
+ * <p>
+ *     A path finder keeps its scratch state between calls and is not thread-safe.
+ * </p>
+ */
+public class PathFinder {
+
+    /** Returned when the goal cannot be reached. */
+    public static final int NO_PATH = -1;
+
+    private static final int CACHE_SIZE = 256;
+    private static final int EMPTY = -1;
+
+    // Past this many changed cells, dropping the whole cache is cheaper than checking every path
+    private static final int CLEAR_ALL_CHANGES = 32;
+
+    // Search scratch, indexed by y * width + x and valid only where the stamp matches
+    private int[] stamp = new int[0];
+    private int[] gScore = new int[0];
+    private int[] parent = new int[0];
+    // Cells settled by the current search carry its number here
+    private int[] closedStamp = new int[0];
+    private int search;
+
+    // Open set: (f << 32) | cell index
+    private long[] heap = new long[64];
+    private int heapSize;
+
+    // Goal-to-start cells of the last path found
+    private int[] route = new int[64];
+
+    // Path cache
+    private final long[] cacheKeys = new long[CACHE_SIZE];
+    private final int[][] cachePaths = new int[CACHE_SIZE][];
+    // Number of cells of each slot's path, or EMPTY when the slot holds none
+    private final int[] cacheLengths = new int[CACHE_SIZE];
+    private DungeonLevel level;
+    private BitGrid passableSnapshot;
+    private int passabilityVersion;
+    private int resetCount;
+
+    // Counters
+    private long queries;
+    private long cacheHits;
+    private long totalExpanded;
+    private int lastExpanded;
+
+    public PathFinder() {
+        Arrays.fill(cacheLengths, EMPTY);
+    }
+
+    /**
+     * Finds a shortest path between two cells.
+     * @param start The packed start cell (see {@link PackedPosition}).
+     * @param goal The packed goal cell.
+     * @param out Receives the path: every cell after the start, up to and including the goal.
+     *            If it is too small, only the first {@code out.length} cells are written.
+     * @return the number of cells on the path (0 if start equals goal), or {@link #NO_PATH}.
+     */
+    public int findPath(DungeonLevel level, int start, int goal, int[] out) {
+        queries++;
+        syncCache(level);
+
+        int slot = cacheSlot(start, goal);
+        long key = cacheKey(start, goal);
+        int cachedLength = cacheLengths[slot];
+        if (cachedLength != EMPTY && cacheKeys[slot] == key) {
+            cacheHits++;
+            lastExpanded = 0;
+            System.arraycopy(cachePaths[slot], 0, out, 0, Math.min(cachedLength, out.length));
+            return cachedLength;
+        }
+
+        int length = search(level, start, goal, null, out);
+        if (length != NO_PATH) {
+            cacheKeys[slot] = key;
+            cacheLengths[slot] = length;
+            copyRoute(slot, length);
+        }
+        return length;
+    }
+
+    /**
+     * Finds a shortest path that stays inside a rectangle. Bounded searches are not cached.
+     * @see #findPath(DungeonLevel, int, int, int[])
+     */
+    public int findPath(DungeonLevel level, int start, int goal, Rect bounds, int[] out) {
+        queries++;
+        return search(level, start, goal, bounds, out);
+    }
+
+    /**
+     * Total step cost of a path written by {@link #findPath(DungeonLevel, int, int, int[])}.
+     */
+    public static int pathCost(int start, int[] path, int length) {
+        int cost = 0;
+        int previous = start;
+        for (int i = 0; i < length; i++) {
+            boolean diagonal = PackedPosition.x(path[i]) != PackedPosition.x(previous)
+                    && PackedPosition.y(path[i]) != PackedPosition.y(previous);
+            cost += diagonal ? DijkstraMap.DIAGONAL_COST : DijkstraMap.ORTHOGONAL_COST;
+            previous = path[i];
+        }
+        return cost;
+    }
+
+    private int search(DungeonLevel level, int start, int goal, Rect bounds, int[] out) {
+        int width = level.getWidth();
+        int height = level.getHeight();
+        int minX = 0, minY = 0, maxX = width - 1, maxY = height - 1;
+        if (bounds != null) {
+            minX = Math.max(minX, bounds.x());
+            minY = Math.max(minY, bounds.y());
+            maxX = Math.min(maxX, bounds.x2() - 1);
+            maxY = Math.min(maxY, bounds.y2() - 1);
+        }
+
+        lastExpanded = 0;
+        int startX = PackedPosition.x(start), startY = PackedPosition.y(start);
+        int goalX = PackedPosition.x(goal), goalY = PackedPosition.y(goal);
+        if (!inside(startX, startY, minX, minY, maxX, maxY) || !inside(goalX, goalY, minX, minY, maxX, maxY)
+                || !level.isPassable(goalX, goalY)) {
+            return NO_PATH;
+        }
+        if (start == goal) return 0;
+
+        prepareScratch(width, height);
+        int goalIndex = goalY * width + goalX;
+        int startIndex = startY * width + startX;
+        open(startIndex, 0, -1, heuristic(startX, startY, goalX, goalY));
+
+        while (heapSize > 0) {
+            long top = pollHeap();
+            int index = (int) top;
+            if (closedStamp[index] == search) continue;
+            closedStamp[index] = search;
+            lastExpanded++;
+
+            if (index == goalIndex) {
+                totalExpanded += lastExpanded;
+                return writeRoute(startIndex, goalIndex, width, out);
+            }
+
+            int x = index % width;
+            int y = index / width;
+            int g = gScore[index];
+            for (int dir = 0; dir < PackedPosition.DIRECTION_COUNT; dir++) {
+                int dx = PackedPosition.directionDx(dir);
+                int dy = PackedPosition.directionDy(dir);
+                int nx = x + dx;
+                int ny = y + dy;
+                if (!inside(nx, ny, minX, minY, maxX, maxY) || !level.isPassable(nx, ny)) continue;
+
+                int neighbour = ny * width + nx;
+                int tentative = g + (dx != 0 && dy != 0 ? DijkstraMap.DIAGONAL_COST : DijkstraMap.ORTHOGONAL_COST);
+                if (stamp[neighbour] == search && tentative >= gScore[neighbour]) continue;
+                open(neighbour, tentative, index, tentative + heuristic(nx, ny, goalX, goalY));
+            }
+        }
+
+        totalExpanded += lastExpanded;
+        return NO_PATH;
+    }
+
+    private static boolean inside(int x, int y, int minX, int minY, int maxX, int maxY) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * Octile distance: diagonal steps for the shorter axis, straight steps for the rest.
+     */
+    private static int heuristic(int x, int y, int goalX, int goalY) {
+        int dx = Math.abs(x - goalX);
+        int dy = Math.abs(y - goalY);
+        return DijkstraMap.ORTHOGONAL_COST * (dx + dy)
+                + (DijkstraMap.DIAGONAL_COST - 2 * DijkstraMap.ORTHOGONAL_COST) * Math.min(dx, dy);
+    }
+
+    private void prepareScratch(int width, int height) {
+        int cells = width * height;
+        if (stamp.length != cells) {
+            stamp = new int[cells];
+            gScore = new int[cells];
+            parent = new int[cells];
+            closedStamp = new int[cells];
+            search = 0;
+        }
+        if (search == Integer.MAX_VALUE) {
+            // Out of search numbers: clear once so old stamps cannot match again
+            Arrays.fill(stamp, 0);
+            Arrays.fill(closedStamp, 0);
+            search = 0;
+        }
+        search++;
+        heapSize = 0;
+    }
+
+    private void open(int index, int g, int from, int f) {
+        stamp[index] = search;
+        gScore[index] = g;
+        parent[index] = from;
+        pushHeap(((long) f << 32) | index);
+    }
+
+    private int writeRoute(int startIndex, int goalIndex, int width, int[] out) {
+        int length = 0;
+        for (int index = goalIndex; index != startIndex; index = parent[index]) {
+            if (length == route.length) {
+                route = Arrays.copyOf(route, length * 2);
+            }
+            route[length++] = PackedPosition.pack(index % width, index / width);
+        }
+        for (int i = 0; i < length && i < out.length; i++) {
+            out[i] = route[length - 1 - i];
+        }
+        return length;
+    }
+
+    private void copyRoute(int slot, int length) {
+        int[] path = cachePaths[slot];
+        if (path == null || path.length < length) {
+            path = new int[Math.max(length, 16)];
+            cachePaths[slot] = path;
+        }
+        for (int i = 0; i < length; i++) {
+            path[i] = route[length - 1 - i];
+        }
+    }
+
+    // --- Heap ---
+
+    private void pushHeap(long value) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int up = (i - 1) >>> 1;
+            if (heap[up] <= value) break;
+            heap[i] = heap[up];
+            i = up;
+        }
+        heap[i] = value;
+    }
+
+    private long pollHeap() {
+        long top = heap[0];
+        long last = heap[--heapSize];
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) child++;
+            if (heap[child] >= last) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+
+    // --- Cache ---
+
+    private static long cacheKey(int start, int goal) {
+        return ((long) start << 32) | (goal & 0xFFFFFFFFL);
+    }
+
+    private static int cacheSlot(int start, int goal) {
+        return ((start * 31 + goal) * 0x9E3779B1) >>> 24;
+    }
+
+    /**
+     * Drops cached paths through any cell whose passability changed since the last query.
+     * A reset, another level, or a large change drops the whole cache instead.
+     */
+    private void syncCache(DungeonLevel level) {
+        if (level != this.level || level.getResetCount() != resetCount || passableSnapshot == null
+                || passableSnapshot.getWidth() != level.getWidth() || passableSnapshot.getHeight() != level.getHeight()) {
+            this.level = level;
+            if (passableSnapshot == null || passableSnapshot.getWidth() != level.getWidth()
+                    || passableSnapshot.getHeight() != level.getHeight()) {
+                passableSnapshot = new BitGrid(level.getWidth(), level.getHeight());
+            }
+            resynchronize(level);
+            return;
+        }
+        if (level.getPassabilityVersion() == passabilityVersion) return;
+
+        BitGrid passable = level.getPassabilityGrid();
+        int wordsPerRow = passable.getWordsPerRow();
+        int height = level.getHeight();
+
+        // Count first, so a regenerated level does not check every path for every cell
+        int changedCount = 0;
+        for (int y = 0; y < height && changedCount <= CLEAR_ALL_CHANGES; y++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                changedCount += Long.bitCount(passable.word(y, w) ^ passableSnapshot.word(y, w));
+            }
+        }
+        if (changedCount > CLEAR_ALL_CHANGES) {
+            resynchronize(level);
+            return;
+        }
+
+        for (int y = 0; y < height; y++) {
+            for (int w = 0; w < wordsPerRow; w++) {
+                for (long changed = passable.word(y, w) ^ passableSnapshot.word(y, w); changed != 0; changed &= changed - 1) {
+                    invalidate(PackedPosition.pack((w << 6) + Long.numberOfTrailingZeros(changed), y));
+                }
+            }
+        }
+        passableSnapshot.copyFrom(passable);
+        passabilityVersion = level.getPassabilityVersion();
+    }
+
+    private void resynchronize(DungeonLevel level) {
+        clearCache();
+        passableSnapshot.copyFrom(level.getPassabilityGrid());
+        passabilityVersion = level.getPassabilityVersion();
+        resetCount = level.getResetCount();
+    }
+
+    private void invalidate(int cell) {
+        for (int slot = 0; slot < CACHE_SIZE; slot++) {
+            int length = cacheLengths[slot];
+            if (length == EMPTY) continue;
+            // The start is not part of the stored path, but it is in the key
+            if ((int) (cacheKeys[slot] >>> 32) == cell) {
+                cacheLengths[slot] = EMPTY;
+                continue;
+            }
+            int[] path = cachePaths[slot];
+            for (int i = 0; i < length; i++) {
+                if (path[i] == cell) {
+                    cacheLengths[slot] = EMPTY;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets every cached path. The slots keep their arrays for reuse.
+     */
+    public void clearCache() {
+        Arrays.fill(cacheLengths, EMPTY);
+    }
+
+    // --- Statistics ---
+
+    /** Number of path queries since the last {@link #resetStats()}. */
+    public long getQueries() { return queries; }
+
+    /** Number of unbounded queries answered from the cache. */
+    public long getCacheHits() { return cacheHits; }
+
+    /** Share of all queries answered from the cache, 0.0 if there were none. */
+    public double getCacheHitRate() {
+        return queries == 0 ? 0.0 : (double) cacheHits / queries;
+    }
+
+    /** Number of cells expanded by the last query (0 for a cache hit). */
+    public int getLastExpanded() { return lastExpanded; }
+
+    /** Number of cells expanded by all queries. */
+    public long getTotalExpanded() { return totalExpanded; }
+
+    public void resetStats() {
+        queries = 0;
+        cacheHits = 0;
+        totalExpanded = 0;
+        lastExpanded = 0;
+    }
+}
@@ -0,0 +1,92 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.PackedPosition;
+import lucas.games.brogue.backend.entities.items.Item;
+
+/**
+ * Traces thrown items, arrows and bolts across the level.
+ * <p>
+ *     Paths are read from a shared {@link RayTable}, so a volley from many archers costs table
+ *     lookups rather than repeated line rasterization. A projectile flies along the ray towards
+ *     its target and stops:
+ * </p>
+ * <ul>
+ *     <li>before the first cell that is opaque or impassable (it lands in front of the wall),</li>
+ *     <li>on the first occupied cell (it hits whatever is there),</li>
+ *     <li>on the target, or after {@link #getMaxRange()} cells if the target is further away.</li>
+ * </ul>
+ * <p>
+ *     All checks read the level's bit layers. The system holds no per-trace state and may be
+ *     shared as long as every caller brings its own {@link Trajectory}.
+ * </p>
+ */
+public class ProjectileSystem {
+
+    /** Default maximum flight distance, in cells. */
+    public static final int DEFAULT_RANGE = 20;
+
+    private final RayTable rays;
+
+    public ProjectileSystem() {
+        this(DEFAULT_RANGE);
+    }
+
+    public ProjectileSystem(int maxRange) {
+        this.rays = RayTable.get(maxRange);
+    }
+
+    public int getMaxRange() {
+        return rays.getRange();
+    }
+
+    /**
+     * Traces a projectile launched from (fromX, fromY) towards (toX, toY).
+     * A target beyond the maximum range is aimed at along the same direction.
+     * @return {@code out}, filled in with the path.
+     */
+    public Trajectory trace(DungeonLevel level, int fromX, int fromY, int toX, int toY, Trajectory out) {
+        out.start(PackedPosition.pack(fromX, fromY));
+
+        int dx = toX - fromX;
+        int dy = toY - fromY;
+        if (!rays.covers(dx, dy)) {
+            // Same direction, shortened to the longest ray in the table
+            double scale = (double) rays.getRange() / Math.max(Math.abs(dx), Math.abs(dy));
+            dx = (int) Math.round(dx * scale);
+            dy = (int) Math.round(dy * scale);
+        }
+
+        int start = rays.start(dx, dy);
+        int end = start + rays.length(dx, dy);
+        for (int i = start; i < end; i++) {
+            int offset = rays.cell(i);
+            int x = fromX + PackedPosition.x(offset);
+            int y = fromY + PackedPosition.y(offset);
+
+            if (!level.isValidCoordinate(x, y) || level.isOpaque(x, y) || !level.isPassable(x, y)) {
+                break;
+            }
+            out.add(PackedPosition.pack(x, y));
+            if (level.isOccupied(x, y)) {
+                out.hit();
+                break;
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Throws an item: traces its flight and drops it into the level's floor items where it lands.
+     * The item's position is updated; registering it anywhere else is up to the caller.
+     * @return {@code out}, filled in with the path.
+     */
+    public Trajectory throwItem(DungeonLevel level, Item item, int fromX, int fromY, int toX, int toY, Trajectory out) {
+        trace(level, fromX, fromY, toX, toY, out);
+        int x = out.getLandingX();
+        int y = out.getLandingY();
+        item.setPosition(PackedPosition.toPosition(out.getLanding()));
+        level.getFloorItems().add(x, y, item);
+        return out;
+    }
+}
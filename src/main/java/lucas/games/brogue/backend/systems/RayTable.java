@@ -0,0 +1,135 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.PackedPosition;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed Bresenham lines from the origin to every offset (dx, dy) within a range.
+ * <p>
+ *     Each ray lists the cells a line passes through, as packed offsets (see
+ *     {@link PackedPosition}), from the first cell after the origin up to and including the
+ *     target. All rays live in one flat {@code int[]}, so following a line is a table walk
+ *     instead of a rasterization. The lines are the same ones the classic integer Bresenham
+ *     algorithm draws from the origin towards the target.
+ * </p>
+ * <p>
+ *     Tables are immutable and cached per range, so {@link #get(int)} builds each one once.
+ * </p>
+ */
+public final class RayTable {
+
+    private static volatile RayTable[] cache = new RayTable[0];
+
+    private final int range;
+    private final int side;
+    // Start of each ray in cells, indexed by (dy + range) * side + (dx + range); one extra entry marks the end
+    private final int[] starts;
+    private final int[] cells;
+
+    private RayTable(int range) {
+        this.range = range;
+        this.side = 2 * range + 1;
+        this.starts = new int[side * side + 1];
+
+        int total = 0;
+        for (int dy = -range; dy <= range; dy++) {
+            for (int dx = -range; dx <= range; dx++) {
+                starts[index(dx, dy)] = total;
+                total += Math.max(Math.abs(dx), Math.abs(dy));
+            }
+        }
+        starts[side * side] = total;
+
+        this.cells = new int[total];
+        for (int dy = -range; dy <= range; dy++) {
+            for (int dx = -range; dx <= range; dx++) {
+                rasterize(dx, dy, starts[index(dx, dy)]);
+            }
+        }
+    }
+
+    /**
+     * Returns the cached table for the given range, building it on first use.
+     */
+    public static RayTable get(int range) {
+        if (range < 0) {
+            throw new IllegalArgumentException("Negative ray range: " + range);
+        }
+        RayTable[] tables = cache;
+        if (range < tables.length && tables[range] != null) {
+            return tables[range];
+        }
+        return build(range);
+    }
+
+    private static synchronized RayTable build(int range) {
+        RayTable[] tables = cache;
+        if (range < tables.length && tables[range] != null) {
+            return tables[range];
+        }
+        RayTable table = new RayTable(range);
+        RayTable[] grown = Arrays.copyOf(tables, Math.max(tables.length, range + 1));
+        grown[range] = table;
+        cache = grown;
+        return table;
+    }
+
+    private void rasterize(int targetX, int targetY, int at) {
+        int x = 0;
+        int y = 0;
+        int dx = Math.abs(targetX);
+        int dy = Math.abs(targetY);
+        int sx = targetX > 0 ? 1 : -1;
+        int sy = targetY > 0 ? 1 : -1;
+        int err = dx - dy;
+
+        while (x != targetX || y != targetY) {
+            int e2 = 2 * err;
+            if (e2 > -dy) {
+                err -= dy;
+                x += sx;
+            }
+            if (e2 < dx) {
+                err += dx;
+                y += sy;
+            }
+            cells[at++] = PackedPosition.pack(x, y);
+        }
+    }
+
+    private int index(int dx, int dy) {
+        return (dy + range) * side + (dx + range);
+    }
+
+    public int getRange() { return range; }
+
+    /**
+     * Returns true if the offset has a ray in this table (Chebyshev distance within the range).
+     */
+    public boolean covers(int dx, int dy) {
+        return Math.abs(dx) <= range && Math.abs(dy) <= range;
+    }
+
+    /**
+     * Position of the first cell of the ray towards (dx, dy), for use with {@link #cell(int)}.
+     */
+    public int start(int dx, int dy) {
+        return starts[index(dx, dy)];
+    }
+
+    /**
+     * Number of cells on the ray towards (dx, dy), which is their Chebyshev distance.
+     */
+    public int length(int dx, int dy) {
+        int i = index(dx, dy);
+        return starts[i + 1] - starts[i];
+    }
+
+    /**
+     * A cell of a ray as a packed offset from the origin.
+     */
+    public int cell(int i) {
+        return cells[i];
+    }
+}
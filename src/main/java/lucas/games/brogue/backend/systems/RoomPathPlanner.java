@@ -0,0 +1,106 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.PackedPosition;
+import lucas.games.brogue.backend.Rect;
+import lucas.games.brogue.backend.RoomGraph;
+
+/**
+ * Hierarchical path planning over a level's {@link RoomGraph}, in the manner of HPA*.
+ * <p>
+ *     A long route is first planned room to room from the graph's precomputed next-hop table,
+ *     then only the first leg is refined to cells: a {@link PathFinder} search from the start
+ *     to the centre of the next room, bounded to the current and next regions. The walker
+ *     asks again once it has followed the leg, so a route across the whole level never
+ *     searches more than two rooms' worth of cells at a time.
+ * </p>
+ * <p>
+ *     Start and goal in the same region are searched within that region. Levels without a
+ *     graph, cells outside every region, and legs blocked by terrain that changed after
+ *     generation fall back to a full search.
+ * </p>
+ */
+public class RoomPathPlanner {
+
+    private final PathFinder finder;
+
+    // Counters for the last leg
+    private int lastRoomHops;
+    private int lastExpanded;
+
+    public RoomPathPlanner() {
+        this(new PathFinder());
+    }
+
+    public RoomPathPlanner(PathFinder finder) {
+        this.finder = finder;
+    }
+
+    /**
+     * Plans the next leg of a route towards a goal.
+     * @param start The packed start cell (see {@link PackedPosition}).
+     * @param goal The packed goal cell.
+     * @param out Receives the leg, as {@link PathFinder#findPath(DungeonLevel, int, int, int[])} writes it.
+     *            The leg ends on the goal when it is in the current or next room, and on the
+     *            centre of the next room otherwise.
+     * @return the number of cells in the leg, or {@link PathFinder#NO_PATH}.
+     */
+    public int planLeg(DungeonLevel level, int start, int goal, int[] out) {
+        lastRoomHops = 0;
+        RoomGraph graph = level.getRoomGraph();
+        int from = graph == null ? RoomGraph.NO_ROOM : graph.regionAt(start);
+        int to = graph == null ? RoomGraph.NO_ROOM : graph.regionAt(goal);
+        if (from == RoomGraph.NO_ROOM || to == RoomGraph.NO_ROOM) {
+            return fullSearch(level, start, goal, out);
+        }
+
+        int length;
+        if (from == to) {
+            length = finder.findPath(level, start, goal, graph.getRegionBounds(from), out);
+        } else {
+            int next = graph.nextRoom(from, to);
+            if (next == RoomGraph.NO_ROOM) {
+                lastExpanded = 0;
+                return PathFinder.NO_PATH;
+            }
+            lastRoomHops = countHops(graph, from, to);
+            Rect bounds = graph.getRegionBounds(from).union(graph.getRegionBounds(next));
+            int target = next == to ? goal : graph.getCenter(next);
+            length = finder.findPath(level, start, target, bounds, out);
+        }
+        lastExpanded = finder.getLastExpanded();
+
+        if (length == PathFinder.NO_PATH) {
+            int expanded = lastExpanded;
+            length = fullSearch(level, start, goal, out);
+            lastExpanded += expanded;
+        }
+        return length;
+    }
+
+    private int fullSearch(DungeonLevel level, int start, int goal, int[] out) {
+        int length = finder.findPath(level, start, goal, out);
+        lastExpanded = finder.getLastExpanded();
+        return length;
+    }
+
+    private static int countHops(RoomGraph graph, int from, int to) {
+        int hops = 0;
+        for (int room = from; room != to; room = graph.nextRoom(room, to)) {
+            hops++;
+        }
+        return hops;
+    }
+
+    /**
+     * Number of room-to-room hops on the abstract route of the last leg planned (0 within one room).
+     */
+    public int getLastRoomHops() { return lastRoomHops; }
+
+    /**
+     * Number of cells expanded while refining the last leg, including any fallback search.
+     */
+    public int getLastExpanded() { return lastExpanded; }
+
+    public PathFinder getPathFinder() { return finder; }
+}
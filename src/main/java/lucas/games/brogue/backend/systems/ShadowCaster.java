@@ -0,0 +1,148 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.BitGrid;
+import lucas.games.brogue.backend.Stencil;
+
+import java.util.Arrays;
+
+/**
+ * Recursive shadowcasting without the recursion.
+ * <p>
+ *     Pending sectors are kept on an explicit {@code int} stack and slopes are exact fractions
+ *     compared by cross-multiplication, so no floats are computed in the inner loop and the
+ *     result does not depend on rounding. Opacity is read straight from the level's
+ *     {@link BitGrid}. The cells reached are the same as the classic recursive algorithm.
+ * </p>
+ * <p>
+ *     A caster keeps its stack between calls and is not thread-safe; use one per thread.
+ * </p>
+ */
+public final class ShadowCaster {
+
+    /**
+     * Receives every in-bounds cell within the radius that is visible from the origin.
+     * A cell on an octant boundary may be reported more than once.
+     */
+    @FunctionalInterface
+    public interface CellVisitor {
+        void visit(int x, int y);
+    }
+
+    // Multipliers for transforming coordinates into 8 octants
+    private static final int[][] MULTIPLIERS = {
+            {1, 0, 0, -1, -1, 0, 0, 1},
+            {0, 1, -1, 0, 0, -1, 1, 0},
+            {0, 1, 1, 0, 0, -1, -1, 0},
+            {1, 0, 0, 1, -1, 0, 0, -1}
+    };
+
+    // Stack frame: row, start slope (num, den), end slope (num, den)
+    private static final int FRAME = 5;
+
+    private int[] stack = new int[FRAME * 16];
+
+    /**
+     * Casts light from (originX, originY) over a grid of opaque cells.
+     * Cells outside the grid are treated as opaque. The origin itself is visited first.
+     * @param radius Cells are lit while dx*dx + dy*dy &lt; radius*radius.
+     */
+    public void cast(BitGrid opaque, int originX, int originY, int radius, CellVisitor visitor) {
+        int width = opaque.getWidth();
+        int height = opaque.getHeight();
+        // Row half widths of the radius circle, so no distance is computed per cell
+        Stencil disc = Stencil.disc(Math.max(radius, 0));
+
+        if (originX >= 0 && originX < width && originY >= 0 && originY < height) {
+            visitor.visit(originX, originY);
+        }
+
+        for (int octant = 0; octant < 8; octant++) {
+            castOctant(opaque, width, height, originX, originY, radius, disc, visitor,
+                    MULTIPLIERS[0][octant], MULTIPLIERS[1][octant],
+                    MULTIPLIERS[2][octant], MULTIPLIERS[3][octant]);
+        }
+    }
+
+    private void castOctant(BitGrid opaque, int width, int height, int originX, int originY, int radius,
+                            Stencil disc, CellVisitor visitor, int xx, int xy, int yx, int yy) {
+        int top = 0;
+        top = push(top, 1, 1, 1, 0, 1);
+
+        while (top > 0) {
+            top -= FRAME;
+            int row = stack[top];
+            long startNum = stack[top + 1];
+            long startDen = stack[top + 2];
+            long endNum = stack[top + 3];
+            long endDen = stack[top + 4];
+
+            if (startNum * endDen < endNum * startDen) {
+                continue;
+            }
+
+            long nextStartNum = startNum;
+            long nextStartDen = startDen;
+            for (int i = row; i <= radius; i++) {
+                boolean blocked = false;
+                int reach = disc.halfWidth(i);
+                // Scan the row from its outer edge (dx = -i) towards the axis (dx = 0); u = -dx
+                for (int u = i; u >= 0; u--) {
+                    // Left and right edges of the cell, as slopes (2u + 1) / (2i - 1) and (2u - 1) / (2i + 1)
+                    long leftNum = 2L * u + 1;
+                    long leftDen = 2L * i - 1;
+                    long rightNum = 2L * u - 1;
+                    long rightDen = 2L * i + 1;
+
+                    if (startNum * rightDen < rightNum * startDen) {
+                        continue;
+                    } else if (endNum * leftDen > leftNum * endDen) {
+                        break;
+                    }
+
+                    int dx = -u;
+                    int dy = -i;
+                    int mapX = originX + dx * xx + dy * xy;
+                    int mapY = originY + dx * yx + dy * yy;
+                    boolean inBounds = mapX >= 0 && mapX < width && mapY >= 0 && mapY < height;
+
+                    // Radius check (circular vision)
+                    if (inBounds && u <= reach) {
+                        visitor.visit(mapX, mapY);
+                    }
+
+                    boolean isOpaque = !inBounds || opaque.get(mapX, mapY);
+                    if (blocked) {
+                        if (isOpaque) {
+                            nextStartNum = rightNum;
+                            nextStartDen = rightDen;
+                        } else {
+                            blocked = false;
+                            startNum = nextStartNum;
+                            startDen = nextStartDen;
+                        }
+                    } else if (inBounds && isOpaque && i < radius) {
+                        blocked = true;
+                        top = push(top, i + 1, startNum, startDen, leftNum, leftDen);
+                        nextStartNum = rightNum;
+                        nextStartDen = rightDen;
+                    }
+                }
+                if (blocked) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private int push(int top, int row, long startNum, long startDen, long endNum, long endDen) {
+        if (top + FRAME > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[top] = row;
+        stack[top + 1] = (int) startNum;
+        stack[top + 2] = (int) startDen;
+        stack[top + 3] = (int) endNum;
+        stack[top + 4] = (int) endDen;
+        return top + FRAME;
+    }
+}
@@ -0,0 +1,101 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.BrogueColor;
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.PackedPosition;
+import lucas.games.brogue.backend.StaticLightmap;
+import lucas.games.brogue.backend.TerrainFlags;
+import lucas.games.brogue.backend.TerrainLayer;
+import lucas.games.brogue.backend.TerrainType;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Bakes the light of glowing terrain into a level's {@link StaticLightmap}.
+ * <p>
+ *     Every layer of every {@link TerrainFlags#IS_LUMINOUS} cell whose terrain has a glow radius
+ *     is an emitter. The emitters' light fields are shadowcast in parallel through a
+ *     {@link BatchFOVSystem}, then summed into the lightmap on the calling thread with the same
+ *     linear falloff as {@link LightingSystem}. Baking is meant to run once, when the level is
+ *     generated; the map does not follow later changes to the level's opacity.
+ * </p>
+ */
+public class StaticLightBaker {
+
+    private final BatchFOVSystem batch;
+
+    // Emitters found on the level, as parallel arrays
+    private int[] origins = new int[32];
+    private int[] radii = new int[32];
+    private float[] colors = new float[96];
+    private int count;
+
+    public StaticLightBaker() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public StaticLightBaker(ForkJoinPool pool) {
+        this.batch = new BatchFOVSystem(pool);
+    }
+
+    /**
+     * Replaces the level's lightmap with the light of its current glowing terrain.
+     * @return the number of emitters baked.
+     */
+    public int bake(DungeonLevel level) {
+        StaticLightmap lightmap = level.getStaticLightmap();
+        lightmap.clear();
+
+        collectEmitters(level);
+        if (count == 0) return 0;
+
+        ObserverField[] fields = batch.computeFields(level, origins, radii, count);
+        for (int i = 0; i < count; i++) {
+            ObserverField field = fields[i];
+            int originX = field.getOriginX();
+            int originY = field.getOriginY();
+            int radius = field.getRadius();
+            float red = colors[3 * i];
+            float green = colors[3 * i + 1];
+            float blue = colors[3 * i + 2];
+            field.forEachVisible((x, y) -> {
+                int dx = x - originX;
+                int dy = y - originY;
+                float falloff = 1.0f - (float) Math.sqrt(dx * dx + dy * dy) / radius;
+                lightmap.add(x, y, red * falloff, green * falloff, blue * falloff);
+            });
+        }
+        return count;
+    }
+
+    private void collectEmitters(DungeonLevel level) {
+        count = 0;
+        for (int y = 0; y < level.getHeight(); y++) {
+            for (int x = 0; x < level.getWidth(); x++) {
+                if (!level.hasTerrainFlag(x, y, TerrainFlags.IS_LUMINOUS)) continue;
+
+                for (TerrainLayer layer : TerrainLayer.values()) {
+                    TerrainType type = level.getLayer(x, y, layer);
+                    if (type != null && type.getGlowRadius() > 0) {
+                        addEmitter(x, y, type.getGlowRadius(), type.getGlowColor());
+                    }
+                }
+            }
+        }
+    }
+
+    private void addEmitter(int x, int y, int radius, BrogueColor color) {
+        if (count == radii.length) {
+            origins = Arrays.copyOf(origins, count * 2);
+            radii = Arrays.copyOf(radii, count * 2);
+            colors = Arrays.copyOf(colors, count * 6);
+        }
+        origins[count] = PackedPosition.pack(x, y);
+        radii[count] = radius;
+        colors[3 * count] = (float) color.red();
+        colors[3 * count + 1] = (float) color.green();
+        colors[3 * count + 2] = (float) color.blue();
+        count++;
+    }
+}
@@ -0,0 +1,62 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.PackedPosition;
+
+import java.util.Arrays;
+
+/**
+ * The path of one projectile, filled in by {@link ProjectileSystem}.
+ * <p>
+ *     Holds the cells flown through (packed, see {@link PackedPosition}), where the projectile
+ *     came down and whether it stopped by hitting an occupant. A trajectory is reused by every
+ *     trace it is passed to, so one instance per caller keeps tracing allocation-free.
+ * </p>
+ */
+public final class Trajectory {
+
+    private int[] cells = new int[16];
+    private int length;
+    private int landing;
+    private boolean hitOccupant;
+
+    void start(int origin) {
+        length = 0;
+        landing = origin;
+        hitOccupant = false;
+    }
+
+    void add(int packed) {
+        if (length == cells.length) {
+            cells = Arrays.copyOf(cells, length * 2);
+        }
+        cells[length++] = packed;
+        landing = packed;
+    }
+
+    void hit() {
+        hitOccupant = true;
+    }
+
+    /**
+     * Number of cells the projectile flew through, not counting its origin.
+     */
+    public int getLength() { return length; }
+
+    /**
+     * The i-th cell flown through, packed. The last one is the landing cell.
+     */
+    public int getCell(int i) { return cells[i]; }
+
+    /**
+     * The packed cell the projectile came down on: the last cell it reached, or its origin if
+     * the first cell was blocked.
+     */
+    public int getLanding() { return landing; }
+    public int getLandingX() { return PackedPosition.x(landing); }
+    public int getLandingY() { return PackedPosition.y(landing); }
+
+    /**
+     * True if the projectile stopped because its landing cell is occupied (it hit a creature).
+     */
+    public boolean hitOccupant() { return hitOccupant; }
+}
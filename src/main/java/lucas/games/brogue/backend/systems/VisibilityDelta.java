@@ -0,0 +1,57 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.PackedPosition;
+
+import java.util.Arrays;
+
+/**
+ * The cells whose visibility changed during the last field of view calculation.
+ * <p>
+ *     Cells are stored as packed coordinates (see {@link PackedPosition}). The arrays are reused
+ *     from one calculation to the next, so read the delta before the next FOV update. When
+ *     {@link #isFullRefresh()} is true the previous field belonged to another level (or there
+ *     was none) and the whole view should be redrawn instead.
+ * </p>
+ */
+public final class VisibilityDelta {
+
+    private int[] entered = new int[64];
+    private int enteredCount;
+    private int[] left = new int[64];
+    private int leftCount;
+    private boolean fullRefresh;
+
+    /** Number of cells that became visible. */
+    public int getEnteredCount() { return enteredCount; }
+
+    /** Returns the i-th cell that became visible, packed. */
+    public int getEntered(int i) { return entered[i]; }
+
+    /** Number of cells that fell out of view. */
+    public int getLeftCount() { return leftCount; }
+
+    /** Returns the i-th cell that fell out of view, packed. */
+    public int getLeft(int i) { return left[i]; }
+
+    public boolean isFullRefresh() { return fullRefresh; }
+
+    public boolean isEmpty() {
+        return !fullRefresh && enteredCount == 0 && leftCount == 0;
+    }
+
+    void clear(boolean fullRefresh) {
+        enteredCount = 0;
+        leftCount = 0;
+        this.fullRefresh = fullRefresh;
+    }
+
+    void addEntered(int x, int y) {
+        if (enteredCount == entered.length) entered = Arrays.copyOf(entered, enteredCount * 2);
+        entered[enteredCount++] = PackedPosition.pack(x, y);
+    }
+
+    void addLeft(int x, int y) {
+        if (leftCount == left.length) left = Arrays.copyOf(left, leftCount * 2);
+        left[leftCount++] = PackedPosition.pack(x, y);
+    }
+}
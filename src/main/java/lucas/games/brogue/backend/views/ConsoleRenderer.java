@@ -1,7 +1,9 @@
 package lucas.games.brogue.backend.views;
 
 import lucas.games.brogue.backend.DungeonLevel;
-import lucas.games.brogue.backend.Tile;
+import lucas.games.brogue.backend.RememberedMap;
+import lucas.games.brogue.backend.entities.Entity;
+import lucas.games.brogue.backend.entities.items.Item;
 
 import java.util.List;
 
@@ -26,12 +28,17 @@ public class ConsoleRenderer {
         sb.append("-".repeat(Math.max(0, level.getWidth())));
         sb.append("+\n");
 
+        // Memory is copied out a row at a time
+        RememberedMap memory = level.getRememberedMap();
+        char[] memoryGlyphs = new char[level.getWidth()];
+        int[] memoryColors = new int[level.getWidth()];
+
         // Iterate Y first (rows), then X (columns)
         for (int y = 0; y < level.getHeight(); y++) {
             sb.append("|"); // Left border
+            memory.copyRow(y, 0, level.getWidth(), memoryGlyphs, memoryColors, 0);
             for (int x = 0; x < level.getWidth(); x++) {
-                Tile tile = level.getTile(x, y);
-                sb.append(getCharForTile(tile));
+                sb.append(getCharForCell(level, x, y, memoryGlyphs[x]));
             }
             sb.append("|\n");
         }
@@ -68,14 +75,15 @@ public class ConsoleRenderer {
         for (int y = 0; y < level.getHeight(); y++) {
             sb.append("|"); // Left border
             for (int x = 0; x < level.getWidth(); x++) {
-                Tile tile = level.getTile(x, y);
                 // Show all terrain and occupants regardless of visibility
-                if (tile.hasOccupant()) {
-                    sb.append(tile.getOccupant().getSymbol());
-                } if (tile.hasItems()) {
-                    sb.append(tile.getTopItem().getSymbol());
+                Entity occupant = level.getOccupant(x, y);
+                Item item = level.getFloorItems().getTopItem(x, y);
+                if (occupant != null) {
+                    sb.append(occupant.getSymbol());
+                } if (item != null) {
+                    sb.append(item.getSymbol());
                 } else {
-                    sb.append(tile.getTerrain().getSymbol());
+                    sb.append(level.getDisplayTerrain(x, y).getSymbol());
                 }
             }
             sb.append("|\n");
@@ -89,30 +97,29 @@ public class ConsoleRenderer {
         return sb.toString();
     }
 
-    private char getCharForTile(Tile tile) {
-        if (tile == null) return ' ';
-
+    /**
+     * @param remembered The remembered glyph of the cell, or 0 if it was never seen.
+     */
+    private char getCharForCell(DungeonLevel level, int x, int y, char remembered) {
         // If visible: show actors first, then terrain
-        if (tile.isVisible()) {
+        if (level.isVisible(x, y)) {
             // 1. Draw actor if present
-            if (tile.hasOccupant()) {
-                return tile.getOccupant().getSymbol();
+            Entity occupant = level.getOccupant(x, y);
+            if (occupant != null) {
+                return occupant.getSymbol();
             }
             // 2. Draw items if present
-            if (tile.hasItems()) {
-                return tile.getTopItem().getSymbol();
+            Item item = level.getFloorItems().getTopItem(x, y);
+            if (item != null) {
+                return item.getSymbol();
             }
             // 3. Draw terrain
-            return tile.getTerrain().getSymbol();
+            return level.getDisplayTerrain(x, y).getSymbol();
         }
 
-        // If explored (memory): show terrain only
-        if (tile.isExplored()) {
-            // Memory: you remember items where you last saw them
-            if (tile.hasItems()) {
-                return tile.getTopItem().getSymbol();
-            }
-            return tile.getTerrain().getSymbol();
+        // If explored (memory): show the cell as it was when last seen
+        if (level.isExplored(x, y)) {
+            return remembered != 0 ? remembered : ' ';
         }
 
         // Unknown: darkness
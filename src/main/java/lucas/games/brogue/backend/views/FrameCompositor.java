@@ -0,0 +1,97 @@
+package lucas.games.brogue.backend.views;
+
+import lucas.games.brogue.backend.BrogueColor;
+import lucas.games.brogue.backend.ColorBuffer;
+import lucas.games.brogue.backend.ColorCompositor;
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.MutableColor;
+import lucas.games.brogue.backend.TerrainType;
+import lucas.games.brogue.backend.entities.Entity;
+import lucas.games.brogue.backend.entities.items.Item;
+
+/**
+ * Turns rows of a level into what the player sees: a glyph and a packed {@code 0xRRGGBB}
+ * colour per cell, ready to draw.
+ * <p>
+ *     Visible cells take the colour of their occupant, top item or terrain, multiplied by the
+ *     light on the cell from the level's light plane. The multiply and the clamp-and-pack run
+ *     over the whole row through a {@link ColorCompositor}, so they use the Vector API when it
+ *     is available. Remembered cells are copied from the {@code RememberedMap}, which already
+ *     holds them dimmed, and cells never seen get glyph {@code 0}.
+ * </p>
+ * <p>
+ *     Row buffers are kept between calls and only grow with the level's width, so compositing
+ *     a frame allocates nothing. Not thread-safe.
+ * </p>
+ */
+public class FrameCompositor {
+
+    /**
+     * Least light on every channel of a visible cell, so glyphs at the edge of a light stay readable.
+     */
+    public static final float MIN_VISIBLE_LIGHT = 0.2f;
+
+    private final ColorCompositor compositor;
+    private ColorBuffer colors = new ColorBuffer(0, 1);
+    private ColorBuffer light = new ColorBuffer(0, 1);
+    private char[] memoryGlyphs = new char[0];
+    private int[] memoryColors = new int[0];
+    private final MutableColor cellLight = new MutableColor();
+
+    public FrameCompositor() {
+        this(ColorCompositor.create());
+    }
+
+    public FrameCompositor(ColorCompositor compositor) {
+        this.compositor = compositor;
+    }
+
+    /**
+     * Composites one row of a level.
+     * @param glyphOut Receives the glyph of each cell, or 0 where nothing is drawn.
+     * @param rgbOut Receives the packed colour of each cell.
+     */
+    public void compositeRow(DungeonLevel level, int y, char[] glyphOut, int[] rgbOut) {
+        int width = level.getWidth();
+        if (colors.getWidth() < width) {
+            colors = new ColorBuffer(width, 1);
+            light = new ColorBuffer(width, 1);
+            memoryGlyphs = new char[width];
+            memoryColors = new int[width];
+        }
+
+        level.getRememberedMap().copyRow(y, 0, width, memoryGlyphs, memoryColors, 0);
+        for (int x = 0; x < width; x++) {
+            if (!level.isVisible(x, y)) {
+                glyphOut[x] = level.isExplored(x, y) ? memoryGlyphs[x] : 0;
+                colors.set(x, 0, 0.0f, 0.0f, 0.0f);
+                continue;
+            }
+
+            Entity occupant = level.getOccupant(x, y);
+            Item item = occupant == null ? level.getFloorItems().getTopItem(x, y) : null;
+            BrogueColor color;
+            if (occupant != null) {
+                glyphOut[x] = occupant.getSymbol();
+                color = occupant.getColor();
+            } else if (item != null) {
+                glyphOut[x] = item.getSymbol();
+                color = item.getColor();
+            } else {
+                TerrainType terrain = level.getDisplayTerrain(x, y);
+                glyphOut[x] = terrain.getSymbol();
+                color = terrain.getColor();
+            }
+            colors.set(x, 0, color);
+            light.set(x, 0, level.getLight(x, y, cellLight).atLeast(MIN_VISIBLE_LIGHT));
+        }
+
+        compositor.multiplyRow(colors, light, 0, 0, width);
+        compositor.packRow(colors, 0, 0, width, rgbOut, 0);
+
+        // Memory colours are final already; they replace the (black) composite of unseen cells
+        for (int x = 0; x < width; x++) {
+            if (!level.isVisible(x, y)) rgbOut[x] = memoryColors[x];
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package lucas.games.brogue.frontend;
+
+import java.awt.Color;
+
+/**
+ * Maps packed {@code 0xRRGGBB} colours to shared {@link Color} instances, so repainting
+ * the map does not create an AWT colour per cell.
+ * <p>
+ *     A direct-mapped table: each colour hashes to one slot and replaces whatever was there.
+ *     A map only uses a few dozen distinct colours, so misses are rare once it has been drawn.
+ * </p>
+ */
+class AwtColorCache {
+
+    private static final int SIZE = 1024;
+
+    private final int[] keys = new int[SIZE];
+    private final Color[] colors = new Color[SIZE];
+
+    Color get(int rgb) {
+        int slot = (rgb * 0x9E3779B1) >>> 22;
+        Color color = colors[slot];
+        if (color == null || keys[slot] != rgb) {
+            color = new Color(rgb);
+            keys[slot] = rgb;
+            colors[slot] = color;
+        }
+        return color;
+    }
+}
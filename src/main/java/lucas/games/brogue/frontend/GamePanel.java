@@ -1,11 +1,10 @@
 package lucas.games.brogue.frontend;
 
-import lucas.games.brogue.backend.BrogueColor;
 import lucas.games.brogue.backend.DungeonLevel;
 import lucas.games.brogue.backend.GameManager;
-import lucas.games.brogue.backend.Tile;
 import lucas.games.brogue.backend.entities.Inventory;
 import lucas.games.brogue.backend.entities.items.Item;
+import lucas.games.brogue.backend.views.FrameCompositor;
 import lucas.games.brogue.backend.views.MessageLog;
 
 import javax.swing.*;
@@ -18,6 +17,12 @@ public class GamePanel extends JPanel {
     private final int tileSize = 16; // pixels per char
     private final Font terminalFont;
     private final Font uiFont;
+    private final AwtColorCache colorCache = new AwtColorCache();
+
+    // Lit and remembered cells, composited a row at a time before the row is drawn
+    private final FrameCompositor frame = new FrameCompositor();
+    private char[] rowGlyphs = new char[0];
+    private int[] rowColors = new int[0];
 
     public GamePanel(GameManager gameManager) {
         this.gameManager = gameManager;
@@ -50,52 +55,24 @@ public class GamePanel extends JPanel {
         int offsetX = 20;
         int offsetY = 40;
 
-        for (int x = 0; x < level.getWidth(); x++) {
-            for (int y = 0; y < level.getHeight(); y++) {
-                Tile tile = level.getTile(x, y);
-                if (tile == null) continue;
-
-                // Determine Char and Color
-                char symbol = ' ';
-                Color color = Color.BLACK;
-
-                if (tile.isVisible()) {
-                    if (tile.hasOccupant()) {
-                        symbol = tile.getOccupant().getSymbol();
-                        // Mapping BrogueColor to AWT Color
-                        color = toAwtColor(tile.getOccupant().getColor());
-                    } else if (tile.hasItems()) {
-                        symbol = tile.getTopItem().getSymbol();
-                        color = toAwtColor(tile.getTopItem().getColor());
-                    } else {
-                        symbol = tile.getTerrain().getSymbol();
-                        color = toAwtColor(tile.getTerrain().getColor());
-                    }
-                } else if (tile.isExplored()) {
-                    // Memory color (dim)
-                    if (tile.hasItems()) {
-                        symbol = tile.getTopItem().getSymbol();
-                        color = toAwtColor(tile.getTopItem().getColor().scale(0.5));
-                    } else {
-                        symbol = tile.getTerrain().getSymbol();
-                        color = toAwtColor(tile.getTerrain().getColor().scale(0.3));
-                    }
-                }
-
-                // Draw
-                if (symbol != ' ') {
-                    g.setColor(color);
-                    g.drawString(String.valueOf(symbol),
-                            offsetX + (x * tileSize),
-                            offsetY + (y * tileSize)
-                    );
-                }
-            }
+        if (rowGlyphs.length < level.getWidth()) {
+            rowGlyphs = new char[level.getWidth()];
+            rowColors = new int[level.getWidth()];
         }
-    }
 
-    private Color toAwtColor(BrogueColor bc) {
-        return new Color(bc.toRgbInt());
+        // Row-major to match the level's storage layout
+        for (int y = 0; y < level.getHeight(); y++) {
+            frame.compositeRow(level, y, rowGlyphs, rowColors);
+            for (int x = 0; x < level.getWidth(); x++) {
+                if (rowGlyphs[x] == 0 || rowGlyphs[x] == ' ') continue;
+
+                g.setColor(colorCache.get(rowColors[x]));
+                g.drawChars(rowGlyphs, x, 1,
+                        offsetX + (x * tileSize),
+                        offsetY + (y * tileSize)
+                );
+            }
+        }
     }
 
     private void renderUI(Graphics2D g) {
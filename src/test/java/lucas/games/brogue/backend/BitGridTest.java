@@ -0,0 +1,60 @@
+package lucas.games.brogue.backend;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitGridTest {
+
+    @Test
+    void testSetAndClear() {
+        BitGrid grid = new BitGrid(100, 3);
+
+        grid.set(70, 1);
+        assertTrue(grid.get(70, 1));
+        assertFalse(grid.get(70, 0), "Rows should not share bits");
+        assertFalse(grid.get(6, 1), "Columns in different words should not alias");
+
+        grid.clear(70, 1);
+        assertFalse(grid.get(70, 1));
+    }
+
+    @Test
+    void testSetRangeAcrossWords() {
+        BitGrid grid = new BitGrid(130, 2);
+
+        grid.setRange(1, 60, 70, true);
+
+        assertFalse(grid.get(59, 1));
+        for (int x = 60; x < 70; x++) {
+            assertTrue(grid.get(x, 1));
+        }
+        assertFalse(grid.get(70, 1));
+        assertFalse(grid.anyInRange(0, 0, 130), "Other rows should be untouched");
+        assertTrue(grid.anyInRange(1, 65, 66));
+    }
+
+    @Test
+    void testFillKeepsPaddingClear() {
+        BitGrid grid = new BitGrid(10, 2);
+        grid.fill(true);
+
+        // Reading 64 bits from the row start must only return the 10 real cells
+        assertEquals(0x3FFL, grid.bits(0, 0));
+        assertEquals(-1, grid.nextSetBit(0, 10));
+    }
+
+    @Test
+    void testBitsAndNextSetBit() {
+        BitGrid grid = new BitGrid(200, 1);
+        grid.set(3, 0);
+        grid.set(66, 0);
+        grid.set(150, 0);
+
+        assertEquals(1L | (1L << 63), grid.bits(3, 0));
+        assertEquals(3, grid.nextSetBit(0, 0));
+        assertEquals(66, grid.nextSetBit(0, 4));
+        assertEquals(150, grid.nextSetBit(0, 67));
+        assertEquals(-1, grid.nextSetBit(0, 151));
+    }
+}
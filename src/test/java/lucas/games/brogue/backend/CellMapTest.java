@@ -0,0 +1,58 @@
+package lucas.games.brogue.backend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CellMapTest {
+
+    @Test
+    void testPutGetRemove() {
+        CellMap<String> map = new CellMap<>();
+        int origin = PackedPosition.pack(0, 0);
+        int cell = PackedPosition.pack(7, 3);
+
+        assertNull(map.put(origin, "origin"));
+        assertNull(map.put(cell, "a"));
+        assertEquals("a", map.put(cell, "b"));
+        assertEquals("origin", map.get(origin), "The packed origin is an ordinary key");
+        assertEquals("b", map.get(cell));
+        assertEquals(2, map.size());
+
+        assertEquals("b", map.remove(cell));
+        assertNull(map.remove(cell));
+        assertNull(map.get(cell));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void testMatchesHashMapUnderChurn() {
+        CellMap<Integer> map = new CellMap<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 20000; i++) {
+            int key = PackedPosition.pack(random.nextInt(64), random.nextInt(64));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                int key = PackedPosition.pack(x, y);
+                assertEquals(expected.get(key), map.get(key));
+            }
+        }
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertNull(map.get(PackedPosition.pack(1, 1)));
+    }
+}
@@ -0,0 +1,102 @@
+package lucas.games.brogue.backend;
+
+import lucas.games.brogue.backend.entities.Player;
+import lucas.games.brogue.backend.generators.DungeonGenerator;
+import lucas.games.brogue.backend.systems.FOVSystem;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedDungeonLevelTest {
+
+    @Test
+    void testUntouchedChunksAreImplicitWalls() {
+        ChunkedDungeonLevel level = new ChunkedDungeonLevel(4000, 4000);
+
+        assertEquals(0, level.getAllocatedChunkCount(), "A fresh level should not allocate any chunks");
+        assertEquals(TerrainType.WALL, level.getTile(3999, 3999).getTerrain());
+        assertTrue(level.isOpaque(1234, 567));
+
+        // Writing the default terrain should not allocate
+        level.setTerrain(10, 10, TerrainType.WALL);
+        assertEquals(0, level.getAllocatedChunkCount());
+    }
+
+    @Test
+    void testSizeMustFitPackedCoordinates() {
+        int max = PackedPosition.MAX_EXTENT;
+        ChunkedDungeonLevel largest = new ChunkedDungeonLevel(max, 64);
+        largest.setTerrain(max - 1, 3, TerrainType.FLOOR);
+        assertTrue(largest.isPassable(PackedPosition.pack(max - 1, 3)), "The last column still packs");
+
+        assertThrows(IllegalArgumentException.class, () -> new ChunkedDungeonLevel(max + 1, 64));
+        assertThrows(IllegalArgumentException.class, () -> new ChunkedDungeonLevel(64, max + 1));
+        assertThrows(IllegalArgumentException.class, () -> DungeonLevel.create(max + 1, 10));
+        assertThrows(IllegalArgumentException.class, () -> new DungeonLevel(10, max + 1));
+    }
+
+    @Test
+    void testCarvingAllocatesOnlyTouchedChunks() {
+        ChunkedDungeonLevel level = new ChunkedDungeonLevel(1000, 1000);
+
+        // A 10x10 room straddling the corner of four chunks
+        level.fillRect(new Rect(60, 60, 10, 10), TerrainType.FLOOR);
+
+        assertEquals(4, level.getAllocatedChunkCount());
+        assertTrue(level.isChunkAllocated(1, 1));
+        assertTrue(level.isChunkAllocated(2, 2));
+        assertFalse(level.isChunkAllocated(0, 0));
+        assertEquals(TerrainType.FLOOR, level.getTile(64, 64).getTerrain());
+        assertEquals(TerrainType.WALL, level.getTile(70, 64).getTerrain());
+
+        int[] visited = {0};
+        level.forEachChunk((cx, cy) -> visited[0]++);
+        assertEquals(4, visited[0]);
+    }
+
+    @Test
+    void testResetReleasesChunks() {
+        ChunkedDungeonLevel level = new ChunkedDungeonLevel(500, 500);
+        level.fillRect(new Rect(100, 100, 50, 50), TerrainType.FLOOR);
+        level.getTile(120, 120).setOccupant(new Player(new Position(120, 120)));
+
+        level.reset();
+
+        assertEquals(0, level.getAllocatedChunkCount());
+        assertEquals(TerrainType.WALL, level.getTile(120, 120).getTerrain());
+        assertNull(level.getTile(120, 120).getOccupant());
+    }
+
+    @Test
+    void testGeneratorAndFovWorkUnchanged() {
+        ChunkedDungeonLevel level = new ChunkedDungeonLevel(200, 200);
+        DungeonGenerator generator = new DungeonGenerator(level, 12345, 1);
+
+        Position start = generator.generate(new ArrayList<>());
+        new FOVSystem().calculateFOV(level, start, 10);
+
+        assertEquals(TerrainType.FLOOR, level.getTile(start).getTerrain());
+        assertTrue(level.getTile(start).isVisible());
+        assertTrue(level.getAllocatedChunkCount() < level.getChunkCountX() * level.getChunkCountY(),
+                "Solid areas of the map should stay unallocated");
+    }
+
+    @Test
+    void testLayersInChunks() {
+        ChunkedDungeonLevel level = new ChunkedDungeonLevel(1000, 1000);
+        level.fillRect(new Rect(100, 100, 4, 4), TerrainType.FLOOR);
+        level.setLayer(101, 101, TerrainLayer.GAS, TerrainType.SMOKE);
+
+        assertTrue(level.isOpaque(101, 101));
+        assertFalse(level.isOpaque(102, 101));
+        assertNull(level.getLayer(900, 900, TerrainLayer.GAS));
+    }
+
+    @Test
+    void testFactoryPicksChunkedForHugeMaps() {
+        assertFalse(DungeonLevel.create(100, 40) instanceof ChunkedDungeonLevel);
+        assertTrue(DungeonLevel.create(4000, 4000) instanceof ChunkedDungeonLevel);
+    }
+}
@@ -0,0 +1,53 @@
+package lucas.games.brogue.backend;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ColorBufferTest {
+
+    private static final float EPSILON = 1e-6f;
+
+    @Test
+    void testBlendRowTouchesOnlyTheRange() {
+        ColorBuffer buffer = new ColorBuffer(10, 3);
+        buffer.fill(0.2f, 0.2f, 0.2f);
+        buffer.blendRow(1, 2, 5, 1.0f, 0.0f, 0.0f, 0.5f);
+
+        assertEquals(0.6f, buffer.get(2, 1, 0), EPSILON);
+        assertEquals(0.1f, buffer.get(4, 1, 1), EPSILON);
+        assertEquals(0.2f, buffer.get(5, 1, 0), EPSILON, "The range end is exclusive");
+        assertEquals(0.2f, buffer.get(2, 0, 0), EPSILON, "Other rows are untouched");
+    }
+
+    @Test
+    void testScaleRegionIsClipped() {
+        ColorBuffer buffer = new ColorBuffer(8, 8);
+        buffer.fill(1.0f, 1.0f, 1.0f);
+        buffer.scaleRegion(new Rect(6, -2, 5, 4), 0.3f);
+
+        assertEquals(0.3f, buffer.get(7, 0, 2), EPSILON);
+        assertEquals(0.3f, buffer.get(6, 1, 2), EPSILON);
+        assertEquals(1.0f, buffer.get(5, 1, 2), EPSILON);
+        assertEquals(1.0f, buffer.get(7, 2, 2), EPSILON);
+    }
+
+    @Test
+    void testLightLayersAndPacking() {
+        ColorBuffer terrain = new ColorBuffer(4, 1);
+        terrain.fill(0.5f, 0.5f, 0.5f);
+        ColorBuffer light = new ColorBuffer(4, 1);
+        light.fillRow(0, 0, 4, 1.0f, 1.0f, 1.0f);
+        ColorBuffer torch = new ColorBuffer(4, 1);
+        torch.set(1, 0, BrogueColor.RED);
+        light.addRow(0, 0, 4, torch, 2.0f);
+
+        terrain.multiplyRow(0, 0, 4, light);
+        int[] packed = new int[6];
+        terrain.packRow(0, 0, 4, packed, 1);
+
+        int gray = new BrogueColor(0.5, 0.5, 0.5).toRgbInt();
+        assertArrayEquals(new int[] {0, gray, new BrogueColor(1.5, 0.5, 0.5).toRgbInt(), gray, gray, 0}, packed);
+    }
+}
@@ -0,0 +1,100 @@
+package lucas.games.brogue.backend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColorCompositorTest {
+
+    // Odd length and offset so both the vector loop and its scalar tail run
+    private static final int LENGTH = 203;
+    private static final int OFFSET = 5;
+
+    private final ColorCompositor scalar = new ScalarColorCompositor();
+    // The vector version is only reachable through create(), since it is compiled separately
+    private final ColorCompositor vector = ColorCompositor.create();
+
+    @Test
+    void testCreatePicksVectorWhenAvailable() {
+        boolean available = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        assertEquals(available ? ColorCompositor.VECTOR_IMPLEMENTATION : ScalarColorCompositor.class.getName(),
+                vector.getClass().getName());
+    }
+
+    @Test
+    void testChannelOperationsMatchScalar() {
+        float[] src = randomChannel(1);
+        float[] expected = randomChannel(2);
+        float[] actual = expected.clone();
+
+        scalar.blend(expected, src, OFFSET, LENGTH, 0.3f);
+        vector.blend(actual, src, OFFSET, LENGTH, 0.3f);
+        assertArrayEquals(expected, actual);
+
+        scalar.addScaled(expected, src, OFFSET, LENGTH, 1.7f);
+        vector.addScaled(actual, src, OFFSET, LENGTH, 1.7f);
+        assertArrayEquals(expected, actual);
+
+        scalar.multiply(expected, src, OFFSET, LENGTH);
+        vector.multiply(actual, src, OFFSET, LENGTH);
+        assertArrayEquals(expected, actual);
+
+        scalar.scale(expected, OFFSET, LENGTH, 0.5f);
+        vector.scale(actual, OFFSET, LENGTH, 0.5f);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void testPackMatchesScalar() {
+        float[] red = randomChannel(3);
+        float[] green = randomChannel(4);
+        float[] blue = randomChannel(5);
+
+        int[] expected = new int[LENGTH + 2];
+        int[] actual = new int[LENGTH + 2];
+        scalar.pack(red, green, blue, OFFSET, LENGTH, expected, 1);
+        vector.pack(red, green, blue, OFFSET, LENGTH, actual, 1);
+
+        assertArrayEquals(expected, actual);
+        assertEquals(0, actual[0], "Nothing written before the output offset");
+        assertEquals(0, actual[LENGTH + 1], "Nothing written after the run");
+    }
+
+    @Test
+    void testPackClamps() {
+        float[] red = {1.5f};
+        float[] green = {-0.5f};
+        float[] blue = {0.5f};
+        int[] out = new int[1];
+        vector.pack(red, green, blue, 0, 1, out, 0);
+        assertEquals(0xFF007F, out[0]);
+    }
+
+    @Test
+    void testBufferRows() {
+        ColorBuffer terrain = new ColorBuffer(40, 2);
+        terrain.fill(0.5f, 0.5f, 0.5f);
+        ColorBuffer light = new ColorBuffer(40, 2);
+        light.fillRow(1, 0, 40, 2.0f, 1.0f, 0.0f);
+
+        vector.multiplyRow(terrain, light, 1, 0, 40);
+        vector.scaleRow(terrain, 0, 0, 40, (float) RememberedMap.TERRAIN_DIM);
+
+        int[] row = new int[40];
+        vector.packRow(terrain, 1, 0, 40, row, 0);
+        assertEquals(0xFF7F00, row[39]);
+        vector.packRow(terrain, 0, 0, 40, row, 0);
+        assertEquals(PackedColor.pack(0.15, 0.15, 0.15), row[0]);
+    }
+
+    private static float[] randomChannel(long seed) {
+        Random random = new Random(seed);
+        float[] channel = new float[OFFSET + LENGTH + 3];
+        for (int i = 0; i < channel.length; i++) {
+            channel[i] = random.nextFloat() * 1.6f - 0.2f;
+        }
+        return channel;
+    }
+}
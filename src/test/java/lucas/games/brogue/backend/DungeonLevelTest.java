@@ -1,5 +1,7 @@
 package lucas.games.brogue.backend;
 
+import lucas.games.brogue.backend.entities.Player;
+import lucas.games.brogue.backend.entities.items.Gold;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -38,6 +40,220 @@ class DungeonLevelTest {
         Tile floorTile = new Tile(TerrainType.FLOOR);
         level.setTile(5, 5, floorTile);
 
-        assertSame(floorTile, level.getTile(5, 5));
+        // Tiles are views, so the state is copied rather than the object stored
+        assertEquals(TerrainType.FLOOR, level.getTile(5, 5).getTerrain());
+        assertEquals(TerrainType.WALL, level.getTile(5, 6).getTerrain());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testDetachedTileCopiesEveryLayer() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+        Tile tile = new Tile(TerrainType.FLOOR);
+        tile.setLayer(TerrainLayer.LIQUID, TerrainType.WATER);
+        tile.setVisible(true);
+        Gold gold = new Gold(new Position(3, 3));
+        tile.addItem(gold);
+
+        assertEquals(TerrainType.WATER, tile.getDisplayTerrain());
+        assertTrue((tile.getTerrainFlags() & TerrainFlags.IS_LIQUID) != 0);
+
+        level.setTile(3, 3, tile);
+        Tile copied = level.getTile(3, 3);
+        assertEquals(TerrainType.FLOOR, copied.getTerrain());
+        assertEquals(TerrainType.WATER, copied.getLayer(TerrainLayer.LIQUID));
+        assertTrue(copied.isExplored());
+        assertSame(gold, copied.getTopItem());
+    }
+
+    @Test
+    void testTileViewWritesThrough() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+
+        level.getTile(3, 4).setTerrain(TerrainType.FLOOR);
+        level.getTile(3, 4).setVisible(true);
+
+        Tile t = level.getTile(3, 4);
+        assertEquals(TerrainType.FLOOR, t.getTerrain());
+        assertTrue(t.isVisible());
+        assertTrue(t.isExplored());
+    }
+
+    @Test
+    void testPrepareTurnKeepsMemory() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+        level.getTile(2, 2).setVisible(true);
+        level.getTile(2, 2).setLightColor(BrogueColor.TORCH_LIGHT);
+
+        level.prepareTurn();
+
+        Tile t = level.getTile(2, 2);
+        assertFalse(t.isVisible(), "Visibility should be cleared each turn");
+        assertTrue(t.isExplored(), "Map memory should persist");
+        assertEquals(BrogueColor.BLACK, t.getLightColor());
+    }
+
+    @Test
+    void testResetClearsLevel() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+        level.getTile(1, 1).setTerrain(TerrainType.FLOOR);
+        level.getTile(1, 1).setVisible(true);
+
+        level.reset();
+
+        assertEquals(TerrainType.WALL, level.getTile(1, 1).getTerrain());
+        assertFalse(level.getTile(1, 1).isExplored());
+    }
+
+    @Test
+    void testFillRectClipsToBounds() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+
+        level.fillRect(new Rect(8, 8, 5, 5), TerrainType.FLOOR);
+
+        assertEquals(TerrainType.FLOOR, level.getTile(8, 8).getTerrain());
+        assertEquals(TerrainType.FLOOR, level.getTile(9, 9).getTerrain());
+        assertEquals(TerrainType.WALL, level.getTile(7, 8).getTerrain());
+    }
+
+    @Test
+    void testCarveLine() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+
+        level.carveLine(1, 1, 6, 1, TerrainType.FLOOR);
+
+        for (int x = 1; x <= 6; x++) {
+            assertEquals(TerrainType.FLOOR, level.getTile(x, 1).getTerrain(), "Line should include both endpoints");
+        }
+        assertEquals(TerrainType.WALL, level.getTile(7, 1).getTerrain());
+        assertEquals(TerrainType.WALL, level.getTile(1, 2).getTerrain());
+    }
+
+    @Test
+    void testSetTerrainKeepsOccupant() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+        Player player = new Player(new Position(4, 4));
+        level.getTile(4, 4).setOccupant(player);
+
+        level.setTerrain(4, 4, TerrainType.FLOOR);
+
+        assertEquals(TerrainType.FLOOR, level.getTile(4, 4).getTerrain());
+        assertSame(player, level.getTile(4, 4).getOccupant());
+    }
+
+    @Test
+    void testOccupantAccessorWithoutTile() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+        Player player = new Player(new Position(2, 7));
+        level.getTile(2, 7).setOccupant(player);
+
+        assertSame(player, level.getOccupant(2, 7));
+        assertNull(level.getOccupant(3, 7));
+        assertNull(level.getOccupant(-1, 7), "Out of bounds cells have no occupant");
+    }
+
+    @Test
+    void testBitLayersFollowTerrainAndOccupants() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+        assertTrue(level.isOpaque(3, 3));
+        assertFalse(level.isPassable(3, 3));
+
+        // Terrain changed through a tile view
+        level.getTile(3, 3).setTerrain(TerrainType.FLOOR);
+        assertFalse(level.isOpaque(3, 3));
+        assertTrue(level.isPassable(3, 3));
+
+        // Terrain changed through bulk carving
+        level.fillRect(new Rect(5, 5, 2, 2), TerrainType.DOOR_OPEN);
+        assertTrue(level.isPassable(6, 6));
+        assertFalse(level.isOpaque(6, 6));
+
+        // Occupants
+        Player player = new Player(new Position(3, 3));
+        level.getTile(3, 3).setOccupant(player);
+        assertTrue(level.isOccupied(3, 3));
+        level.getTile(3, 3).setOccupant(null);
+        assertFalse(level.isOccupied(3, 3));
+
+        // Reset restores the wall layers
+        level.reset();
+        assertTrue(level.isOpaque(3, 3));
+        assertFalse(level.isPassable(6, 6));
+    }
+
+    @Test
+    void testBitLayersOutOfBounds() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+
+        assertTrue(level.isOpaque(-1, 0), "Outside the map should block light");
+        assertFalse(level.isPassable(10, 0), "Outside the map should not be walkable");
+        assertFalse(level.isOccupied(0, 10));
+    }
+
+    @Test
+    void testLayersCombineFlags() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+        level.setTerrain(2, 2, TerrainType.FLOOR);
+        assertFalse(level.isOpaque(2, 2));
+
+        // Smoke on the gas layer blocks vision without touching the floor underneath
+        level.setLayer(2, 2, TerrainLayer.GAS, TerrainType.SMOKE);
+        assertTrue(level.isOpaque(2, 2));
+        assertTrue(level.isPassable(2, 2));
+        assertEquals(TerrainType.FLOOR, level.getTile(2, 2).getTerrain());
+
+        // Grass is flammable and drawn over the floor
+        level.setLayer(2, 2, TerrainLayer.SURFACE, TerrainType.GRASS);
+        assertTrue(level.hasTerrainFlag(2, 2, TerrainFlags.IS_FLAMMABLE));
+        assertEquals(TerrainType.GRASS, level.getDisplayTerrain(2, 2));
+
+        // Clearing the gas restores visibility
+        level.setLayer(2, 2, TerrainLayer.GAS, null);
+        assertFalse(level.isOpaque(2, 2));
+        assertNull(level.getLayer(2, 2, TerrainLayer.GAS));
+    }
+
+    @Test
+    void testCarvingKeepsUpperLayerFlags() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+        level.setLayer(4, 4, TerrainLayer.LIQUID, TerrainType.LAVA);
+
+        level.fillRect(new Rect(3, 3, 3, 3), TerrainType.FLOOR);
+
+        int flags = level.getTerrainFlags(4, 4);
+        assertTrue((flags & TerrainFlags.IS_LIQUID) != 0, "Lava should survive carving the floor underneath");
+        assertEquals(0, flags & TerrainFlags.OBSTRUCTS_PASSABILITY);
+        assertEquals(0, level.getTerrainFlags(3, 3) & TerrainFlags.IS_LIQUID);
+
+        level.reset();
+        assertNull(level.getLayer(4, 4, TerrainLayer.LIQUID));
+        assertFalse(level.hasTerrainFlag(4, 4, TerrainFlags.IS_LIQUID));
+    }
+
+    @Test
+    void testStencilIterationIsClipped() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+        Stencil disc = Stencil.disc(3);
+
+        int[] cells = new int[disc.size()];
+        assertEquals(disc.size(), level.collectStencil(5, 5, disc, cells), "Fully inside the level");
+
+        int count = level.collectStencil(0, 1, disc, cells);
+        int[] visited = new int[1];
+        level.forEachInStencil(0, 1, disc, (x, y) -> {
+            assertTrue(level.isValidCoordinate(x, y));
+            assertTrue(disc.contains(x, y - 1));
+            visited[0]++;
+        });
+
+        // Reference count by brute force over the bounding box
+        int expected = 0;
+        for (int y = -2; y <= 4; y++) {
+            for (int x = -3; x <= 3; x++) {
+                if (level.isValidCoordinate(x, y) && x * x + (y - 1) * (y - 1) < 9) expected++;
+            }
+        }
+        assertEquals(expected, count);
+        assertEquals(expected, visited[0]);
+        assertEquals(PackedPosition.pack(0, 0), cells[0], "Cells come out in row-major order");
+    }
+}
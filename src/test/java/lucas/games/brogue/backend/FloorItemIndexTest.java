@@ -0,0 +1,78 @@
+package lucas.games.brogue.backend;
+
+import lucas.games.brogue.backend.entities.items.Food;
+import lucas.games.brogue.backend.entities.items.Gold;
+import lucas.games.brogue.backend.entities.items.Item;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FloorItemIndexTest {
+
+    @Test
+    void testStackOrder() {
+        FloorItemIndex index = new FloorItemIndex(10, 10);
+        Gold gold = new Gold(new Position(2, 3));
+        Food food = new Food(new Position(2, 3));
+
+        index.add(2, 3, gold);
+        index.add(2, 3, food);
+
+        assertTrue(index.hasItems(2, 3));
+        assertSame(food, index.getTopItem(2, 3), "Last dropped item should be on top");
+        assertEquals(List.of(gold, food), index.getStack(2, 3));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testRemovingLastItemClearsCell() {
+        FloorItemIndex index = new FloorItemIndex(10, 10);
+        Gold gold = new Gold(new Position(1, 1));
+        index.add(1, 1, gold);
+
+        assertTrue(index.remove(1, 1, gold));
+        assertFalse(index.hasItems(1, 1));
+        assertNull(index.getTopItem(1, 1));
+        assertFalse(index.remove(1, 1, gold), "Removing twice should fail");
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testAreaQueries() {
+        FloorItemIndex index = new FloorItemIndex(100, 20);
+        Item near = new Gold(new Position(50, 10));
+        Item edge = new Gold(new Position(53, 10));
+        Item far = new Gold(new Position(90, 2));
+        index.add(50, 10, near);
+        index.add(53, 10, edge);
+        index.add(90, 2, far);
+
+        List<Item> found = new ArrayList<>();
+        assertEquals(2, index.collectInRect(new Rect(45, 5, 10, 10), found));
+        assertTrue(found.contains(near) && found.contains(edge));
+
+        found.clear();
+        assertEquals(1, index.collectInRadius(50, 10, 2, found));
+        assertSame(near, found.getFirst());
+
+        found.clear();
+        assertEquals(3, index.collectInRect(new Rect(-5, -5, 200, 200), found), "Rect should be clipped to the level");
+    }
+
+    @Test
+    void testTileViewUsesIndex() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+        Gold gold = new Gold(new Position(4, 4));
+
+        level.getTile(4, 4).addItem(gold);
+
+        assertSame(gold, level.getFloorItems().getTopItem(4, 4));
+        assertSame(gold, level.getTile(4, 4).getTopItem());
+
+        level.reset();
+        assertEquals(0, level.getFloorItems().size(), "Reset should clear floor items");
+    }
+}
@@ -1,6 +1,9 @@
 package lucas.games.brogue.backend;
 
+import lucas.games.brogue.backend.entities.Monster;
 import lucas.games.brogue.backend.entities.Player;
+import lucas.games.brogue.backend.entities.items.Food;
+import lucas.games.brogue.backend.entities.items.Weapon;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -56,6 +59,37 @@ class GameManagerTest {
         assertSame(player, level.getTile(end).getOccupant(), "New tile should have the player");
     }
 
+    @Test
+    void testPlayerTorchFollowsPlayer() {
+        DungeonLevel level = gameManager.getDungeonLevel();
+        level.fillRect(new Rect(1, 1, 18, 18), TerrainType.FLOOR);
+
+        gameManager.spawnPlayer(new Position(3, 3));
+        assertEquals((float) BrogueColor.TORCH_LIGHT.red(), level.getLight(3, 3, 0), 1e-4f);
+
+        gameManager.moveEntity(gameManager.getPlayer(), new Position(4, 4));
+        assertEquals((float) BrogueColor.TORCH_LIGHT.green(), level.getLight(4, 4, 1), 1e-4f);
+        assertTrue(level.getLight(3, 3, 0) < BrogueColor.TORCH_LIGHT.red(), "Old spot should be dimmer once the torch moves");
+    }
+
+    @Test
+    void testMovementWithPackedCoordinate() {
+        Position start = new Position(1, 1);
+        Position end = new Position(2, 2);
+
+        DungeonLevel level = gameManager.getDungeonLevel();
+        level.getTile(start).setTerrain(TerrainType.FLOOR);
+        level.getTile(end).setTerrain(TerrainType.FLOOR);
+
+        gameManager.spawnPlayer(start);
+        boolean moved = gameManager.moveEntity(gameManager.getPlayer(), PackedPosition.pack(end));
+
+        assertTrue(moved);
+        assertEquals(end, gameManager.getPlayer().getPosition());
+        assertTrue(level.isOccupied(2, 2));
+        assertFalse(level.isOccupied(1, 1));
+    }
+
     @Test
     void testCollisionWithWall() {
         Position start = new Position(1, 1);
@@ -102,4 +136,64 @@ class GameManagerTest {
         assertNotNull(gameManager.getPlayer());
         assertEquals(floorPos, gameManager.getPlayer().getPosition());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testThrownWeaponHitsMonsterAndLands() {
+        DungeonLevel level = gameManager.getDungeonLevel();
+        level.fillRect(new Rect(1, 1, 10, 3), TerrainType.FLOOR);
+        gameManager.spawnPlayer(new Position(1, 2));
+        Monster rat = new Monster(new Position(5, 2), 'r', BrogueColor.RED, "Rat", 20, 1, 0);
+        gameManager.spawnEntity(rat, rat.getPosition());
+
+        Weapon dagger = new Weapon(new Position(0, 0), "Dagger", 4);
+        gameManager.getPlayer().getInventory().add(dagger);
+        gameManager.getPlayer().equip(dagger);
+
+        assertTrue(gameManager.throwItem(0, new Position(9, 2)));
+
+        assertEquals(new Position(5, 2), dagger.getPosition(), "The dagger stops at the rat");
+        assertSame(dagger, level.getFloorItems().getTopItem(5, 2));
+        assertEquals(0, gameManager.getPlayer().getInventory().size());
+        assertNull(gameManager.getPlayer().getEquippedWeapon());
+        assertEquals(20 - 9, rat.getCurrentHp(), "Base damage plus the dagger's bonus");
+    }
+
+    @Test
+    void testThrownItemStopsAtWall() {
+        DungeonLevel level = gameManager.getDungeonLevel();
+        level.fillRect(new Rect(1, 1, 6, 1), TerrainType.FLOOR);
+        gameManager.spawnPlayer(new Position(1, 1));
+        Food food = new Food(new Position(0, 0));
+        gameManager.getPlayer().getInventory().add(food);
+
+        gameManager.throwItem(0, new Position(12, 1));
+
+        assertEquals(new Position(6, 1), food.getPosition(), "Lands in front of the wall");
+        assertTrue(gameManager.getEntities().contains(food));
+        assertFalse(gameManager.throwItem(0, new Position(3, 1)), "Nothing left to throw");
+    }
+
+    @Test
+    void testKilledMonsterLeavesRegistryAtEndOfPhase() {
+        DungeonLevel level = gameManager.getDungeonLevel();
+        level.fillRect(new Rect(1, 1, 10, 3), TerrainType.FLOOR);
+        gameManager.spawnPlayer(new Position(1, 2));
+        Monster rat = new Monster(new Position(5, 2), 'r', BrogueColor.RED, "Rat", 5, 1, 0);
+        Monster bat = new Monster(new Position(9, 1), 'b', BrogueColor.RED, "Bat", 5, 1, 0);
+        gameManager.spawnEntity(rat, rat.getPosition());
+        gameManager.spawnEntity(bat, bat.getPosition());
+        assertEquals(2, gameManager.getMonsters().size());
+
+        Weapon dagger = new Weapon(new Position(0, 0), "Dagger", 4);
+        gameManager.getPlayer().getInventory().add(dagger);
+        gameManager.throwItem(0, new Position(9, 2));
+
+        assertTrue(rat.isDead());
+        assertEquals(1, gameManager.getMonsters().size());
+        assertSame(bat, gameManager.getMonsters().get(0));
+        assertFalse(gameManager.getEntities().contains(rat));
+        assertEquals(3, gameManager.getEntities().size(), "The player, the bat and the dagger");
+        assertSame(gameManager.getPlayer(), gameManager.getEntities().get(0));
+        assertTrue(gameManager.getItems().contains(dagger));
+    }
+}
@@ -0,0 +1,51 @@
+package lucas.games.brogue.backend;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MutableColorTest {
+
+    private static final float EPSILON = 1e-6f;
+
+    @Test
+    void testMatchesImmutableOperations() {
+        BrogueColor base = new BrogueColor(0.2, 0.4, 0.6);
+        BrogueColor expected = base.add(BrogueColor.RED.scale(0.5)).lerp(BrogueColor.WHITE, 0.25).scale(0.8);
+
+        MutableColor color = new MutableColor().set(base)
+                .addScaled(BrogueColor.RED, 0.5f)
+                .lerp(BrogueColor.WHITE, 0.25f)
+                .scale(0.8f);
+
+        assertEquals(expected.red(), color.red(), EPSILON);
+        assertEquals(expected.green(), color.green(), EPSILON);
+        assertEquals(expected.blue(), color.blue(), EPSILON);
+        assertEquals(expected.toRgbInt(), color.toRgbInt());
+    }
+
+    @Test
+    void testClampAndPack() {
+        MutableColor color = new MutableColor(1.5f, -0.5f, 0.5f);
+        assertEquals(0xFF007F, color.toRgbInt());
+        assertEquals(1.5f, color.red(), "Packing does not clamp in place");
+
+        color.clamp();
+        assertEquals(1.0f, color.red());
+        assertEquals(0.0f, color.green());
+    }
+
+    @Test
+    void testAtLeastRaisesOnlyDarkChannels() {
+        MutableColor color = new MutableColor(0.9f, 0.05f, 0.0f).atLeast(0.2f);
+        assertEquals(0.9f, color.red());
+        assertEquals(0.2f, color.green());
+        assertEquals(0.2f, color.blue());
+    }
+
+    @Test
+    void testSetRgbRoundTrip() {
+        MutableColor color = new MutableColor().setRgb(0x336699);
+        assertEquals(0x336699, color.toRgbInt());
+    }
+}
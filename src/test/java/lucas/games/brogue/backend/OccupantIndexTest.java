@@ -0,0 +1,125 @@
+package lucas.games.brogue.backend;
+
+import lucas.games.brogue.backend.entities.Entity;
+import lucas.games.brogue.backend.entities.Monster;
+import lucas.games.brogue.backend.entities.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupantIndexTest {
+
+    @Test
+    void testAddAndRemove() {
+        OccupantIndex index = new OccupantIndex(40, 40);
+        Monster rat = rat(3, 4);
+        index.add(3, 4, rat);
+
+        assertEquals(1, index.size());
+        assertFalse(index.remove(5, 5, rat), "Removing from the wrong cell should fail");
+        assertTrue(index.remove(3, 4, rat));
+        assertFalse(index.remove(3, 4, rat), "Removing twice should fail");
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testRadiusQueryAcrossBuckets() {
+        OccupantIndex index = new OccupantIndex(40, 40);
+        Monster near = rat(10, 10);
+        Monster edge = rat(15, 10);   // Exactly on the radius, in the next bucket
+        Monster corner = rat(14, 14); // Inside the square but outside the circle
+        Monster far = rat(30, 30);
+        index.add(10, 10, near);
+        index.add(15, 10, edge);
+        index.add(14, 14, corner);
+        index.add(30, 30, far);
+
+        List<Entity> out = new ArrayList<>();
+        assertEquals(2, index.collectInRadius(10, 10, 5, out));
+        assertTrue(out.contains(near));
+        assertTrue(out.contains(edge));
+    }
+
+    @Test
+    void testMonsterQuerySkipsPlayer() {
+        OccupantIndex index = new OccupantIndex(40, 40);
+        Player player = new Player(new Position(10, 10));
+        Monster rat = rat(11, 10);
+        index.add(10, 10, player);
+        index.add(11, 10, rat);
+
+        List<Monster> out = new ArrayList<>();
+        assertEquals(1, index.collectMonstersInRadius(10, 10, 5, out));
+        assertEquals(List.of(rat), out);
+
+        // The typed column follows the swap on removal
+        index.remove(10, 10, player);
+        out.clear();
+        assertEquals(1, index.collectMonstersInRadius(10, 10, 5, out));
+        assertEquals(List.of(rat), out);
+    }
+
+    @Test
+    void testRectQueryClipsToLevel() {
+        OccupantIndex index = new OccupantIndex(20, 20);
+        Monster inside = rat(0, 0);
+        Monster outside = rat(5, 0);
+        index.add(0, 0, inside);
+        index.add(5, 0, outside);
+
+        List<Entity> out = new ArrayList<>();
+        assertEquals(1, index.collectInRect(new Rect(-3, -3, 8, 8), out));
+        assertEquals(List.of(inside), out);
+        assertEquals(0, index.collectInRect(new Rect(30, 30, 5, 5), out));
+    }
+
+    @Test
+    void testNearestInOrder() {
+        OccupantIndex index = new OccupantIndex(64, 64);
+        Player player = new Player(new Position(20, 20));
+        Monster a = rat(22, 20);
+        Monster b = rat(20, 27);
+        Monster c = rat(35, 20);
+        Monster d = rat(60, 60);
+        index.add(20, 20, player);
+        index.add(35, 20, c);
+        index.add(22, 20, a);
+        index.add(60, 60, d);
+        index.add(20, 27, b);
+
+        List<Entity> out = new ArrayList<>();
+        assertEquals(3, index.collectNearest(20, 20, 3, 30, player, out));
+        assertEquals(List.of(a, b, c), out, "Nearest first, skipping the excluded entity");
+
+        out.clear();
+        assertEquals(2, index.collectNearest(20, 20, 5, 10, player, out), "Only entities within the radius");
+        assertEquals(List.of(a, b), out);
+    }
+
+    @Test
+    void testLevelKeepsIndexInStep() {
+        DungeonLevel level = new DungeonLevel(30, 30);
+        level.fillRect(new Rect(0, 0, 30, 30), TerrainType.FLOOR);
+        Monster rat = rat(2, 2);
+        level.getTile(2, 2).setOccupant(rat);
+
+        // A move is a clear followed by a set, as GameManager does it
+        level.getTile(2, 2).setOccupant(null);
+        level.getTile(20, 20).setOccupant(rat);
+
+        List<Entity> out = new ArrayList<>();
+        assertEquals(0, level.getOccupants().collectInRadius(2, 2, 3, out));
+        assertEquals(1, level.getOccupants().collectInRadius(20, 20, 1, out));
+        assertEquals(1, level.getOccupants().size());
+
+        level.reset();
+        assertEquals(0, level.getOccupants().size());
+    }
+
+    private static Monster rat(int x, int y) {
+        return new Monster(new Position(x, y), 'r', BrogueColor.RED, "Rat", 6, 6, 2);
+    }
+}
@@ -0,0 +1,36 @@
+package lucas.games.brogue.backend;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PackedColorTest {
+
+    @Test
+    void testPackMatchesBrogueColor() {
+        BrogueColor[] colors = {
+                BrogueColor.TORCH_LIGHT, new BrogueColor(1.3, -0.2, 0.5), new BrogueColor(0.3, 0.9, 0.6)
+        };
+        for (BrogueColor color : colors) {
+            assertEquals(color.clamp().toRgbInt(), PackedColor.pack(color.red(), color.green(), color.blue()));
+            assertEquals(color.scale(0.3).toRgbInt(), color.toRgbInt(0.3));
+        }
+    }
+
+    @Test
+    void testChannels() {
+        int rgb = PackedColor.packBytes(300, 128, -5);
+        assertEquals(255, PackedColor.red(rgb));
+        assertEquals(128, PackedColor.green(rgb));
+        assertEquals(0, PackedColor.blue(rgb));
+    }
+
+    @Test
+    void testBlendingSaturates() {
+        int gray = PackedColor.packBytes(100, 100, 100);
+        assertEquals(PackedColor.packBytes(50, 50, 50), PackedColor.scale(gray, 0.5));
+        assertEquals(PackedColor.packBytes(255, 200, 200), PackedColor.add(gray, PackedColor.packBytes(200, 100, 100)));
+        assertEquals(PackedColor.packBytes(177, 177, 177), PackedColor.lerp(gray, PackedColor.WHITE, 0.5));
+        assertEquals(PackedColor.WHITE, PackedColor.scale(gray, 10.0));
+    }
+}
@@ -0,0 +1,61 @@
+package lucas.games.brogue.backend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedPositionTest {
+
+    @Test
+    void testRoundTrip() {
+        int p = PackedPosition.pack(123, 456);
+        assertEquals(123, PackedPosition.x(p));
+        assertEquals(456, PackedPosition.y(p));
+        assertEquals(new Position(123, 456), PackedPosition.toPosition(p));
+
+        // Negative coordinates survive too (useful for off-map neighbour probes)
+        int n = PackedPosition.pack(-1, -7);
+        assertEquals(-1, PackedPosition.x(n));
+        assertEquals(-7, PackedPosition.y(n));
+    }
+
+    @Test
+    void testNeighbors() {
+        int center = PackedPosition.pack(5, 5);
+        Set<Position> seen = new HashSet<>();
+
+        for (int dir = 0; dir < PackedPosition.DIRECTION_COUNT; dir++) {
+            int n = PackedPosition.neighbor(center, dir);
+            assertEquals(1, PackedPosition.chebyshevDistance(center, n));
+            seen.add(PackedPosition.toPosition(n));
+        }
+
+        assertEquals(8, seen.size(), "All 8 directions should be distinct");
+    }
+
+    @Test
+    void testDistancesMatchPosition() {
+        Position a = new Position(0, 0);
+        Position b = new Position(3, 4);
+        int pa = PackedPosition.pack(a);
+        int pb = PackedPosition.pack(b);
+
+        assertEquals(25, PackedPosition.distanceSquared(pa, pb));
+        assertEquals(a.distance(b), PackedPosition.distance(pa, pb), 0.001);
+        assertEquals(a.chebyshevDistance(b), PackedPosition.chebyshevDistance(pa, pb));
+    }
+
+    @Test
+    void testValidity() {
+        assertTrue(PackedPosition.isValid(PackedPosition.pack(9, 9), 10, 10));
+        assertFalse(PackedPosition.isValid(PackedPosition.pack(10, 9), 10, 10));
+        assertFalse(PackedPosition.isValid(PackedPosition.pack(-1, 0), 10, 10));
+
+        DungeonLevel level = new DungeonLevel(10, 10);
+        assertNull(level.getTile(PackedPosition.pack(0, -1)));
+        assertNotNull(level.getTile(PackedPosition.pack(0, 0)));
+    }
+}
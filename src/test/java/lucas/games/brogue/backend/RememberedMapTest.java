@@ -0,0 +1,92 @@
+package lucas.games.brogue.backend;
+
+import lucas.games.brogue.backend.entities.items.Food;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RememberedMapTest {
+
+    @Test
+    void testUnseenCellsAreBlank() {
+        RememberedMap map = new RememberedMap(100, 100);
+        assertFalse(map.isRemembered(50, 50));
+        assertEquals(0, map.getGlyph(50, 50));
+        assertEquals(0, map.getColor(50, 50));
+    }
+
+    @Test
+    void testCopyRowAcrossBlocks() {
+        RememberedMap map = new RememberedMap(100, 10);
+        map.remember(30, 2, '#', 0x112233);
+        map.remember(33, 2, '.', 0x445566);
+
+        char[] glyphs = new char[10];
+        int[] colors = new int[10];
+        map.copyRow(2, 28, 36, glyphs, colors, 1);
+
+        assertEquals('#', glyphs[3]);
+        assertEquals(0x112233, colors[3]);
+        assertEquals('.', glyphs[6]);
+        assertEquals(0x445566, colors[6]);
+        assertEquals(0, glyphs[1]);
+        assertEquals(0, glyphs[8]);
+    }
+
+    @Test
+    void testSerializationRoundTrip() throws IOException {
+        RememberedMap map = new RememberedMap(70, 40);
+        map.remember(0, 0, '#', 0x010203);
+        map.remember(69, 39, '>', 0xFFFFFF);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        map.writeTo(new DataOutputStream(bytes));
+        RememberedMap copy = RememberedMap.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(70, copy.getWidth());
+        assertEquals(40, copy.getHeight());
+        assertEquals('#', copy.getGlyph(0, 0));
+        assertEquals(0x010203, copy.getColor(0, 0));
+        assertEquals('>', copy.getGlyph(69, 39));
+        assertFalse(copy.isRemembered(35, 20));
+    }
+
+    @Test
+    void testLevelRemembersWhatWasSeen() {
+        DungeonLevel level = new DungeonLevel(5, 5);
+        level.setTerrain(2, 2, TerrainType.FLOOR);
+        Food food = new Food(new Position(2, 2));
+        level.getTile(2, 2).addItem(food);
+
+        level.getTile(2, 2).setVisible(true);
+        level.prepareTurn();
+
+        // The item is taken while out of sight: memory must still show it
+        level.getTile(2, 2).removeItem(food);
+
+        RememberedMap memory = level.getRememberedMap();
+        assertEquals(food.getSymbol(), memory.getGlyph(2, 2));
+        assertEquals(food.getColor().scale(RememberedMap.ITEM_DIM).toRgbInt(), memory.getColor(2, 2));
+
+        // Seeing it again updates the memory
+        level.getTile(2, 2).setVisible(true);
+        assertEquals(TerrainType.FLOOR.getSymbol(), memory.getGlyph(2, 2));
+        assertEquals(TerrainType.FLOOR.getColor().scale(RememberedMap.TERRAIN_DIM).toRgbInt(), memory.getColor(2, 2));
+    }
+
+    @Test
+    void testResetForgetsMemory() {
+        DungeonLevel level = new DungeonLevel(5, 5);
+        level.getTile(1, 1).setVisible(true);
+        assertTrue(level.getRememberedMap().isRemembered(1, 1));
+
+        level.reset();
+        assertFalse(level.getRememberedMap().isRemembered(1, 1));
+    }
+}
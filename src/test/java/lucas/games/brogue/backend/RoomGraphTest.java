@@ -0,0 +1,85 @@
+package lucas.games.brogue.backend;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static lucas.games.brogue.backend.TestLevels.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomGraphTest {
+
+    @Test
+    void testRegionsSplitCorridors() {
+        DungeonLevel level = threeRooms();
+        RoomGraph graph = RoomGraph.build(level, List.of(LEFT, MIDDLE, RIGHT));
+
+        assertEquals(0, graph.regionAt(4, 4));
+        assertEquals(0, graph.regionAt(8, 4), "Corridor cells belong to the nearest room");
+        assertEquals(1, graph.regionAt(12, 4));
+        assertEquals(RoomGraph.NO_ROOM, graph.regionAt(0, 0));
+        assertEquals(RoomGraph.NO_ROOM, graph.regionAt(-1, 4));
+        assertTrue(graph.getRegionBounds(0).x2() > LEFT.x2(), "A region's bounds include its corridors");
+    }
+
+    @Test
+    void testLinksAndDistances() {
+        DungeonLevel level = threeRooms();
+        RoomGraph graph = RoomGraph.build(level, List.of(LEFT, MIDDLE, RIGHT));
+
+        assertEquals(1, graph.getLinkCount(0));
+        assertEquals(1, graph.getLinkTarget(0, 0));
+        assertEquals(120, graph.getLinkCost(0, 0), "Twelve straight steps between the centres");
+        assertEquals(2, graph.getLinkCount(1));
+        assertEquals(240, graph.getDistance(0, 2));
+        assertEquals(0, graph.getDistance(1, 1));
+        assertEquals(1, graph.nextRoom(0, 2));
+        assertEquals(2, graph.nextRoom(1, 2));
+
+        int[] route = new int[4];
+        assertEquals(3, graph.route(0, 2, route));
+        assertArrayEquals(new int[] {0, 1, 2, 0}, route);
+    }
+
+    @Test
+    void testCorridorThroughRoomLinksBothSides() {
+        DungeonLevel level = new DungeonLevel(40, 12);
+        level.fillRect(LEFT, TerrainType.FLOOR);
+        level.fillRect(MIDDLE, TerrainType.FLOOR);
+        level.fillRect(RIGHT, TerrainType.FLOOR);
+        // A single corridor from the left room to the right one, straight through the middle room
+        level.carveLine(4, 4, 28, 4, TerrainType.FLOOR);
+        RoomGraph graph = RoomGraph.build(level, List.of(LEFT, MIDDLE, RIGHT));
+
+        assertEquals(1, graph.nextRoom(0, 2), "The route goes through the middle room");
+        assertEquals(1, graph.getLinkCount(0));
+    }
+
+    @Test
+    void testHugeLevelOnlyMapsItsFloor() {
+        ChunkedDungeonLevel level = new ChunkedDungeonLevel(4000, 4000);
+        Rect hall = new Rect(3000, 3000, 40, 40);
+        Rect cell = new Rect(3100, 3010, 5, 5);
+        level.fillRect(hall, TerrainType.FLOOR);
+        level.fillRect(cell, TerrainType.FLOOR);
+        level.carveLine(3020, 3020, 3102, 3012, TerrainType.FLOOR);
+        RoomGraph graph = RoomGraph.build(level, List.of(hall, cell));
+
+        assertEquals(1, graph.nextRoom(0, 1));
+        assertEquals(0, graph.regionAt(3039, 3039), "Every cell of the hall was flooded");
+        assertEquals(RoomGraph.NO_ROOM, graph.regionAt(10, 10));
+        assertTrue(graph.getAllocatedBlockCount() < 16, "Only blocks around the floor get memory");
+    }
+
+    @Test
+    void testDisconnectedRoom() {
+        DungeonLevel level = threeRooms();
+        level.fillRect(CLOSET, TerrainType.FLOOR);
+        RoomGraph graph = RoomGraph.build(level, List.of(LEFT, MIDDLE, RIGHT, CLOSET));
+
+        assertEquals(RoomGraph.UNREACHABLE, graph.getDistance(0, 3));
+        assertEquals(RoomGraph.NO_ROOM, graph.nextRoom(0, 3));
+        assertEquals(0, graph.route(0, 3, new int[4]));
+        assertEquals(3, graph.regionAt(3, 9));
+    }
+}
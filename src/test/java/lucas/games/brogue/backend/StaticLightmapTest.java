@@ -0,0 +1,75 @@
+package lucas.games.brogue.backend;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticLightmapTest {
+
+    @Test
+    void testAddAccumulates() {
+        StaticLightmap map = new StaticLightmap(100, 40);
+        assertTrue(map.isEmpty());
+
+        map.add(40, 20, 0.25f, 0.5f, 0.0f);
+        map.add(40, 20, 0.25f, 0.0f, 1.0f);
+
+        assertFalse(map.isEmpty());
+        assertEquals(0.5f, map.get(40, 20, 0));
+        assertEquals(0.5f, map.get(40, 20, 1));
+        assertEquals(1.0f, map.get(40, 20, 2));
+        assertEquals(0.0f, map.get(0, 0, 0), "Unlit blocks read as dark");
+    }
+
+    @Test
+    void testSerializationRoundTrip() throws IOException {
+        StaticLightmap map = new StaticLightmap(70, 40);
+        map.add(0, 0, 0.1f, 0.2f, 0.3f);
+        map.add(69, 39, 1.0f, 0.5f, 0.25f);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        map.writeTo(new DataOutputStream(bytes));
+        StaticLightmap copy = StaticLightmap.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(70, copy.getWidth());
+        assertEquals(40, copy.getHeight());
+        assertEquals(0.2f, copy.get(0, 0, 1));
+        assertEquals(0.25f, copy.get(69, 39, 2));
+        assertEquals(0.0f, copy.get(35, 20, 0));
+    }
+
+    @Test
+    void testApplyAndRemove() {
+        DungeonLevel level = new DungeonLevel(20, 20);
+        level.getStaticLightmap().add(5, 5, 0.5f, 0.25f, 0.0f);
+        level.addLight(5, 5, 0.25f, 0.0f, 0.0f);
+
+        level.getStaticLightmap().applyTo(level);
+        assertEquals(0.75f, level.getLight(5, 5, 0));
+        assertEquals(0.25f, level.getLight(5, 5, 1));
+
+        level.getStaticLightmap().removeFrom(level);
+        assertEquals(0.25f, level.getLight(5, 5, 0));
+        assertEquals(0.0f, level.getLight(5, 5, 1));
+    }
+
+    @Test
+    void testCopyFromRejectsOtherSizes() {
+        StaticLightmap map = new StaticLightmap(20, 20);
+        assertThrows(IllegalArgumentException.class, () -> map.copyFrom(new StaticLightmap(30, 20)));
+    }
+
+    @Test
+    void testResetClearsBakedLight() {
+        DungeonLevel level = new DungeonLevel(20, 20);
+        level.getStaticLightmap().add(3, 3, 1.0f, 1.0f, 1.0f);
+        level.reset();
+        assertTrue(level.getStaticLightmap().isEmpty());
+    }
+}
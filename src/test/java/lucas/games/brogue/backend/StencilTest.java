@@ -0,0 +1,55 @@
+package lucas.games.brogue.backend;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StencilTest {
+
+    @Test
+    void testDiscMatchesDistanceTest() {
+        for (int radius = 0; radius <= 12; radius++) {
+            Stencil disc = Stencil.disc(radius);
+            int expected = 0;
+            for (int dy = -radius - 1; dy <= radius + 1; dy++) {
+                for (int dx = -radius - 1; dx <= radius + 1; dx++) {
+                    boolean inside = dx * dx + dy * dy < radius * radius;
+                    assertEquals(inside, disc.contains(dx, dy), "r=" + radius + " at " + dx + "," + dy);
+                    if (inside) expected++;
+                }
+            }
+            assertEquals(expected, disc.size());
+        }
+    }
+
+    @Test
+    void testDiamond() {
+        Stencil diamond = Stencil.diamond(3);
+        assertEquals(13, diamond.size());
+        assertEquals(2, diamond.halfWidth(0));
+        assertEquals(0, diamond.halfWidth(-2));
+        assertEquals(-1, diamond.halfWidth(3));
+        assertTrue(diamond.contains(1, -1));
+        assertFalse(diamond.contains(2, 1));
+    }
+
+    @Test
+    void testOffsetsAreRowMajor() {
+        Stencil disc = Stencil.disc(4);
+        for (int i = 1; i < disc.size(); i++) {
+            int previous = disc.offset(i - 1);
+            int current = disc.offset(i);
+            int dyOrder = Integer.compare(PackedPosition.y(previous), PackedPosition.y(current));
+            assertTrue(dyOrder < 0 || (dyOrder == 0 && PackedPosition.x(previous) < PackedPosition.x(current)));
+        }
+        assertEquals(PackedPosition.pack(-2, -3), disc.offset(0), "Top row of a radius 4 disc spans five cells");
+    }
+
+    @Test
+    void testStencilsAreCached() {
+        assertSame(Stencil.disc(7), Stencil.disc(7));
+        assertSame(Stencil.diamond(2), Stencil.get(Stencil.Shape.DIAMOND, 2));
+        assertNotSame(Stencil.disc(2), Stencil.diamond(2));
+        assertThrows(IllegalArgumentException.class, () -> Stencil.disc(-1));
+    }
+}
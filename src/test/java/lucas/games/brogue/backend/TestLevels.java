@@ -0,0 +1,47 @@
+package lucas.games.brogue.backend;
+
+/**
+ * Small hand-built levels shared by tests in several packages.
+ */
+public final class TestLevels {
+
+    /** Rooms of {@link #threeRooms()}, in a row along y = 4, plus a closet below the left one that is never carved. */
+    public static final Rect LEFT = new Rect(2, 2, 5, 5);
+    public static final Rect MIDDLE = new Rect(14, 2, 5, 5);
+    public static final Rect RIGHT = new Rect(26, 2, 5, 5);
+    public static final Rect CLOSET = new Rect(2, 8, 3, 3);
+
+    private TestLevels() {
+    }
+
+    /**
+     * A level that is floor from edge to edge.
+     */
+    public static DungeonLevel openLevel(int width, int height) {
+        DungeonLevel level = new DungeonLevel(width, height);
+        level.fillRect(new Rect(0, 0, width, height), TerrainType.FLOOR);
+        return level;
+    }
+
+    /**
+     * A level that is floor inside a one-cell border left uncarved.
+     */
+    public static DungeonLevel walledLevel(int width, int height) {
+        DungeonLevel level = new DungeonLevel(width, height);
+        level.fillRect(new Rect(1, 1, width - 2, height - 2), TerrainType.FLOOR);
+        return level;
+    }
+
+    /**
+     * A 40x12 level with three rooms joined left to right by a straight corridor through their centres.
+     */
+    public static DungeonLevel threeRooms() {
+        DungeonLevel level = new DungeonLevel(40, 12);
+        level.fillRect(LEFT, TerrainType.FLOOR);
+        level.fillRect(MIDDLE, TerrainType.FLOOR);
+        level.fillRect(RIGHT, TerrainType.FLOOR);
+        level.carveLine(4, 4, 16, 4, TerrainType.FLOOR);
+        level.carveLine(16, 4, 28, 4, TerrainType.FLOOR);
+        return level;
+    }
+}
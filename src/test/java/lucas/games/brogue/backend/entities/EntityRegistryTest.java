@@ -0,0 +1,81 @@
+package lucas.games.brogue.backend.entities;
+
+import lucas.games.brogue.backend.BrogueColor;
+import lucas.games.brogue.backend.Position;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityRegistryTest {
+
+    @Test
+    void testIdsStayStableAcrossRemovals() {
+        EntityRegistry<Monster> registry = new EntityRegistry<>();
+        Monster a = monster("A");
+        Monster b = monster("B");
+        Monster c = monster("C");
+        int idA = registry.add(a);
+        int idB = registry.add(b);
+        int idC = registry.add(c);
+
+        assertTrue(registry.remove(a));
+        assertEquals(2, registry.size());
+        assertSame(c, registry.get(0), "The last entity fills the hole");
+        assertEquals(idC, c.getId());
+        assertSame(c, registry.getById(idC));
+        assertSame(b, registry.getById(idB));
+        assertNull(registry.getById(idA));
+        assertEquals(Entity.NO_ID, a.getId());
+        assertFalse(registry.remove(a), "Removing twice should fail");
+    }
+
+    @Test
+    void testRemovalsAreDeferredUntilFlush() {
+        EntityRegistry<Monster> registry = new EntityRegistry<>();
+        Monster a = monster("A");
+        Monster b = monster("B");
+        registry.add(a);
+        registry.add(b);
+
+        registry.requestRemoval(a);
+        registry.requestRemoval(a);
+        assertEquals(2, registry.size(), "Nothing moves until the flush");
+        assertTrue(registry.contains(a));
+
+        assertEquals(1, registry.flushRemovals());
+        assertEquals(1, registry.size());
+        assertFalse(registry.contains(a));
+        assertSame(b, registry.get(0));
+    }
+
+    @Test
+    void testEntityBelongsToOneRegistry() {
+        EntityRegistry<Monster> first = new EntityRegistry<>();
+        EntityRegistry<Monster> second = new EntityRegistry<>();
+        Monster a = monster("A");
+        first.add(a);
+
+        assertThrows(IllegalStateException.class, () -> second.add(a));
+        second.add(monster("B"));
+        assertFalse(second.contains(a), "Ids from another registry do not match");
+        assertFalse(second.remove(a));
+    }
+
+    @Test
+    void testClearReleasesEntities() {
+        EntityRegistry<Monster> registry = new EntityRegistry<>();
+        Monster a = monster("A");
+        registry.add(a);
+        registry.requestRemoval(a);
+        registry.clear();
+
+        assertEquals(0, registry.size());
+        assertEquals(Entity.NO_ID, a.getId());
+        assertEquals(0, registry.flushRemovals());
+        assertEquals(0, registry.add(a), "Ids start again after a clear");
+    }
+
+    private static Monster monster(String name) {
+        return new Monster(new Position(0, 0), 'm', BrogueColor.RED, name, 10, 5, 1);
+    }
+}
@@ -1,12 +1,16 @@
 package lucas.games.brogue.backend.generators;
 
 import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.Position;
+import lucas.games.brogue.backend.RoomGraph;
 import lucas.games.brogue.backend.TerrainType;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class DungeonGeneratorTest {
@@ -46,4 +50,21 @@ class DungeonGeneratorTest {
         // pick the center of the map and scan for a floor
         // just ensuring no crashes during generation
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRoomGraphConnectsAllRooms() {
+        DungeonLevel level = new DungeonLevel(80, 40);
+        DungeonGenerator generator = new DungeonGenerator(level, 4242, 3);
+        Position start = generator.generate(new ArrayList<>());
+
+        RoomGraph graph = level.getRoomGraph();
+        assertNotNull(graph, "The generator keeps its room graph on the level");
+        assertTrue(graph.getRoomCount() > 1);
+        assertNotEquals(RoomGraph.NO_ROOM, graph.regionAt(start.x(), start.y()));
+        for (int a = 0; a < graph.getRoomCount(); a++) {
+            for (int b = 0; b < graph.getRoomCount(); b++) {
+                assertTrue(graph.getDistance(a, b) < RoomGraph.UNREACHABLE, "Every room is reachable from every other");
+            }
+        }
+    }
+}
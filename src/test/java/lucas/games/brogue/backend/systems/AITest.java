@@ -3,12 +3,14 @@ package lucas.games.brogue.backend.systems;
 import lucas.games.brogue.backend.BrogueColor;
 import lucas.games.brogue.backend.GameManager;
 import lucas.games.brogue.backend.Position;
+import lucas.games.brogue.backend.Rect;
 import lucas.games.brogue.backend.TerrainType;
 import lucas.games.brogue.backend.entities.Monster;
 import lucas.games.brogue.backend.views.ConsoleRenderer;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class AITest {
@@ -62,4 +64,64 @@ class AITest {
         // Kobold dmg is 5, player starts at 100 hp
         assertTrue(gm.getPlayer().getCurrentHp() < 100, "Player should have taken damage from Kobold attack");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testMonsterBehindWallDoesNotSeePlayer() {
+        for (boolean symmetric : new boolean[] {true, false}) {
+            GameManager gm = openGame(20, 10);
+            gm.getDungeonLevel().fillRect(new Rect(5, 0, 1, 10), TerrainType.WALL);
+            gm.getAISystem().setSymmetricVisibility(symmetric);
+
+            gm.spawnPlayer(new Position(2, 5));
+            Monster kobold = kobold(new Position(8, 5), 10);
+            gm.spawnEntity(kobold, kobold.getPosition());
+
+            gm.moveEntity(gm.getPlayer(), new Position(2, 4));
+            assertEquals(new Position(8, 5), kobold.getPosition(), "Kobold should not notice the player (symmetric=" + symmetric + ")");
+        }
+    }
+
+    @Test
+    void testLineOfSightIndexDrivesAsymmetricSight() {
+        GameManager gm = openGame(20, 10);
+        gm.getDungeonLevel().fillRect(new Rect(5, 0, 1, 10), TerrainType.WALL);
+        gm.getAISystem().setSymmetricVisibility(false);
+        gm.setLineOfSightIndexEnabled(true);
+        assertNotNull(gm.getLineOfSightIndex());
+
+        gm.spawnPlayer(new Position(2, 5));
+        Monster kobold = kobold(new Position(8, 5), 10);
+        gm.spawnEntity(kobold, kobold.getPosition());
+
+        gm.moveEntity(gm.getPlayer(), new Position(2, 4));
+        assertEquals(new Position(8, 5), kobold.getPosition(), "Wall should hide the player");
+
+        // Knock a hole in the wall: the index picks up the change on the next query
+        gm.getDungeonLevel().setTerrain(5, 4, TerrainType.FLOOR);
+        gm.moveEntity(gm.getPlayer(), new Position(3, 4));
+        assertEquals(new Position(7, 4), kobold.getPosition(), "Kobold should now see and chase the player");
+    }
+
+    @Test
+    void testFarSightedMonsterUsesExtendedField() {
+        GameManager gm = openGame(30, 5);
+        gm.spawnPlayer(new Position(1, 2));
+
+        // Further away than the player's FOV radius, but within the monster's view distance
+        Monster hawk = kobold(new Position(15, 2), 20);
+        gm.spawnEntity(hawk, hawk.getPosition());
+
+        gm.moveEntity(gm.getPlayer(), new Position(2, 2));
+        assertEquals(new Position(14, 2), hawk.getPosition(), "Far-sighted monster should see and chase the player");
+    }
+
+    private GameManager openGame(int width, int height) {
+        GameManager gm = new GameManager(width, height);
+        gm.getDungeonLevel().fillRect(new Rect(0, 0, width, height), TerrainType.FLOOR);
+        return gm;
+    }
+
+    private Monster kobold(Position pos, int viewDistance) {
+        return new Monster(pos, 'K', BrogueColor.RED, "Kobold", 20, viewDistance, 5);
+    }
+}
@@ -0,0 +1,74 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.BitGrid;
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.PackedPosition;
+import lucas.games.brogue.backend.Rect;
+import lucas.games.brogue.backend.TerrainType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchFOVSystemTest {
+
+    @Test
+    void testFieldsMatchSingleObserverFOV() {
+        DungeonLevel level = new DungeonLevel(60, 40);
+        level.fillRect(new Rect(0, 0, 60, 40), TerrainType.FLOOR);
+        Random rng = new Random(11);
+        for (int i = 0; i < 400; i++) {
+            level.setTerrain(rng.nextInt(60), rng.nextInt(40), TerrainType.WALL);
+        }
+
+        // Enough observers to be split across the pool
+        int count = 100;
+        int[] origins = new int[count];
+        int[] radii = new int[count];
+        for (int i = 0; i < count; i++) {
+            origins[i] = PackedPosition.pack(rng.nextInt(60), rng.nextInt(40));
+            radii[i] = 1 + rng.nextInt(12);
+        }
+
+        BatchFOVSystem batch = new BatchFOVSystem();
+        ObserverField[] fields = batch.computeFields(level, origins, radii, count);
+
+        ShadowCaster caster = new ShadowCaster();
+        for (int i = 0; i < count; i++) {
+            BitGrid expected = new BitGrid(60, 40);
+            caster.cast(level.getOpacityGrid(), PackedPosition.x(origins[i]), PackedPosition.y(origins[i]), radii[i], expected::set);
+
+            int expectedCount = 0;
+            for (int y = 0; y < 40; y++) {
+                for (int x = 0; x < 60; x++) {
+                    assertEquals(expected.get(x, y), fields[i].canSee(x, y), "Observer " + i + " at " + x + "," + y);
+                    if (expected.get(x, y)) expectedCount++;
+                }
+            }
+            assertEquals(expectedCount, fields[i].countVisible());
+        }
+    }
+
+    @Test
+    void testFieldsAreReusedAndReset() {
+        DungeonLevel level = new DungeonLevel(20, 20);
+        level.fillRect(new Rect(0, 0, 20, 20), TerrainType.FLOOR);
+        BatchFOVSystem batch = new BatchFOVSystem();
+
+        ObserverField first = batch.computeFields(level, new int[] {PackedPosition.pack(5, 5)}, new int[] {6}, 1)[0];
+        assertTrue(first.canSee(9, 5));
+
+        ObserverField second = batch.computeFields(level, new int[] {PackedPosition.pack(15, 15)}, new int[] {3}, 1)[0];
+        assertSame(first, second, "Fields should be reused between calls");
+        assertFalse(second.canSee(9, 5), "Old field contents must be cleared");
+        assertTrue(second.canSee(16, 15));
+
+        int[] visited = new int[1];
+        second.forEachVisible((x, y) -> {
+            assertTrue(second.canSee(x, y));
+            visited[0]++;
+        });
+        assertEquals(second.countVisible(), visited[0]);
+    }
+}
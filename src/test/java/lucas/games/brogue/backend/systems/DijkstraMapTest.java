@@ -0,0 +1,124 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.BrogueColor;
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.PackedPosition;
+import lucas.games.brogue.backend.Position;
+import lucas.games.brogue.backend.Rect;
+import lucas.games.brogue.backend.TerrainType;
+import lucas.games.brogue.backend.TestLevels;
+import lucas.games.brogue.backend.entities.Monster;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DijkstraMapTest {
+
+    @Test
+    void testOctileDistancesOnOpenFloor() {
+        DungeonLevel level = TestLevels.openLevel(20, 20);
+        DijkstraMap map = new DijkstraMap();
+        map.addGoal(5, 5, 0);
+        map.compute(level);
+
+        assertEquals(0, map.getDistance(5, 5));
+        assertEquals(30, map.getDistance(8, 5));
+        assertEquals(14 * 3 + 10 * 2, map.getDistance(10, 8), "Three diagonal and two straight steps");
+        assertEquals(DijkstraMap.UNREACHABLE, map.getDistance(-1, 5));
+    }
+
+    @Test
+    void testRoutesAroundWalls() {
+        DungeonLevel level = TestLevels.openLevel(20, 10);
+        // A wall across the level with a single gap at the bottom
+        level.fillRect(new Rect(10, 0, 1, 9), TerrainType.WALL);
+        DijkstraMap map = new DijkstraMap();
+        map.addGoal(5, 4, 0);
+        map.compute(level);
+
+        // Through the gap at (10, 9): (5,4) -> (9,8) diagonally, then (10,9), then up to (15,4)
+        assertEquals(14 * 4 + 14 + 14 * 5, map.getDistance(15, 4));
+        assertEquals(DijkstraMap.UNREACHABLE, map.getDistance(10, 4), "Walls are never reached");
+
+        // Stepping downhill from behind the wall heads for the gap, not into the wall
+        int step = map.nextStep(level, PackedPosition.pack(11, 4));
+        assertEquals(PackedPosition.pack(11, 5), step);
+    }
+
+    @Test
+    void testNearestOfSeveralGoals() {
+        DungeonLevel level = TestLevels.openLevel(30, 5);
+        DijkstraMap map = new DijkstraMap();
+        map.addGoal(2, 2, 0);
+        map.addGoal(25, 2, 0);
+        map.addGoal(25, 2, 50); // The lower value wins
+        map.compute(level);
+
+        assertEquals(50, map.getDistance(7, 2));
+        assertEquals(30, map.getDistance(22, 2));
+    }
+
+    @Test
+    void testUnreachableRegions() {
+        DungeonLevel level = TestLevels.openLevel(20, 10);
+        level.fillRect(new Rect(10, 0, 1, 10), TerrainType.WALL);
+        DijkstraMap map = new DijkstraMap();
+        map.addGoal(2, 2, 0);
+        map.compute(level);
+
+        assertEquals(DijkstraMap.UNREACHABLE, map.getDistance(15, 5));
+        assertEquals(PackedPosition.pack(15, 5), map.nextStep(level, PackedPosition.pack(15, 5)), "Nowhere to go");
+    }
+
+    @Test
+    void testNextStepSkipsOccupiedCells() {
+        DungeonLevel level = TestLevels.openLevel(10, 10);
+        level.getTile(4, 5).setOccupant(new Monster(new Position(4, 5), 'r', BrogueColor.RED, "Rat", 6, 6, 2));
+        DijkstraMap map = new DijkstraMap();
+        map.addGoal(1, 5, 0);
+        map.compute(level);
+
+        int step = map.nextStep(level, PackedPosition.pack(5, 5));
+        assertNotEquals(PackedPosition.pack(4, 5), step);
+        assertEquals(4, PackedPosition.x(step), "Still moves one column closer, diagonally past the rat");
+    }
+
+    @Test
+    void testSafetyMapLeadsAway() {
+        DungeonLevel level = TestLevels.openLevel(30, 5);
+        DijkstraMap threat = new DijkstraMap();
+        threat.addGoal(10, 2, 0);
+        threat.compute(level);
+
+        DijkstraMap safety = new DijkstraMap();
+        safety.computeSafetyMap(level, threat);
+
+        int fromLeft = safety.nextStep(level, PackedPosition.pack(8, 2));
+        int fromRight = safety.nextStep(level, PackedPosition.pack(12, 2));
+        assertEquals(7, PackedPosition.x(fromLeft));
+        assertEquals(13, PackedPosition.x(fromRight));
+        assertTrue(safety.getDistance(28, 2) < safety.getDistance(1, 2), "The far side is safer");
+    }
+
+    @Test
+    void testRecomputeMatchesFreshMap() {
+        DungeonLevel level = TestLevels.openLevel(25, 25);
+        level.fillRect(new Rect(5, 5, 15, 1), TerrainType.WALL);
+        DijkstraMap reused = new DijkstraMap();
+        reused.addGoal(1, 1, 0);
+        reused.compute(level);
+
+        reused.clearGoals();
+        reused.addGoal(12, 20, 0);
+        reused.compute(level);
+
+        DijkstraMap fresh = new DijkstraMap();
+        fresh.addGoal(12, 20, 0);
+        fresh.compute(level);
+        for (int y = 0; y < 25; y++) {
+            for (int x = 0; x < 25; x++) {
+                assertEquals(fresh.getDistance(x, y), reused.getDistance(x, y));
+            }
+        }
+    }
+}
@@ -1,10 +1,18 @@
 package lucas.games.brogue.backend.systems;
 
+import lucas.games.brogue.backend.BitGrid;
 import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.PackedPosition;
 import lucas.games.brogue.backend.Position;
+import lucas.games.brogue.backend.Rect;
 import lucas.games.brogue.backend.TerrainType;
+import lucas.games.brogue.backend.TestLevels;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -59,4 +67,127 @@ class FOVSystemTest {
         // A tile far away should not be visible
         assertFalse(level.getTile(0, 0).isVisible(), "Distant tile should not be visible");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testMovingClearsPreviousField() {
+        DungeonLevel level = TestLevels.openLevel(30, 10);
+        FOVSystem fov = new FOVSystem();
+
+        fov.calculateFOV(level, new Position(3, 5), 3);
+        assertTrue(level.isVisible(1, 5));
+
+        fov.calculateFOV(level, new Position(20, 5), 3);
+        assertFalse(level.isVisible(1, 5), "Cells lit from the old origin should be cleared");
+        assertTrue(level.isExplored(1, 5), "Cleared cells stay explored");
+        assertTrue(level.isVisible(22, 5));
+    }
+
+    @Test
+    void testUnchangedFieldIsNotRecomputed() {
+        DungeonLevel level = TestLevels.openLevel(10, 10);
+        FOVSystem fov = new FOVSystem();
+        Position origin = new Position(5, 5);
+
+        fov.calculateFOV(level, origin, 4);
+        int version = level.getOpacityVersion();
+
+        // Nothing changed: the previous field is kept as-is
+        level.clearVisible(6, 5);
+        fov.calculateFOV(level, origin, 4);
+        assertFalse(level.isVisible(6, 5), "Field should not be recomputed when nothing changed");
+        assertEquals(version, level.getOpacityVersion());
+    }
+
+    @Test
+    void testVisibilityWipeIsNotAnOpacityChange() {
+        DungeonLevel level = TestLevels.openLevel(10, 10);
+        FOVSystem fov = new FOVSystem();
+        Position origin = new Position(5, 5);
+
+        fov.calculateFOV(level, origin, 4);
+        int version = level.getOpacityVersion();
+
+        level.prepareTurn();
+        assertEquals(version, level.getOpacityVersion(), "Wiping visibility leaves opacity alone");
+        assertFalse(level.isVisible(6, 5));
+
+        fov.calculateFOV(level, origin, 4);
+        assertTrue(level.isVisible(6, 5), "The field is marked again after a wipe");
+    }
+
+    @Test
+    void testOnlyChangedCellsAreWritten() {
+        DungeonLevel level = TestLevels.openLevel(20, 10);
+        FOVSystem fov = new FOVSystem();
+
+        fov.calculateFOV(level, new Position(5, 5), 4);
+        // Tampering with a cell that stays in view is not undone: it is not part of the difference
+        level.clearVisible(6, 5);
+        fov.calculateFOV(level, new Position(6, 5), 4);
+        assertFalse(level.isVisible(6, 5));
+        assertTrue(level.isVisible(9, 5), "Cells entering the field are marked");
+    }
+
+    @Test
+    void testOpacityChangeTriggersRecompute() {
+        DungeonLevel level = TestLevels.openLevel(10, 10);
+        FOVSystem fov = new FOVSystem();
+        Position origin = new Position(2, 5);
+
+        level.setTerrain(4, 5, TerrainType.WALL);
+        fov.calculateFOV(level, origin, 6);
+        assertFalse(level.isVisible(6, 5), "Wall should block vision");
+
+        level.setTerrain(4, 5, TerrainType.FLOOR);
+        fov.calculateFOV(level, origin, 6);
+        assertTrue(level.isVisible(6, 5), "Opening the wall should reveal the cell behind it");
+    }
+
+    @Test
+    void testDeltaReportsEnteredAndLeftCells() {
+        DungeonLevel level = TestLevels.openLevel(30, 10);
+        FOVSystem fov = new FOVSystem();
+
+        fov.calculateFOV(level, new Position(5, 5), 3);
+        assertTrue(fov.getDelta().isFullRefresh(), "First field on a level is a full refresh");
+
+        fov.calculateFOV(level, new Position(6, 5), 3);
+        VisibilityDelta delta = fov.getDelta();
+        assertFalse(delta.isFullRefresh());
+
+        Set<Integer> entered = new HashSet<>();
+        for (int i = 0; i < delta.getEnteredCount(); i++) entered.add(delta.getEntered(i));
+        Set<Integer> left = new HashSet<>();
+        for (int i = 0; i < delta.getLeftCount(); i++) left.add(delta.getLeft(i));
+
+        assertTrue(entered.contains(PackedPosition.pack(8, 5)));
+        assertTrue(left.contains(PackedPosition.pack(3, 5)));
+        assertFalse(entered.contains(PackedPosition.pack(6, 5)), "Cells seen both times are not in the delta");
+        assertFalse(left.contains(PackedPosition.pack(6, 5)));
+
+        // Each entry matches the level's flags
+        for (int p : entered) assertTrue(level.isVisible(PackedPosition.x(p), PackedPosition.y(p)));
+        for (int p : left) assertFalse(level.isVisible(PackedPosition.x(p), PackedPosition.y(p)));
+
+        // Standing still produces an empty delta
+        fov.calculateFOV(level, new Position(6, 5), 3);
+        assertTrue(fov.getDelta().isEmpty());
+    }
+
+    @Test
+    void testVisibleGridMatchesLevel() {
+        DungeonLevel level = TestLevels.openLevel(20, 20);
+        level.fillRect(new Rect(8, 0, 1, 15), TerrainType.WALL);
+        FOVSystem fov = new FOVSystem();
+
+        fov.calculateFOV(level, new Position(4, 10), 8);
+        fov.calculateFOV(level, new Position(12, 10), 8);
+
+        BitGrid grid = fov.getVisibleGrid();
+        for (int y = 0; y < 20; y++) {
+            for (int x = 0; x < 20; x++) {
+                assertEquals(level.isVisible(x, y), grid.get(x, y), "Mismatch at " + x + "," + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.BrogueColor;
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.LightSource;
+import lucas.games.brogue.backend.Rect;
+import lucas.games.brogue.backend.TerrainType;
+import lucas.games.brogue.backend.TestLevels;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LightingSystemTest {
+
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    void testLinearFalloff() {
+        DungeonLevel level = TestLevels.openLevel(20, 20);
+        LightingSystem lighting = new LightingSystem();
+        lighting.addLight(new LightSource(10, 10, 5, BrogueColor.WHITE));
+        lighting.update(level);
+
+        assertEquals(1.0f, level.getLight(10, 10, 0), EPSILON, "Full strength at the source");
+        assertEquals(0.6f, level.getLight(12, 10, 1), EPSILON, "Two cells out of five");
+        assertEquals(0.0f, level.getLight(15, 10, 2), EPSILON, "Nothing at the radius");
+    }
+
+    @Test
+    void testWallsBlockLight() {
+        DungeonLevel level = TestLevels.openLevel(20, 20);
+        level.fillRect(new Rect(12, 0, 1, 20), TerrainType.WALL);
+        LightingSystem lighting = new LightingSystem();
+        lighting.addLight(new LightSource(10, 10, 6, BrogueColor.RED));
+        lighting.update(level);
+
+        assertTrue(level.getLight(12, 10, 0) > 0, "The wall face is lit");
+        assertEquals(0.0f, level.getLight(13, 10, 0), "Cells behind the wall stay dark");
+        assertEquals(0.0f, level.getLight(11, 10, 1), "A red light adds no green");
+    }
+
+    @Test
+    void testOnlyChangedLightsAreRelit() {
+        DungeonLevel level = TestLevels.openLevel(40, 20);
+        LightingSystem lighting = new LightingSystem();
+        LightSource torch = new LightSource(5, 5, 4, BrogueColor.TORCH_LIGHT);
+        LightSource lamp = new LightSource(30, 10, 4, BrogueColor.BLUE);
+        lighting.addLight(torch);
+        lighting.addLight(lamp);
+
+        assertEquals(2, lighting.update(level));
+        assertEquals(0, lighting.update(level), "Nothing changed, nothing relit");
+
+        torch.setPosition(8, 5);
+        assertEquals(1, lighting.update(level), "Only the moved light is relit");
+
+        // A wall far from both lights does not relight them
+        level.setTerrain(20, 18, TerrainType.WALL);
+        assertEquals(0, lighting.update(level));
+
+        // A wall next to the lamp does
+        level.setTerrain(31, 10, TerrainType.WALL);
+        assertEquals(1, lighting.update(level));
+    }
+
+    @Test
+    void testIncrementalResultMatchesFreshLighting() {
+        DungeonLevel level = TestLevels.openLevel(30, 30);
+        level.fillRect(new Rect(15, 5, 1, 10), TerrainType.WALL);
+        LightingSystem lighting = new LightingSystem();
+        LightSource torch = new LightSource(10, 10, 8, BrogueColor.TORCH_LIGHT);
+        LightSource removedLight = new LightSource(20, 20, 5, BrogueColor.MAGENTA);
+        lighting.addLight(torch);
+        lighting.addLight(removedLight);
+        lighting.update(level);
+
+        torch.setPosition(18, 12);
+        torch.setColor(BrogueColor.TEAL);
+        lighting.removeLight(removedLight);
+        level.setTerrain(15, 10, TerrainType.FLOOR);
+        lighting.update(level);
+
+        DungeonLevel expected = TestLevels.openLevel(30, 30);
+        expected.fillRect(new Rect(15, 5, 1, 10), TerrainType.WALL);
+        expected.setTerrain(15, 10, TerrainType.FLOOR);
+        LightingSystem fresh = new LightingSystem();
+        fresh.addLight(new LightSource(18, 12, 8, BrogueColor.TEAL));
+        fresh.update(expected);
+
+        for (int y = 0; y < 30; y++) {
+            for (int x = 0; x < 30; x++) {
+                for (int c = 0; c < 3; c++) {
+                    assertEquals(expected.getLight(x, y, c), level.getLight(x, y, c), EPSILON, "At " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testLightIsRestoredAfterWipe() {
+        DungeonLevel level = TestLevels.openLevel(20, 20);
+        LightingSystem lighting = new LightingSystem();
+        lighting.addLight(new LightSource(10, 10, 5, BrogueColor.WHITE));
+        lighting.update(level);
+
+        level.prepareTurn();
+        assertEquals(0.0f, level.getLight(10, 10, 0));
+
+        lighting.update(level);
+        assertEquals(1.0f, level.getLight(10, 10, 0), EPSILON);
+    }
+}
@@ -0,0 +1,100 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.BitGrid;
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.Rect;
+import lucas.games.brogue.backend.TerrainType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineOfSightIndexTest {
+
+    @Test
+    void testMatchesShadowcastingFromEveryCell() {
+        DungeonLevel level = randomLevel(30, 20, 7);
+        LineOfSightIndex index = LineOfSightIndex.build(level);
+        assertIndexMatchesCaster(level, index);
+    }
+
+    @Test
+    void testWallsSeeNothing() {
+        DungeonLevel level = new DungeonLevel(10, 10);
+        level.fillRect(new Rect(1, 1, 8, 8), TerrainType.FLOOR);
+        LineOfSightIndex index = LineOfSightIndex.build(level);
+
+        assertTrue(index.canSee(2, 2, 0, 0), "Floor cells see the wall face");
+        assertFalse(index.canSee(0, 0, 2, 2), "Opaque cells have no row");
+        assertFalse(index.canSee(-1, 2, 2, 2));
+    }
+
+    @Test
+    void testOpeningADoorRebuildsOnlyAffectedRows() {
+        DungeonLevel level = new DungeonLevel(30, 10);
+        level.fillRect(new Rect(1, 1, 12, 8), TerrainType.FLOOR);
+        level.fillRect(new Rect(15, 1, 12, 8), TerrainType.FLOOR);
+        LineOfSightIndex index = LineOfSightIndex.build(level);
+
+        assertFalse(index.canSee(5, 5, 20, 5));
+
+        // Open a passage through the wall between the two rooms
+        level.fillRect(new Rect(13, 5, 2, 1), TerrainType.FLOOR);
+        int rebuilt = index.refresh();
+
+        assertTrue(rebuilt > 0);
+        assertTrue(rebuilt < 30 * 10, "Only rows that saw the change should be rebuilt");
+        assertTrue(index.canSee(5, 5, 20, 5));
+        assertIndexMatchesCaster(level, index);
+    }
+
+    @Test
+    void testNoChangeMeansNoRebuild() {
+        DungeonLevel level = randomLevel(20, 20, 3);
+        LineOfSightIndex index = LineOfSightIndex.build(level);
+
+        level.prepareTurn();
+        assertEquals(0, index.refresh(), "Visibility wipes do not change opacity");
+    }
+
+    @Test
+    void testRejectsLargeLevels() {
+        DungeonLevel level = new DungeonLevel(200, 100);
+        assertThrows(IllegalArgumentException.class, () -> LineOfSightIndex.build(level));
+    }
+
+    private void assertIndexMatchesCaster(DungeonLevel level, LineOfSightIndex index) {
+        int width = level.getWidth();
+        int height = level.getHeight();
+        ShadowCaster caster = new ShadowCaster();
+        int radius = width + height;
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                BitGrid expected = new BitGrid(width, height);
+                if (!level.isOpaque(x, y)) {
+                    caster.cast(level.getOpacityGrid(), x, y, radius, expected::set);
+                }
+                for (int ty = 0; ty < height; ty++) {
+                    for (int tx = 0; tx < width; tx++) {
+                        assertEquals(expected.get(tx, ty), index.canSee(x, y, tx, ty),
+                                "From " + x + "," + y + " to " + tx + "," + ty);
+                    }
+                }
+            }
+        }
+    }
+
+    private DungeonLevel randomLevel(int width, int height, long seed) {
+        Random rng = new Random(seed);
+        DungeonLevel level = new DungeonLevel(width, height);
+        level.fillRect(new Rect(0, 0, width, height), TerrainType.FLOOR);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (rng.nextInt(100) < 20) level.setTerrain(x, y, TerrainType.WALL);
+            }
+        }
+        return level;
+    }
+}
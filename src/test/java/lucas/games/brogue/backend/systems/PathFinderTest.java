@@ -0,0 +1,209 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.PackedPosition;
+import lucas.games.brogue.backend.Rect;
+import lucas.games.brogue.backend.TerrainType;
+import lucas.games.brogue.backend.TestLevels;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathFinderTest {
+
+    @Test
+    void testPathCostMatchesDijkstraMap() {
+        DungeonLevel level = TestLevels.openLevel(30, 15);
+        // A wall with a single gap at the bottom
+        level.fillRect(new Rect(12, 0, 1, 14), TerrainType.WALL);
+        PathFinder finder = new PathFinder();
+        int[] path = new int[128];
+        int length = finder.findPath(level, PackedPosition.pack(3, 3), PackedPosition.pack(25, 4), path);
+
+        DijkstraMap map = new DijkstraMap();
+        map.addGoal(3, 3, 0);
+        map.compute(level);
+
+        assertTrue(length > 0);
+        assertEquals(PackedPosition.pack(25, 4), path[length - 1], "The path ends on the goal");
+        assertEquals(map.getDistance(25, 4), cost(PackedPosition.pack(3, 3), path, length), "A* finds a shortest path");
+        assertTrue(finder.getLastExpanded() > 0);
+    }
+
+    @Test
+    void testStepsAreAdjacentAndPassable() {
+        DungeonLevel level = TestLevels.openLevel(20, 20);
+        level.fillRect(new Rect(5, 2, 10, 1), TerrainType.WALL);
+        level.fillRect(new Rect(5, 2, 1, 12), TerrainType.WALL);
+        PathFinder finder = new PathFinder();
+        int[] path = new int[64];
+        int previous = PackedPosition.pack(10, 8);
+        int length = finder.findPath(level, previous, PackedPosition.pack(1, 1), path);
+
+        assertTrue(length > 0);
+        for (int i = 0; i < length; i++) {
+            int step = path[i];
+            assertTrue(level.isPassable(step));
+            assertTrue(Math.abs(PackedPosition.x(step) - PackedPosition.x(previous)) <= 1);
+            assertTrue(Math.abs(PackedPosition.y(step) - PackedPosition.y(previous)) <= 1);
+            previous = step;
+        }
+    }
+
+    @Test
+    void testRepeatedQueryIsCached() {
+        DungeonLevel level = TestLevels.openLevel(20, 10);
+        PathFinder finder = new PathFinder();
+        int[] first = new int[32];
+        int[] second = new int[32];
+        int length = finder.findPath(level, PackedPosition.pack(1, 1), PackedPosition.pack(15, 6), first);
+        int again = finder.findPath(level, PackedPosition.pack(1, 1), PackedPosition.pack(15, 6), second);
+
+        assertEquals(length, again);
+        assertArrayEquals(first, second);
+        assertEquals(1, finder.getCacheHits());
+        assertEquals(0, finder.getLastExpanded(), "A cache hit expands nothing");
+        assertEquals(0.5, finder.getCacheHitRate(), 1e-9);
+    }
+
+    @Test
+    void testWallOnPathInvalidatesCache() {
+        DungeonLevel level = TestLevels.openLevel(20, 10);
+        PathFinder finder = new PathFinder();
+        int[] path = new int[32];
+        int start = PackedPosition.pack(1, 5);
+        int goal = PackedPosition.pack(15, 5);
+        int length = finder.findPath(level, start, goal, path);
+        assertEquals(14, length);
+
+        level.setTerrain(8, 5, TerrainType.WALL);
+        int detour = finder.findPath(level, start, goal, path);
+
+        assertEquals(0, finder.getCacheHits());
+        assertEquals(14, detour);
+        assertEquals(10 * 12 + 14 * 2, cost(start, path, detour), "Two diagonal steps around the new wall");
+        for (int i = 0; i < detour; i++) {
+            assertNotEquals(PackedPosition.pack(8, 5), path[i]);
+        }
+    }
+
+    @Test
+    void testLongerPathRefillsSlot() {
+        DungeonLevel level = TestLevels.openLevel(20, 10);
+        PathFinder finder = new PathFinder();
+        int start = PackedPosition.pack(1, 1);
+        int goal = PackedPosition.pack(15, 1);
+        int[] path = new int[64];
+        assertEquals(14, finder.findPath(level, start, goal, path));
+
+        // A wall with a gap at the bottom forces a longer detour through the same cache slot
+        level.fillRect(new Rect(8, 0, 1, 9), TerrainType.WALL);
+        int[] detour = new int[64];
+        int length = finder.findPath(level, start, goal, detour);
+        int[] again = new int[64];
+
+        assertTrue(length > 14);
+        assertEquals(length, finder.findPath(level, start, goal, again));
+        assertEquals(1, finder.getCacheHits());
+        assertArrayEquals(detour, again);
+    }
+
+    @Test
+    void testWallOffPathKeepsCache() {
+        DungeonLevel level = TestLevels.openLevel(20, 10);
+        PathFinder finder = new PathFinder();
+        int[] path = new int[32];
+        int start = PackedPosition.pack(1, 5);
+        int goal = PackedPosition.pack(15, 5);
+        finder.findPath(level, start, goal, path);
+
+        level.setTerrain(8, 1, TerrainType.WALL);
+        finder.findPath(level, start, goal, path);
+
+        assertEquals(1, finder.getCacheHits());
+    }
+
+    @Test
+    void testResetDropsCache() {
+        DungeonLevel level = TestLevels.openLevel(20, 10);
+        PathFinder finder = new PathFinder();
+        int[] path = new int[32];
+        int start = PackedPosition.pack(1, 5);
+        int goal = PackedPosition.pack(15, 5);
+        finder.findPath(level, start, goal, path);
+
+        // Regenerated with the same layout: nothing changed cell by cell, but the level is new
+        level.reset();
+        level.fillRect(new Rect(0, 0, 20, 10), TerrainType.FLOOR);
+        finder.findPath(level, start, goal, path);
+
+        assertEquals(0, finder.getCacheHits());
+    }
+
+    @Test
+    void testLargeChangeDropsCache() {
+        DungeonLevel level = TestLevels.openLevel(40, 20);
+        PathFinder finder = new PathFinder();
+        int[] path = new int[64];
+        int start = PackedPosition.pack(1, 1);
+        int goal = PackedPosition.pack(5, 1);
+        finder.findPath(level, start, goal, path);
+
+        // Far from the cached path, but too many cells to check one by one
+        level.fillRect(new Rect(10, 10, 20, 5), TerrainType.WALL);
+        finder.findPath(level, start, goal, path);
+
+        assertEquals(0, finder.getCacheHits());
+        finder.findPath(level, start, goal, path);
+        assertEquals(1, finder.getCacheHits(), "The cache fills again afterwards");
+    }
+
+    @Test
+    void testUnreachableAndTrivialGoals() {
+        DungeonLevel level = TestLevels.openLevel(20, 10);
+        level.fillRect(new Rect(10, 0, 1, 10), TerrainType.WALL);
+        PathFinder finder = new PathFinder();
+        int[] path = new int[32];
+
+        assertEquals(PathFinder.NO_PATH, finder.findPath(level, PackedPosition.pack(2, 2), PackedPosition.pack(15, 2), path));
+        assertEquals(PathFinder.NO_PATH, finder.findPath(level, PackedPosition.pack(2, 2), PackedPosition.pack(10, 2), path));
+        assertEquals(0, finder.findPath(level, PackedPosition.pack(2, 2), PackedPosition.pack(2, 2), path));
+    }
+
+    @Test
+    void testBoundedSearchStaysInsideRect() {
+        DungeonLevel level = TestLevels.openLevel(20, 10);
+        // A wall with a gap at the bottom, outside the bounds
+        level.fillRect(new Rect(10, 0, 1, 9), TerrainType.WALL);
+        PathFinder finder = new PathFinder();
+        int[] path = new int[32];
+        int start = PackedPosition.pack(5, 2);
+        int goal = PackedPosition.pack(15, 2);
+
+        assertTrue(finder.findPath(level, start, goal, path) > 0);
+        assertEquals(PathFinder.NO_PATH, finder.findPath(level, start, goal, new Rect(0, 0, 20, 8), path));
+        assertEquals(0, finder.getCacheHits(), "Bounded searches bypass the cache");
+    }
+
+    @Test
+    void testShortBufferReceivesPrefix() {
+        DungeonLevel level = TestLevels.openLevel(20, 10);
+        PathFinder finder = new PathFinder();
+        int[] path = new int[3];
+        int length = finder.findPath(level, PackedPosition.pack(1, 5), PackedPosition.pack(11, 5), path);
+
+        assertEquals(10, length);
+        assertArrayEquals(new int[] { PackedPosition.pack(2, 5), PackedPosition.pack(3, 5), PackedPosition.pack(4, 5) }, path);
+    }
+
+    private static int cost(int from, int[] path, int length) {
+        int total = 0;
+        for (int i = 0; i < length; i++) {
+            boolean diagonal = PackedPosition.x(path[i]) != PackedPosition.x(from)
+                    && PackedPosition.y(path[i]) != PackedPosition.y(from);
+            total += diagonal ? DijkstraMap.DIAGONAL_COST : DijkstraMap.ORTHOGONAL_COST;
+            from = path[i];
+        }
+        return total;
+    }
+}
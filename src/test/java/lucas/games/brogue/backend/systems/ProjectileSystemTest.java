@@ -0,0 +1,81 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.BrogueColor;
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.PackedPosition;
+import lucas.games.brogue.backend.Position;
+import lucas.games.brogue.backend.TerrainType;
+import lucas.games.brogue.backend.TestLevels;
+import lucas.games.brogue.backend.entities.Monster;
+import lucas.games.brogue.backend.entities.items.Gold;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProjectileSystemTest {
+
+    @Test
+    void testRaysMatchBresenham() {
+        RayTable rays = RayTable.get(6);
+        for (int dy = -6; dy <= 6; dy++) {
+            for (int dx = -6; dx <= 6; dx++) {
+                assertEquals(Math.max(Math.abs(dx), Math.abs(dy)), rays.length(dx, dy));
+
+                // Reference: the classic loop, one step at a time
+                int x = 0, y = 0, err = Math.abs(dx) - Math.abs(dy);
+                for (int i = 0; i < rays.length(dx, dy); i++) {
+                    int e2 = 2 * err;
+                    if (e2 > -Math.abs(dy)) { err -= Math.abs(dy); x += dx > 0 ? 1 : -1; }
+                    if (e2 < Math.abs(dx)) { err += Math.abs(dx); y += dy > 0 ? 1 : -1; }
+                    assertEquals(PackedPosition.pack(x, y), rays.cell(rays.start(dx, dy) + i));
+                }
+                assertEquals(dx, x);
+                assertEquals(dy, y);
+            }
+        }
+        assertSame(rays, RayTable.get(6), "Tables are cached");
+    }
+
+    @Test
+    void testStopsInFrontOfWalls() {
+        DungeonLevel level = TestLevels.walledLevel(20, 10);
+        level.setTerrain(8, 5, TerrainType.WALL);
+
+        Trajectory path = new ProjectileSystem().trace(level, 2, 5, 15, 5, new Trajectory());
+
+        assertEquals(5, path.getLength());
+        assertEquals(7, path.getLandingX());
+        assertFalse(path.hitOccupant());
+    }
+
+    @Test
+    void testHitsFirstOccupant() {
+        DungeonLevel level = TestLevels.walledLevel(20, 10);
+        level.getTile(6, 3).setOccupant(new Monster(new Position(6, 3), 'r', BrogueColor.RED, "Rat", 6, 6, 2));
+
+        Trajectory path = new ProjectileSystem().trace(level, 2, 1, 10, 5, new Trajectory());
+
+        assertTrue(path.hitOccupant());
+        assertEquals(PackedPosition.pack(6, 3), path.getLanding());
+    }
+
+    @Test
+    void testRangeIsLimited() {
+        DungeonLevel level = TestLevels.walledLevel(40, 10);
+        Trajectory path = new ProjectileSystem(5).trace(level, 1, 1, 31, 1, new Trajectory());
+
+        assertEquals(5, path.getLength());
+        assertEquals(PackedPosition.pack(6, 1), path.getLanding());
+    }
+
+    @Test
+    void testThrownItemLandsInFloorIndex() {
+        DungeonLevel level = TestLevels.walledLevel(10, 10);
+        Gold gold = new Gold(new Position(0, 0));
+
+        new ProjectileSystem().throwItem(level, gold, 1, 1, 4, 4, new Trajectory());
+
+        assertEquals(new Position(4, 4), gold.getPosition());
+        assertSame(gold, level.getFloorItems().getTopItem(4, 4));
+    }
+}
@@ -0,0 +1,101 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.PackedPosition;
+import lucas.games.brogue.backend.RoomGraph;
+import lucas.games.brogue.backend.TerrainType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static lucas.games.brogue.backend.TestLevels.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomPathPlannerTest {
+
+    @Test
+    void testLegEndsInNextRoom() {
+        DungeonLevel level = threeRoomsWithGraph();
+        RoomPathPlanner planner = new RoomPathPlanner();
+        int[] path = new int[64];
+        int start = PackedPosition.pack(3, 3);
+        int length = planner.planLeg(level, start, PackedPosition.pack(29, 5), path);
+
+        assertTrue(length > 0);
+        assertEquals(PackedPosition.pack(16, 4), path[length - 1], "The first leg ends at the middle room's centre");
+        assertEquals(2, planner.getLastRoomHops());
+        for (int i = 0; i < length; i++) {
+            assertNotEquals(2, level.getRoomGraph().regionAt(path[i]), "The leg never enters the far room");
+        }
+    }
+
+    @Test
+    void testFinalLegReachesGoal() {
+        DungeonLevel level = threeRoomsWithGraph();
+        RoomPathPlanner planner = new RoomPathPlanner();
+        int[] path = new int[64];
+        int goal = PackedPosition.pack(29, 5);
+        int length = planner.planLeg(level, PackedPosition.pack(16, 4), goal, path);
+
+        assertEquals(goal, path[length - 1]);
+        assertEquals(1, planner.getLastRoomHops());
+
+        length = planner.planLeg(level, PackedPosition.pack(27, 3), goal, path);
+        assertEquals(2, length, "Within one room the path is direct");
+        assertEquals(0, planner.getLastRoomHops());
+    }
+
+    @Test
+    void testWalkingLegsReachesGoal() {
+        DungeonLevel level = threeRoomsWithGraph();
+        RoomPathPlanner planner = new RoomPathPlanner();
+        int[] path = new int[64];
+        int position = PackedPosition.pack(3, 3);
+        int goal = PackedPosition.pack(29, 5);
+
+        for (int legs = 0; legs < 5 && position != goal; legs++) {
+            int length = planner.planLeg(level, position, goal, path);
+            assertTrue(length > 0);
+            position = path[length - 1];
+        }
+        assertEquals(goal, position);
+    }
+
+    @Test
+    void testBlockedLegFallsBackToFullSearch() {
+        DungeonLevel level = threeRoomsWithGraph();
+        // Block the corridor after generation and dig a detour outside both regions
+        level.setTerrain(10, 4, TerrainType.WALL);
+        level.carveLine(4, 4, 4, 10, TerrainType.FLOOR);
+        level.carveLine(4, 10, 16, 10, TerrainType.FLOOR);
+        level.carveLine(16, 10, 16, 4, TerrainType.FLOOR);
+        RoomPathPlanner planner = new RoomPathPlanner();
+        int[] path = new int[64];
+        int goal = PackedPosition.pack(16, 4);
+        int length = planner.planLeg(level, PackedPosition.pack(4, 4), goal, path);
+
+        assertTrue(length > 0);
+        assertEquals(goal, path[length - 1]);
+    }
+
+    @Test
+    void testUnreachableRoomAndNoGraph() {
+        DungeonLevel level = threeRooms();
+        level.fillRect(CLOSET, TerrainType.FLOOR);
+        level.setRoomGraph(RoomGraph.build(level, List.of(LEFT, MIDDLE, RIGHT, CLOSET)));
+        RoomPathPlanner planner = new RoomPathPlanner();
+        int[] path = new int[64];
+
+        assertEquals(PathFinder.NO_PATH, planner.planLeg(level, PackedPosition.pack(4, 4), PackedPosition.pack(3, 9), path));
+
+        level.setRoomGraph(null);
+        int length = planner.planLeg(level, PackedPosition.pack(4, 4), PackedPosition.pack(28, 4), path);
+        assertEquals(24, length, "Without a graph the whole route is searched");
+    }
+
+    private static DungeonLevel threeRoomsWithGraph() {
+        DungeonLevel level = threeRooms();
+        level.setRoomGraph(RoomGraph.build(level, List.of(LEFT, MIDDLE, RIGHT)));
+        return level;
+    }
+}
@@ -0,0 +1,116 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.BitGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShadowCasterTest {
+
+    @Test
+    void testMatchesRecursiveFloatCaster() {
+        Random rng = new Random(42);
+        ShadowCaster caster = new ShadowCaster();
+
+        for (int trial = 0; trial < 200; trial++) {
+            int width = 5 + rng.nextInt(40);
+            int height = 5 + rng.nextInt(30);
+            BitGrid opaque = new BitGrid(width, height);
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (rng.nextInt(100) < 25) opaque.set(x, y);
+                }
+            }
+            int ox = rng.nextInt(width);
+            int oy = rng.nextInt(height);
+            int radius = 1 + rng.nextInt(20);
+
+            boolean[][] expected = new boolean[height][width];
+            ReferenceCaster.calculate(opaque, ox, oy, radius, expected);
+
+            boolean[][] actual = new boolean[height][width];
+            caster.cast(opaque, ox, oy, radius, (x, y) -> actual[y][x] = true);
+
+            for (int y = 0; y < height; y++) {
+                assertArrayEquals(expected[y], actual[y], "Trial " + trial + " differs on row " + y);
+            }
+        }
+    }
+
+    @Test
+    void testOriginOutsideGridStillCasts() {
+        BitGrid opaque = new BitGrid(5, 5);
+        ShadowCaster caster = new ShadowCaster();
+        boolean[][] seen = new boolean[5][5];
+
+        caster.cast(opaque, -1, 2, 4, (x, y) -> seen[y][x] = true);
+
+        assertTrue(seen[2][0]);
+        assertFalse(seen[2][4], "Cells beyond the radius are not lit");
+    }
+
+    /**
+     * The original recursive, float-based caster, kept as the reference result.
+     */
+    private static final class ReferenceCaster {
+
+        private static final int[][] MULT = {
+                {1, 0, 0, -1, -1, 0, 0, 1},
+                {0, 1, -1, 0, 0, -1, 1, 0},
+                {0, 1, 1, 0, 0, -1, -1, 0},
+                {1, 0, 0, 1, -1, 0, 0, -1}
+        };
+
+        static void calculate(BitGrid opaque, int ox, int oy, int radius, boolean[][] out) {
+            if (inBounds(opaque, ox, oy)) out[oy][ox] = true;
+            for (int i = 0; i < 8; i++) {
+                castLight(opaque, ox, oy, radius, 1, 1.0f, 0.0f, MULT[0][i], MULT[1][i], MULT[2][i], MULT[3][i], out);
+            }
+        }
+
+        private static boolean inBounds(BitGrid grid, int x, int y) {
+            return x >= 0 && x < grid.getWidth() && y >= 0 && y < grid.getHeight();
+        }
+
+        private static void castLight(BitGrid opaque, int ox, int oy, int radius, int row,
+                                      float startSlope, float endSlope, int xx, int xy, int yx, int yy,
+                                      boolean[][] out) {
+            if (startSlope < endSlope) return;
+
+            float nextStartSlope = startSlope;
+            for (int i = row; i <= radius; i++) {
+                boolean blocked = false;
+                for (int dx = -i, dy = -i; dx <= 0; dx++) {
+                    float lSlope = (dx - 0.5f) / (dy + 0.5f);
+                    float rSlope = (dx + 0.5f) / (dy - 0.5f);
+                    if (startSlope < rSlope) continue;
+                    else if (endSlope > lSlope) break;
+
+                    int mapX = ox + dx * xx + dy * xy;
+                    int mapY = oy + dx * yx + dy * yy;
+                    boolean inBounds = inBounds(opaque, mapX, mapY);
+                    if ((dx * dx + dy * dy) < (radius * radius) && inBounds) {
+                        out[mapY][mapX] = true;
+                    }
+
+                    boolean isOpaque = !inBounds || opaque.get(mapX, mapY);
+                    if (blocked) {
+                        if (isOpaque) {
+                            nextStartSlope = rSlope;
+                        } else {
+                            blocked = false;
+                            startSlope = nextStartSlope;
+                        }
+                    } else if (inBounds && isOpaque && i < radius) {
+                        blocked = true;
+                        castLight(opaque, ox, oy, radius, i + 1, startSlope, lSlope, xx, xy, yx, yy, out);
+                        nextStartSlope = rSlope;
+                    }
+                }
+                if (blocked) break;
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package lucas.games.brogue.backend.systems;
+
+import lucas.games.brogue.backend.BrogueColor;
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.LightSource;
+import lucas.games.brogue.backend.Rect;
+import lucas.games.brogue.backend.StaticLightmap;
+import lucas.games.brogue.backend.TerrainLayer;
+import lucas.games.brogue.backend.TerrainType;
+import lucas.games.brogue.backend.TestLevels;
+import lucas.games.brogue.backend.entities.Entity;
+import lucas.games.brogue.backend.generators.DungeonGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StaticLightBakerTest {
+
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    void testBakedLightMatchesEquivalentDynamicLights() {
+        DungeonLevel level = TestLevels.openLevel(40, 30);
+        level.fillRect(new Rect(20, 5, 1, 20), TerrainType.WALL);
+        // Enough emitters to be split across the pool
+        for (int i = 0; i < 40; i++) {
+            level.setLayer(2 + (i % 16), 3 + (i / 16) * 8, TerrainLayer.SURFACE, TerrainType.LUMINESCENT_FUNGUS);
+        }
+        level.setLayer(25, 15, TerrainLayer.LIQUID, TerrainType.LAVA);
+
+        StaticLightBaker baker = new StaticLightBaker(new ForkJoinPool(4));
+        assertEquals(41, baker.bake(level));
+
+        DungeonLevel expected = TestLevels.openLevel(40, 30);
+        expected.fillRect(new Rect(20, 5, 1, 20), TerrainType.WALL);
+        LightingSystem lighting = new LightingSystem();
+        for (int i = 0; i < 40; i++) {
+            lighting.addLight(new LightSource(2 + (i % 16), 3 + (i / 16) * 8,
+                    TerrainType.LUMINESCENT_FUNGUS.getGlowRadius(), TerrainType.LUMINESCENT_FUNGUS.getGlowColor()));
+        }
+        lighting.addLight(new LightSource(25, 15, TerrainType.LAVA.getGlowRadius(), TerrainType.LAVA.getGlowColor()));
+        lighting.update(expected);
+
+        StaticLightmap lightmap = level.getStaticLightmap();
+        for (int y = 0; y < 30; y++) {
+            for (int x = 0; x < 40; x++) {
+                for (int c = 0; c < 3; c++) {
+                    assertEquals(expected.getLight(x, y, c), lightmap.get(x, y, c), EPSILON, "At " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testDynamicLightsAddOnTopOfBakedLight() {
+        DungeonLevel level = TestLevels.openLevel(20, 20);
+        level.setLayer(5, 5, TerrainLayer.LIQUID, TerrainType.LAVA);
+        new StaticLightBaker().bake(level);
+        float baked = level.getStaticLightmap().get(5, 5, 0);
+
+        LightingSystem lighting = new LightingSystem();
+        LightSource torch = new LightSource(5, 5, 4, BrogueColor.RED);
+        lighting.addLight(torch);
+        lighting.update(level);
+        assertEquals(baked + 1.0f, level.getLight(5, 5, 0), EPSILON);
+
+        torch.setPosition(15, 15);
+        lighting.update(level);
+        assertEquals(baked, level.getLight(5, 5, 0), EPSILON, "Moving the torch leaves the baked light");
+
+        level.prepareTurn();
+        lighting.update(level);
+        assertEquals(baked, level.getLight(5, 5, 0), EPSILON, "Baked light comes back after a wipe");
+
+        // Leaving the level takes everything off it, so returning does not double the baked light
+        lighting.update(TestLevels.openLevel(20, 20));
+        assertEquals(0.0f, level.getLight(5, 5, 0), EPSILON);
+        lighting.update(level);
+        assertEquals(baked, level.getLight(5, 5, 0), EPSILON);
+    }
+
+    @Test
+    void testGeneratorBakesItsGlowingTerrain() {
+        // Fungus is likely enough deep down that some seed in this range grows it
+        boolean foundGlow = false;
+        for (int seed = 1; seed <= 20 && !foundGlow; seed++) {
+            DungeonLevel level = new DungeonLevel(79, 29);
+            new DungeonGenerator(level, seed, 10).generate(new ArrayList<Entity>());
+
+            for (int y = 0; y < level.getHeight(); y++) {
+                for (int x = 0; x < level.getWidth(); x++) {
+                    if (level.getLayer(x, y, TerrainLayer.SURFACE) == TerrainType.LUMINESCENT_FUNGUS) {
+                        foundGlow = true;
+                        assertTrue(level.getStaticLightmap().get(x, y, 1) > 0, "Fungus lights its own cell");
+                    }
+                }
+            }
+            assertEquals(!foundGlow, level.getStaticLightmap().isEmpty());
+        }
+        assertTrue(foundGlow);
+    }
+}
@@ -0,0 +1,56 @@
+package lucas.games.brogue.backend.views;
+
+import lucas.games.brogue.backend.BrogueColor;
+import lucas.games.brogue.backend.DungeonLevel;
+import lucas.games.brogue.backend.PackedColor;
+import lucas.games.brogue.backend.Position;
+import lucas.games.brogue.backend.RememberedMap;
+import lucas.games.brogue.backend.ScalarColorCompositor;
+import lucas.games.brogue.backend.TerrainType;
+import lucas.games.brogue.backend.TestLevels;
+import lucas.games.brogue.backend.entities.Monster;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrameCompositorTest {
+
+    @Test
+    void testVisibleCellsAreLit() {
+        DungeonLevel level = TestLevels.openLevel(10, 3);
+        level.markVisible(2, 1);
+        level.markVisible(3, 1);
+        level.addLight(2, 1, 1.0f, 0.5f, 1.0f);
+        char[] glyphs = new char[10];
+        int[] colors = new int[10];
+
+        new FrameCompositor(new ScalarColorCompositor()).compositeRow(level, 1, glyphs, colors);
+
+        BrogueColor floor = TerrainType.FLOOR.getColor();
+        assertEquals('.', glyphs[2]);
+        assertEquals(PackedColor.pack((float) floor.red(), (float) floor.green() * 0.5f, (float) floor.blue()), colors[2]);
+        float dim = FrameCompositor.MIN_VISIBLE_LIGHT;
+        assertEquals(PackedColor.pack((float) floor.red() * dim, (float) floor.green() * dim, (float) floor.blue() * dim),
+                colors[3], "Unlit visible cells keep the minimum light");
+        assertEquals(0, glyphs[5], "Cells never seen are not drawn");
+    }
+
+    @Test
+    void testOccupantsDrawOverTerrainAndMemoryIsCopied() {
+        DungeonLevel level = TestLevels.openLevel(10, 3);
+        Monster rat = new Monster(new Position(4, 0), 'r', BrogueColor.RED, "Rat", 6, 6, 2);
+        level.getTile(4, 0).setOccupant(rat);
+        level.markVisible(4, 0);
+        level.markVisible(6, 0);
+        level.clearVisible(6, 0);
+        char[] glyphs = new char[10];
+        int[] colors = new int[10];
+
+        new FrameCompositor().compositeRow(level, 0, glyphs, colors);
+
+        assertEquals('r', glyphs[4]);
+        assertEquals('.', glyphs[6]);
+        assertEquals(level.getRememberedMap().getColor(6, 0), colors[6]);
+        assertEquals(TerrainType.FLOOR.getColor().toRgbInt(RememberedMap.TERRAIN_DIM), colors[6]);
+    }
+}
@@ -0,0 +1,85 @@
+package lucas.games.brogue.backend;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link ColorCompositor} built on the incubating Vector API.
+ * <p>
+ *     Each loop processes as many cells per step as the preferred vector shape holds
+ *     (8 floats with AVX2, 16 with AVX-512) and finishes the remainder with the same scalar
+ *     arithmetic as {@link ScalarColorCompositor}, so results are bit-identical.
+ *     Needs {@code --add-modules jdk.incubator.vector} at compile and run time;
+ *     {@link ColorCompositor#create()} only loads this class when the module is present.
+ * </p>
+ */
+public final class VectorColorCompositor implements ColorCompositor {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+    private final ScalarColorCompositor tail = new ScalarColorCompositor();
+
+    @Override
+    public void blend(float[] dst, float[] src, int offset, int length, float percent) {
+        int i = 0;
+        for (int bound = FLOATS.loopBound(length); i < bound; i += FLOATS.length()) {
+            FloatVector d = FloatVector.fromArray(FLOATS, dst, offset + i);
+            FloatVector s = FloatVector.fromArray(FLOATS, src, offset + i);
+            s.sub(d).mul(percent).add(d).intoArray(dst, offset + i);
+        }
+        tail.blend(dst, src, offset + i, length - i, percent);
+    }
+
+    @Override
+    public void addScaled(float[] dst, float[] src, int offset, int length, float factor) {
+        int i = 0;
+        for (int bound = FLOATS.loopBound(length); i < bound; i += FLOATS.length()) {
+            FloatVector d = FloatVector.fromArray(FLOATS, dst, offset + i);
+            FloatVector s = FloatVector.fromArray(FLOATS, src, offset + i);
+            s.mul(factor).add(d).intoArray(dst, offset + i);
+        }
+        tail.addScaled(dst, src, offset + i, length - i, factor);
+    }
+
+    @Override
+    public void multiply(float[] dst, float[] src, int offset, int length) {
+        int i = 0;
+        for (int bound = FLOATS.loopBound(length); i < bound; i += FLOATS.length()) {
+            FloatVector d = FloatVector.fromArray(FLOATS, dst, offset + i);
+            FloatVector s = FloatVector.fromArray(FLOATS, src, offset + i);
+            d.mul(s).intoArray(dst, offset + i);
+        }
+        tail.multiply(dst, src, offset + i, length - i);
+    }
+
+    @Override
+    public void scale(float[] dst, int offset, int length, float factor) {
+        int i = 0;
+        for (int bound = FLOATS.loopBound(length); i < bound; i += FLOATS.length()) {
+            FloatVector.fromArray(FLOATS, dst, offset + i).mul(factor).intoArray(dst, offset + i);
+        }
+        tail.scale(dst, offset + i, length - i, factor);
+    }
+
+    @Override
+    public void pack(float[] red, float[] green, float[] blue, int offset, int length, int[] out, int outOffset) {
+        int i = 0;
+        for (int bound = FLOATS.loopBound(length); i < bound; i += FLOATS.length()) {
+            IntVector r = toBytes(FloatVector.fromArray(FLOATS, red, offset + i));
+            IntVector g = toBytes(FloatVector.fromArray(FLOATS, green, offset + i));
+            IntVector b = toBytes(FloatVector.fromArray(FLOATS, blue, offset + i));
+            r.lanewise(VectorOperators.LSHL, 16)
+                    .or(g.lanewise(VectorOperators.LSHL, 8))
+                    .or(b)
+                    .intoArray(out, outOffset + i);
+        }
+        tail.pack(red, green, blue, offset + i, length - i, out, outOffset + i);
+    }
+
+    private static IntVector toBytes(FloatVector channel) {
+        // Float to int conversion keeps the lane count, so this is the matching int species
+        return (IntVector) channel.max(0.0f).min(1.0f).mul(255.0f).convert(VectorOperators.F2I, 0);
+    }
+}